@@ -0,0 +1,76 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares insertAll/deleteAll with inserting and deleting a batch one key
+ * at a time. each invocation inserts a batch of absent keys and deletes it
+ * again so the tree keeps its size
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BatchBenchmark {
+	@Param({ "100000", "1000000" })
+	private int size;
+
+	@Param({ "1000", "10000" })
+	private int batchSize;
+
+	private RedBlackTree<Integer> tree;
+	private List<Integer> batch;
+
+	/**
+	 * loads the even keys, batches are made of odd keys so they are absent
+	 */
+	@Setup
+	public void setUp() {
+		List<Integer> even = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			even.add(2 * i);
+		}
+		tree = new RedBlackTree<Integer>(even);
+
+		int[] stream = KeyStream.RANDOM.generate(size, batchSize, 42);
+		batch = new ArrayList<Integer>();
+		for (int key : KeyStream.distinct(stream)) {
+			batch.add(2 * key + 1);
+		}
+	}
+
+	@Benchmark
+	public int batched() {
+		return tree.insertAll(batch) + tree.deleteAll(batch);
+	}
+
+	@Benchmark
+	public int oneByOne() {
+		for (Integer key : batch) {
+			tree.insert(key);
+		}
+		for (Integer key : batch) {
+			tree.delete(key);
+		}
+		return batch.size();
+	}
+}
@@ -0,0 +1,43 @@
+package application;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * runs the benchmarks with the gc profiler attached, so every result also
+ * reports gc.alloc.rate.norm (bytes allocated per operation)
+ *
+ * built by the benchmarks maven module, mvn package leaves a runnable
+ * benchmarks/target/benchmarks.jar that takes the same arguments
+ *
+ * @author Alex
+ *
+ */
+public class BenchmarkRunner {
+	/**
+	 * runs benchmarks
+	 *
+	 * @param args
+	 *            optional regex of benchmarks to include, then optional
+	 *            result file
+	 * @throws RunnerException
+	 *             if jmh fails
+	 */
+	public static void main(String[] args) throws RunnerException {
+		String include = args.length > 0 ? args[0] : ".*";
+		String result = args.length > 1 ? args[1] : "jmh-result.json";
+
+		Options options = new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result(result)
+				.build();
+
+		new Runner(options).run();
+	}
+}
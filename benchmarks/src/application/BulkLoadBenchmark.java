@@ -0,0 +1,82 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the bulk-load constructor and loading a binary image with
+ * inserting one key at a time
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class BulkLoadBenchmark {
+	@Param({ "10000", "100000", "1000000", "10000000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyStream distribution;
+
+	private Integer[] keys;
+	private Path image;
+
+	@Setup
+	public void setUp() throws IOException {
+		int[] stream = distribution.generate(size, size, 42);
+
+		keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = stream[i];
+		}
+
+		image = Files.createTempFile("tree", ".rbt");
+		new RedBlackTree<Integer>(keys).writeTo(image, KeyCodec.INTEGER);
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(image);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> perElement() {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		for (Integer key : keys) {
+			if (!tree.find(key)) {
+				tree.insert(key);
+			}
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> bulkLoad() {
+		return new RedBlackTree<Integer>(keys);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> loadImage() throws IOException {
+		return RedBlackTree.load(image, KeyCodec.INTEGER);
+	}
+}
@@ -0,0 +1,98 @@
+package application;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * mixed read/write throughput of {@link ConcurrentRedBlackTree} with
+ * ConcurrentSkipListSet as the baseline. each thread count has its own
+ * benchmark method because @Threads cannot be a parameter
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ConcurrentTreeBenchmark {
+	@Param({ "1000000" })
+	private int size;
+
+	@Param({ "90", "50" })
+	private int readPercent;
+
+	@Param({ "RED_BLACK", "SKIP_LIST" })
+	private String impl;
+
+	private ConcurrentRedBlackTree<Integer> tree;
+	private ConcurrentSkipListSet<Integer> skipList;
+
+	@Setup
+	public void setUp() {
+		tree = new ConcurrentRedBlackTree<Integer>();
+		skipList = new ConcurrentSkipListSet<Integer>();
+		for (int i = 0; i < size; i += 2) {
+			tree.add(i);
+			skipList.add(i);
+		}
+	}
+
+	/**
+	 * one operation of the mix, writes alternate between insert and delete
+	 * so the size stays about the same
+	 */
+	private boolean operation() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Integer key = random.nextInt(size);
+		boolean skip = impl.equals("SKIP_LIST");
+
+		if (random.nextInt(100) < readPercent) {
+			return skip ? skipList.contains(key) : tree.find(key);
+		} else if (random.nextBoolean()) {
+			return skip ? skipList.add(key) : tree.add(key);
+		} else {
+			return skip ? skipList.remove(key) : tree.delete(key);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean threads1() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean threads4() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public boolean threads16() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public boolean threads64() {
+		return operation();
+	}
+}
@@ -0,0 +1,134 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the engines of {@link TreeEngine} on lookup latency, churn and
+ * the heap the structure takes per value
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class EngineBenchmark {
+	private static final int PROBES = 1 << 16;
+
+	@Param({ "10000", "1000000", "10000000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyStream distribution;
+
+	@Param({ "RED_BLACK", "B_TREE" })
+	private TreeEngine engine;
+
+	private Integer[] load;
+	private Integer[] probes;
+	private int cursor;
+
+	private OrderedSet<Integer> set;
+
+	/**
+	 * heap held by a set, reported next to the timing
+	 */
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Footprint {
+		/**
+		 * bytes retained per value, not counting the values themselves
+		 */
+		public long bytesPerValue;
+	}
+
+	@Setup
+	public void setUp() {
+		int[] distinct = KeyStream.distinct(distribution.generate(size, size, 42));
+		int[] stream = distribution.generate(size, PROBES, 7);
+
+		load = new Integer[distinct.length];
+		for (int i = 0; i < distinct.length; i++) {
+			load[i] = distinct[i];
+		}
+		probes = new Integer[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = stream[i];
+		}
+
+		set = engine.create();
+		for (Integer key : load) {
+			set.add(key);
+		}
+	}
+
+	private Integer nextProbe() {
+		Integer probe = probes[cursor];
+		cursor = (cursor + 1) & (PROBES - 1);
+		return probe;
+	}
+
+	@Benchmark
+	public boolean find() {
+		return set.find(nextProbe());
+	}
+
+	@Benchmark
+	public Integer ceiling() {
+		return set.ceiling(nextProbe());
+	}
+
+	/**
+	 * delete followed by insert of the same key keeps the set at a steady
+	 * size
+	 */
+	@Benchmark
+	public boolean churn() {
+		Integer key = nextProbe();
+		set.delete(key);
+		return set.add(key);
+	}
+
+	/**
+	 * builds a second set from the boxed values already held by the first,
+	 * so the heap growth measured after it is the structure alone
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public OrderedSet<Integer> footprint(Footprint footprint) {
+		long before = usedHeap();
+		OrderedSet<Integer> built = engine.create();
+		for (Integer key : load) {
+			built.add(key);
+		}
+		footprint.bytesPerValue = (usedHeap() - before) / Math.max(built.size(), 1);
+		return built;
+	}
+
+	private static long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+}
@@ -0,0 +1,112 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares searches in a {@link FrozenIndex} and a {@link FrozenIntIndex}
+ * with the same searches on the live trees they were frozen from
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class FrozenIndexBenchmark {
+	private static final int PROBES = 1 << 16;
+
+	@Param({ "10000", "1000000", "10000000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM" })
+	private KeyStream distribution;
+
+	private Integer[] probes;
+	private int[] intProbes;
+	private int cursor;
+
+	private RedBlackTree<Integer> tree;
+	private FrozenIndex<Integer> frozen;
+	private IntRedBlackTree intTree;
+	private FrozenIntIndex frozenInt;
+
+	@Setup
+	public void setUp() {
+		int[] distinct = KeyStream.distinct(distribution.generate(size, size, 42));
+		intProbes = distribution.generate(size, PROBES, 7);
+
+		probes = new Integer[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = intProbes[i];
+		}
+
+		tree = new RedBlackTree<Integer>();
+		intTree = new IntRedBlackTree(distinct.length);
+		for (int key : distinct) {
+			tree.insert(key);
+			intTree.insert(key);
+		}
+		frozen = tree.freeze();
+		frozenInt = intTree.freeze();
+	}
+
+	private int next() {
+		int i = cursor;
+		cursor = (cursor + 1) & (PROBES - 1);
+		return i;
+	}
+
+	@Benchmark
+	public boolean treeFind() {
+		return tree.find(probes[next()]);
+	}
+
+	@Benchmark
+	public boolean frozenFind() {
+		return frozen.find(probes[next()]);
+	}
+
+	@Benchmark
+	public Integer treeCeiling() {
+		return tree.ceiling(probes[next()]);
+	}
+
+	@Benchmark
+	public Integer frozenCeiling() {
+		return frozen.ceiling(probes[next()]);
+	}
+
+	@Benchmark
+	public boolean intTreeFind() {
+		return intTree.find(intProbes[next()]);
+	}
+
+	@Benchmark
+	public boolean frozenIntFind() {
+		return frozenInt.find(intProbes[next()]);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public FrozenIndex<Integer> freeze() {
+		return tree.freeze();
+	}
+}
@@ -0,0 +1,126 @@
+package application;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * key distributions used to drive the benchmarks
+ *
+ * @author Alex
+ *
+ */
+public enum KeyStream {
+	/**
+	 * 0, 1, 2, ... wrapping at the universe size
+	 */
+	SEQUENTIAL {
+		@Override
+		public int[] generate(int universe, int count, long seed) {
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = i % universe;
+			}
+			return keys;
+		}
+	},
+
+	/**
+	 * uniformly random keys in the universe
+	 */
+	RANDOM {
+		@Override
+		public int[] generate(int universe, int count, long seed) {
+			Random random = new Random(seed);
+			int[] keys = new int[count];
+			for (int i = 0; i < count; i++) {
+				keys[i] = random.nextInt(universe);
+			}
+			return keys;
+		}
+	},
+
+	/**
+	 * zipf skewed keys (theta 0.99), hot ranks are scattered over the
+	 * universe so they are not all the smallest keys
+	 */
+	ZIPF {
+		@Override
+		public int[] generate(int universe, int count, long seed) {
+			Random random = new Random(seed);
+			double theta = 0.99;
+			double zetan = zeta(universe, theta);
+			double zeta2 = zeta(2, theta);
+			double alpha = 1.0 / (1.0 - theta);
+			double eta = (1 - Math.pow(2.0 / universe, 1 - theta)) / (1 - zeta2 / zetan);
+			int[] keys = new int[count];
+
+			for (int i = 0; i < count; i++) {
+				double u = random.nextDouble();
+				double uz = u * zetan;
+				long rank;
+
+				if (uz < 1.0) {
+					rank = 0;
+				} else if (uz < 1.0 + Math.pow(0.5, theta)) {
+					rank = 1;
+				} else {
+					rank = Math.min(universe - 1, (long) (universe * Math.pow(eta * u - eta + 1, alpha)));
+				}
+				keys[i] = (int) (rank * SCATTER % universe);
+			}
+			return keys;
+		}
+	};
+
+	/**
+	 * prime larger than any universe, so rank * SCATTER mod n is a permutation
+	 */
+	private static final long SCATTER = 1_000_000_007L;
+
+	/**
+	 * creates a stream of keys
+	 *
+	 * @param universe
+	 *            keys are in [0, universe)
+	 * @param count
+	 *            length of the stream
+	 * @param seed
+	 *            random seed
+	 * @return keys in stream order, may repeat
+	 */
+	public abstract int[] generate(int universe, int count, long seed);
+
+	/**
+	 * keeps the first occurrence of every key, in stream order
+	 *
+	 * @param keys
+	 *            stream
+	 * @return distinct keys
+	 */
+	public static int[] distinct(int[] keys) {
+		int max = 0;
+		for (int key : keys) {
+			max = Math.max(max, key);
+		}
+
+		boolean[] seen = new boolean[max + 1];
+		int[] distinct = new int[keys.length];
+		int count = 0;
+
+		for (int key : keys) {
+			if (!seen[key]) {
+				seen[key] = true;
+				distinct[count++] = key;
+			}
+		}
+		return Arrays.copyOf(distinct, count);
+	}
+
+	private static double zeta(long n, double theta) {
+		double sum = 0;
+		for (long i = 1; i <= n; i++) {
+			sum += 1.0 / Math.pow(i, theta);
+		}
+		return sum;
+	}
+}
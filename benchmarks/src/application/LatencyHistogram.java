@@ -0,0 +1,163 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * histogram of latencies in nanoseconds with buckets laid out like
+ * HdrHistogram: exact below 2048, above that 1024 buckets per power of two,
+ * so every reported value is within 0.1% of the recorded one. recording is
+ * one array increment and never allocates
+ *
+ * percentiles are reported as the highest value of their bucket, capped at
+ * the largest value recorded
+ *
+ * @author Alex
+ *
+ */
+public final class LatencyHistogram {
+	private static final int SUB_BITS = 11;
+	private static final int SUB_COUNT = 1 << SUB_BITS;
+	private static final int HALF = SUB_COUNT >>> 1;
+
+	private final long highest;
+	private final long[] counts;
+	private long total;
+	private long max;
+
+	/**
+	 * constructs empty histogram
+	 *
+	 * @param highest
+	 *            largest value told apart, larger values count as this one
+	 *            but still set the max
+	 */
+	public LatencyHistogram(long highest) {
+		this.highest = Math.max(highest, SUB_COUNT);
+		this.counts = new long[index(this.highest) + 1];
+	}
+
+	/**
+	 * bucket of a value
+	 *
+	 * @param value
+	 *            non-negative value
+	 * @return index into counts
+	 */
+	private static int index(long value) {
+		if (value < SUB_COUNT) {
+			return (int) value;
+		}
+		// shift brings the value into [HALF, SUB_COUNT)
+		int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+		return SUB_COUNT + (shift - 1) * HALF + (int) ((value >>> shift) - HALF);
+	}
+
+	/**
+	 * largest value that falls into a bucket
+	 *
+	 * @param index
+	 *            bucket
+	 * @return highest equivalent value
+	 */
+	private static long highestIn(int index) {
+		if (index < SUB_COUNT) {
+			return index;
+		}
+		int shift = (index - SUB_COUNT) / HALF + 1;
+		long sub = (index - SUB_COUNT) % HALF + HALF;
+		return ((sub + 1) << shift) - 1;
+	}
+
+	/**
+	 * records one latency
+	 *
+	 * @param value
+	 *            latency in nanoseconds, negative counts as 0
+	 */
+	public void record(long value) {
+		if (value < 0) {
+			value = 0;
+		}
+		counts[index(Math.min(value, highest))]++;
+		total++;
+		if (value > max) {
+			max = value;
+		}
+	}
+
+	/**
+	 * adds the counts of another histogram with the same highest value
+	 *
+	 * @param other
+	 *            histogram to add
+	 */
+	public void add(LatencyHistogram other) {
+		if (other.counts.length != counts.length) {
+			throw new IllegalArgumentException("highest values differ");
+		}
+		for (int i = 0; i < counts.length; i++) {
+			counts[i] += other.counts[i];
+		}
+		total += other.total;
+		max = Math.max(max, other.max);
+	}
+
+	/**
+	 * value at or below which a share of the recorded values fall
+	 *
+	 * @param percentile
+	 *            share in percent, in [0, 100]
+	 * @return latency in nanoseconds, 0 if nothing was recorded
+	 */
+	public long percentile(double percentile) {
+		if (total == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+		long seen = 0;
+
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return Math.min(highestIn(i), max);
+			}
+		}
+		return max;
+	}
+
+	public long count() {
+		return total;
+	}
+
+	public long max() {
+		return max;
+	}
+
+	/**
+	 * forgets every recorded value
+	 */
+	public void reset() {
+		Arrays.fill(counts, 0);
+		total = 0;
+		max = 0;
+	}
+
+	/**
+	 * one line with the count and the usual percentiles in microseconds
+	 *
+	 * @return summary
+	 */
+	public String summary() {
+		return String.format("count=%d p50=%.1f p99=%.1f p99.9=%.1f max=%.1f us", total, micros(percentile(50)),
+				micros(percentile(99)), micros(percentile(99.9)), micros(max));
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+
+	@Override
+	public String toString() {
+		return "LatencyHistogram[" + summary() + "]";
+	}
+}
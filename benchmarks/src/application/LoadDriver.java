@@ -0,0 +1,219 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * headless load test of {@link RedBlackTree}. runs an {@link OperationTrace},
+ * generated from a workload or replayed from a file, and prints latency
+ * percentiles per operation
+ *
+ * with a rate the run is open loop: every operation has a due time and is
+ * started then, or at once if the driver is already late. besides the
+ * service time of each call, the response time is measured from the due time
+ * rather than from the actual start. a slow call then also shows up in the
+ * latency of every operation that had to wait behind it, which is what
+ * clients arriving at that rate would have seen, instead of being hidden by
+ * the driver sending fewer requests while it waits (coordinated omission).
+ * without a rate operations run back to back and only service time is
+ * reported
+ *
+ * arguments are name=value pairs, all optional:
+ *
+ * <pre>
+ * distribution=RANDOM   SEQUENTIAL, RANDOM or ZIPF
+ * universe=1000000      keys are in [0, universe)
+ * preload=500000        keys inserted before timing starts
+ * ops=1000000           timed operations
+ * mix=25:25:50          percent insert, delete and find
+ * rate=0                operations per second, 0 for back to back
+ * seed=42               random seed
+ * warmup=2              untimed runs of the whole trace first
+ * record=path           write the trace to a file
+ * replay=path           run a trace file instead of generating one
+ * </pre>
+ *
+ * run with -Dapplication.treeStats=true to also print the tree counters
+ *
+ * @author Alex
+ *
+ */
+public class LoadDriver {
+	private static final long HIGHEST = TimeUnit.MINUTES.toNanos(10);
+	private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(200);
+	private static final OperationTrace.Operation[] OPERATIONS = OperationTrace.Operation.values();
+
+	/**
+	 * runs the load test
+	 *
+	 * @param args
+	 *            name=value options
+	 * @throws IOException
+	 *             if a trace file cannot be read or written
+	 */
+	public static void main(String[] args) throws IOException {
+		Map<String, String> options = new HashMap<String, String>();
+		for (String arg : args) {
+			int eq = arg.indexOf('=');
+			if (eq < 0) {
+				throw new IllegalArgumentException("expected name=value: " + arg);
+			}
+			options.put(arg.substring(0, eq), arg.substring(eq + 1));
+		}
+
+		OperationTrace trace;
+		if (options.containsKey("replay")) {
+			trace = OperationTrace.read(Paths.get(options.get("replay")));
+		} else {
+			String[] mix = options.getOrDefault("mix", "25:25:50").split(":");
+			trace = OperationTrace.generate(KeyStream.valueOf(options.getOrDefault("distribution", "RANDOM")),
+					Integer.parseInt(options.getOrDefault("universe", "1000000")),
+					Integer.parseInt(options.getOrDefault("preload", "500000")),
+					Integer.parseInt(options.getOrDefault("ops", "1000000")),
+					new int[] { Integer.parseInt(mix[0]), Integer.parseInt(mix[1]), Integer.parseInt(mix[2]) },
+					Double.parseDouble(options.getOrDefault("rate", "0")),
+					Long.parseLong(options.getOrDefault("seed", "42")));
+		}
+		if (options.containsKey("record")) {
+			Path path = Paths.get(options.get("record"));
+			trace.write(path);
+			System.out.println("recorded " + trace.size() + " operations to " + path);
+		}
+
+		int warmup = Integer.parseInt(options.getOrDefault("warmup", "2"));
+		for (int i = 0; i < warmup; i++) {
+			new LoadDriver(trace, false).run();
+		}
+
+		LoadDriver driver = new LoadDriver(trace, trace.paced());
+		long elapsed = driver.run();
+		driver.report(elapsed);
+	}
+
+	private final OperationTrace trace;
+	private final boolean paced;
+	private final Integer[] keys;
+	private final LatencyHistogram[] service = new LatencyHistogram[OPERATIONS.length];
+	private final LatencyHistogram[] response = new LatencyHistogram[OPERATIONS.length];
+	private RedBlackTree<Integer> tree;
+
+	/**
+	 * constructs driver. keys are boxed up front so the timed calls do not
+	 * allocate for boxing
+	 *
+	 * @param trace
+	 *            operations to run
+	 * @param paced
+	 *            whether to wait for due times
+	 */
+	private LoadDriver(OperationTrace trace, boolean paced) {
+		this.trace = trace;
+		this.paced = paced;
+		this.keys = new Integer[trace.size()];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = trace.key(i);
+		}
+		for (int op = 0; op < OPERATIONS.length; op++) {
+			service[op] = new LatencyHistogram(HIGHEST);
+			response[op] = new LatencyHistogram(HIGHEST);
+		}
+	}
+
+	/**
+	 * preloads a new tree and runs the timed operations on it
+	 *
+	 * @return nanoseconds the timed operations took
+	 */
+	private long run() {
+		tree = new RedBlackTree<Integer>();
+		int preload = trace.preload();
+		for (int i = 0; i < preload; i++) {
+			tree.insert(keys[i]);
+		}
+
+		long start = System.nanoTime();
+		for (int i = preload; i < keys.length; i++) {
+			long due = start + trace.due(i);
+			if (paced) {
+				waitUntil(due);
+			}
+
+			int op = trace.operation(i).ordinal();
+			long begin = System.nanoTime();
+			apply(op, keys[i]);
+			long end = System.nanoTime();
+
+			service[op].record(end - begin);
+			if (paced) {
+				response[op].record(end - due);
+			}
+		}
+		return System.nanoTime() - start;
+	}
+
+	private void apply(int op, Integer key) {
+		switch (OPERATIONS[op]) {
+		case INSERT:
+			tree.add(key);
+			break;
+		case DELETE:
+			tree.delete(key);
+			break;
+		case FIND:
+			tree.find(key);
+			break;
+		}
+	}
+
+	/**
+	 * parks until shortly before a due time and spins the rest, parking
+	 * alone can oversleep by tens of microseconds
+	 *
+	 * @param due
+	 *            System.nanoTime() to wait for
+	 */
+	private static void waitUntil(long due) {
+		long now;
+		while ((now = System.nanoTime()) < due) {
+			if (due - now > SPIN_NANOS) {
+				LockSupport.parkNanos(due - now - SPIN_NANOS);
+			} else {
+				Thread.onSpinWait();
+			}
+		}
+	}
+
+	private void report(long elapsed) {
+		int timed = trace.size() - trace.preload();
+		System.out.printf("%d operations after %d preloaded in %.1f ms, %.0f ops/s%n", timed, trace.preload(),
+				elapsed / 1e6, timed / (elapsed / 1e9));
+		if (paced) {
+			long offered = trace.due(trace.size() - 1);
+			System.out.printf("offered %.0f ops/s%n", timed / Math.max(offered / 1e9, 1e-9));
+		}
+
+		System.out.println("service time:");
+		print(service);
+		if (paced) {
+			System.out.println("response time from due time, corrected for coordinated omission:");
+			print(response);
+		}
+		if (TreeStats.ENABLED) {
+			System.out.println(tree.stats());
+		}
+	}
+
+	private static void print(LatencyHistogram[] histograms) {
+		LatencyHistogram all = new LatencyHistogram(HIGHEST);
+		for (int op = 0; op < OPERATIONS.length; op++) {
+			System.out.printf("  %-7s %s%n", OPERATIONS[op], histograms[op].summary());
+			all.add(histograms[op]);
+		}
+		System.out.printf("  %-7s %s%n", "ALL", all.summary());
+	}
+}
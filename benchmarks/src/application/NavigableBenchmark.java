@@ -0,0 +1,135 @@
+package application;
+
+import java.util.NavigableSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * navigation, range scans and map lookups against TreeSet and TreeMap
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class NavigableBenchmark {
+	private static final int PROBES = 1 << 16;
+
+	@Param({ "100000", "1000000" })
+	private int size;
+
+	@Param({ "10", "1000" })
+	private int rangeWidth;
+
+	private Integer[] probes;
+	private int cursor;
+
+	private RedBlackTree<Integer> tree;
+	private TreeSet<Integer> treeSet;
+	private RedBlackTreeMap<Integer, Integer> map;
+	private TreeMap<Integer, Integer> treeMap;
+
+	/**
+	 * loads the even keys so half of the probes miss
+	 */
+	@Setup
+	public void setUp() {
+		tree = new RedBlackTree<Integer>();
+		treeSet = new TreeSet<Integer>();
+		map = new RedBlackTreeMap<Integer, Integer>();
+		treeMap = new TreeMap<Integer, Integer>();
+
+		for (int i = 0; i < size; i++) {
+			Integer key = 2 * i;
+			tree.add(key);
+			treeSet.add(key);
+			map.put(key, key);
+			treeMap.put(key, key);
+		}
+
+		int[] stream = KeyStream.RANDOM.generate(2 * size, PROBES, 7);
+		probes = new Integer[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = stream[i];
+		}
+	}
+
+	private Integer nextProbe() {
+		Integer probe = probes[cursor];
+		cursor = (cursor + 1) & (PROBES - 1);
+		return probe;
+	}
+
+	@Benchmark
+	public Integer ceiling() {
+		return tree.ceiling(nextProbe());
+	}
+
+	@Benchmark
+	public Integer treeSetCeiling() {
+		return treeSet.ceiling(nextProbe());
+	}
+
+	@Benchmark
+	public Integer floor() {
+		return tree.floor(nextProbe());
+	}
+
+	@Benchmark
+	public Integer treeSetFloor() {
+		return treeSet.floor(nextProbe());
+	}
+
+	@Benchmark
+	public long rangeScan() {
+		Integer from = nextProbe();
+		return sum(tree.subSet(from, true, from + 2 * rangeWidth, false));
+	}
+
+	@Benchmark
+	public long treeSetRangeScan() {
+		Integer from = nextProbe();
+		return sum(treeSet.subSet(from, true, from + 2 * rangeWidth, false));
+	}
+
+	@Benchmark
+	public int rangeSize() {
+		Integer from = nextProbe();
+		return tree.subSet(from, true, from + 2 * rangeWidth, false).size();
+	}
+
+	@Benchmark
+	public Integer mapGet() {
+		return map.get(nextProbe());
+	}
+
+	@Benchmark
+	public Integer treeMapGet() {
+		return treeMap.get(nextProbe());
+	}
+
+	private static long sum(NavigableSet<Integer> range) {
+		long sum = 0;
+		for (Integer key : range) {
+			sum += key;
+		}
+		return sum;
+	}
+}
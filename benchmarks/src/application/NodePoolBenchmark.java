@@ -0,0 +1,75 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * sliding window churn, one insert and one delete per operation, with and
+ * without the node pool. under the GC profiler {@link BenchmarkRunner}
+ * attaches, gc.alloc.rate.norm should read 0 B/op once the pool is warm
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class NodePoolBenchmark {
+	@Param({ "10000", "1000000" })
+	private int size;
+
+	@Param({ "false", "true" })
+	private boolean pooled;
+
+	private Integer[] keys;
+	private int oldest;
+	private RedBlackTree<Integer> tree;
+
+	/**
+	 * the window holds keys [oldest, oldest + size), keys are boxed up front
+	 * and reused so boxing does not allocate either
+	 */
+	@Setup
+	public void setUp() {
+		keys = new Integer[2 * size];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = i;
+		}
+
+		tree = new RedBlackTree<Integer>();
+		if (pooled) {
+			tree.enableNodePool(1024);
+		}
+		for (int i = 0; i < size; i++) {
+			tree.insert(keys[i]);
+		}
+		oldest = 0;
+	}
+
+	/**
+	 * slides the window by one, the key leaving is the key that will enter
+	 * again once the window wraps
+	 */
+	@Benchmark
+	public boolean slide() {
+		Integer leaving = keys[oldest];
+		Integer entering = keys[(oldest + size) % keys.length];
+
+		oldest = (oldest + 1) % keys.length;
+		return tree.delete(leaving) & tree.add(entering);
+	}
+}
@@ -0,0 +1,98 @@
+package application;
+
+import java.util.Iterator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * {@link OffHeapRedBlackTree} against {@link RedBlackTree} of Long at up to
+ * 1e8 keys. run through {@link BenchmarkRunner} so the GC profiler reports
+ * collection counts and time next to the throughput: the on-heap tree keeps
+ * two objects per key live for every full collection to trace
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xms16g", "-Xmx16g", "-XX:MaxDirectMemorySize=8g" })
+public class OffHeapBenchmark {
+	@Param({ "10000000", "100000000" })
+	private int size;
+
+	@Param({ "OFF_HEAP", "ON_HEAP" })
+	private String impl;
+
+	private OffHeapRedBlackTree offHeap;
+	private RedBlackTree<Long> onHeap;
+
+	/**
+	 * even keys 0, 2, ... so half the probes miss
+	 */
+	@Setup
+	public void setUp() {
+		if (impl.equals("OFF_HEAP")) {
+			offHeap = new OffHeapRedBlackTree();
+			for (long i = 0; i < size; i++) {
+				offHeap.insert(2 * i);
+			}
+		} else {
+			onHeap = new RedBlackTree<Long>(new Iterator<Long>() {
+				private long next;
+
+				@Override
+				public boolean hasNext() {
+					return next < size;
+				}
+
+				@Override
+				public Long next() {
+					return 2 * next++;
+				}
+			});
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		if (offHeap != null) {
+			offHeap.close();
+		}
+		onHeap = null;
+	}
+
+	@Benchmark
+	public boolean find() {
+		long key = ThreadLocalRandom.current().nextLong(2L * size);
+		return impl.equals("OFF_HEAP") ? offHeap.find(key) : onHeap.find(key);
+	}
+
+	/**
+	 * deletes a key and puts it back, the on-heap tree allocates a node and
+	 * a Long each time
+	 */
+	@Benchmark
+	public boolean churn() {
+		long key = 2 * ThreadLocalRandom.current().nextLong(size);
+		if (impl.equals("OFF_HEAP")) {
+			return offHeap.delete(key) & offHeap.insert(key);
+		}
+		return onHeap.delete(key) & onHeap.add(key);
+	}
+}
@@ -0,0 +1,251 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * sequence of tree operations with the time each one is due, generated from
+ * a workload or read back from a trace file, so a run can be repeated
+ * exactly. the first operations are preload inserts that are not timed
+ *
+ * the file layout is
+ *
+ * <pre>
+ * int  magic
+ * int  number of preload operations
+ * int  number of operations, preload included
+ * byte 1 if the operations are paced, 0 if they run back to back
+ * per operation:
+ *   byte   operation
+ *   varint key, zigzag encoded
+ *   varint nanoseconds since the previous operation was due
+ * </pre>
+ *
+ * @author Alex
+ *
+ */
+public final class OperationTrace {
+	private static final int MAGIC = 0x52425452;
+
+	/**
+	 * operations a trace can hold
+	 */
+	public enum Operation {
+		INSERT, DELETE, FIND;
+
+		private static final Operation[] VALUES = values();
+	}
+
+	private final int preload;
+	private final boolean paced;
+	private final byte[] operations;
+	private final int[] keys;
+	private final long[] due;
+
+	/**
+	 * constructs trace
+	 *
+	 * @param preload
+	 *            number of leading untimed inserts
+	 * @param paced
+	 *            whether due times are set
+	 * @param operations
+	 *            operation ordinals
+	 * @param keys
+	 *            key of each operation
+	 * @param due
+	 *            nanoseconds after the first timed operation that each one is
+	 *            due, 0 for preload
+	 */
+	private OperationTrace(int preload, boolean paced, byte[] operations, int[] keys, long[] due) {
+		this.preload = preload;
+		this.paced = paced;
+		this.operations = operations;
+		this.keys = keys;
+		this.due = due;
+	}
+
+	/**
+	 * generates a trace. arrivals are a poisson process at the given rate,
+	 * the way independent clients would send requests
+	 *
+	 * @param distribution
+	 *            key distribution of preload and operations
+	 * @param universe
+	 *            keys are in [0, universe)
+	 * @param preload
+	 *            keys drawn for the preload, repeats are dropped
+	 * @param count
+	 *            timed operations
+	 * @param mix
+	 *            percentages of insert, delete and find
+	 * @param rate
+	 *            operations per second, 0 to run them back to back
+	 * @param seed
+	 *            random seed
+	 * @return trace
+	 */
+	public static OperationTrace generate(KeyStream distribution, int universe, int preload, int count, int[] mix,
+			double rate, long seed) {
+		if (mix.length != 3 || mix[0] + mix[1] + mix[2] != 100) {
+			throw new IllegalArgumentException("mix must be three percentages adding up to 100");
+		}
+
+		int[] loaded = KeyStream.distinct(distribution.generate(universe, preload, seed));
+		int[] stream = distribution.generate(universe, count, seed + 1);
+		Random random = new Random(seed + 2);
+		int total = loaded.length + count;
+
+		byte[] operations = new byte[total];
+		int[] keys = new int[total];
+		long[] due = new long[total];
+
+		System.arraycopy(loaded, 0, keys, 0, loaded.length);
+		double time = 0;
+		for (int i = 0; i < count; i++) {
+			int at = loaded.length + i;
+			int pick = random.nextInt(100);
+			operations[at] = (byte) (pick < mix[0] ? 0 : pick < mix[0] + mix[1] ? 1 : 2);
+			keys[at] = stream[i];
+			if (rate > 0) {
+				due[at] = (long) time;
+				time -= Math.log(1 - random.nextDouble()) / rate * 1e9;
+			}
+		}
+		return new OperationTrace(loaded.length, rate > 0, operations, keys, due);
+	}
+
+	/**
+	 * reads a trace file
+	 *
+	 * @param path
+	 *            trace file
+	 * @return trace
+	 * @throws IOException
+	 *             if the file cannot be read or is not a trace
+	 */
+	public static OperationTrace read(Path path) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (in.readInt() != MAGIC) {
+				throw new IOException("not a trace file: " + path);
+			}
+			int preload = in.readInt();
+			int total = in.readInt();
+			boolean paced = in.readByte() != 0;
+
+			byte[] operations = new byte[total];
+			int[] keys = new int[total];
+			long[] due = new long[total];
+			long time = 0;
+
+			for (int i = 0; i < total; i++) {
+				operations[i] = in.readByte();
+				if (operations[i] < 0 || operations[i] >= Operation.VALUES.length) {
+					throw new IOException("bad operation " + operations[i] + " at " + i);
+				}
+				long zigzag = readVarint(in);
+				keys[i] = (int) ((zigzag >>> 1) ^ -(zigzag & 1));
+				time += readVarint(in);
+				due[i] = time;
+			}
+			return new OperationTrace(preload, paced, operations, keys, due);
+		}
+	}
+
+	/**
+	 * writes the trace to a file
+	 *
+	 * @param path
+	 *            trace file, replaced if it exists
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void write(Path path) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(preload);
+			out.writeInt(operations.length);
+			out.writeByte(paced ? 1 : 0);
+
+			long time = 0;
+			for (int i = 0; i < operations.length; i++) {
+				out.writeByte(operations[i]);
+				writeVarint(out, ((keys[i] << 1) ^ (keys[i] >> 31)) & 0xFFFFFFFFL);
+				writeVarint(out, due[i] - time);
+				time = due[i];
+			}
+		}
+	}
+
+	private static void writeVarint(DataOutputStream out, long value) throws IOException {
+		while ((value & ~0x7FL) != 0) {
+			out.writeByte((int) (value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		out.writeByte((int) value);
+	}
+
+	private static long readVarint(DataInputStream in) throws IOException {
+		long value = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			value |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0) {
+				return value;
+			}
+		}
+		throw new IOException("varint too long");
+	}
+
+	/**
+	 * number of leading untimed inserts
+	 *
+	 * @return preload count
+	 */
+	public int preload() {
+		return preload;
+	}
+
+	/**
+	 * number of operations, preload included
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return operations.length;
+	}
+
+	/**
+	 * whether operations have due times or run back to back
+	 *
+	 * @return paced
+	 */
+	public boolean paced() {
+		return paced;
+	}
+
+	public Operation operation(int i) {
+		return Operation.VALUES[operations[i]];
+	}
+
+	public int key(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * time an operation is due
+	 *
+	 * @param i
+	 *            operation
+	 * @return nanoseconds after the first timed operation is due
+	 */
+	public long due(int i) {
+		return due[i];
+	}
+}
@@ -0,0 +1,75 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * aggregate scans over the tree through stream() and parallelStream() on
+ * pools of 1 to N workers
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ParallelStreamBenchmark {
+	@Param({ "1000000", "10000000" })
+	private int size;
+
+	@Param({ "1", "2", "4", "8", "16" })
+	private int workers;
+
+	private RedBlackTree<Integer> tree;
+	private ForkJoinPool pool;
+
+	@Setup
+	public void setUp() {
+		List<Integer> keys = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++) {
+			keys.add(i);
+		}
+		tree = new RedBlackTree<Integer>(keys);
+		pool = new ForkJoinPool(workers);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		pool.shutdown();
+	}
+
+	@Benchmark
+	public long sequentialSum() {
+		return tree.stream().mapToLong(Integer::longValue).sum();
+	}
+
+	@Benchmark
+	public long parallelSum() throws InterruptedException, ExecutionException {
+		return pool.submit(() -> tree.parallelStream().mapToLong(Integer::longValue).sum()).get();
+	}
+
+	@Benchmark
+	public long parallelFilterCount() throws InterruptedException, ExecutionException {
+		return pool.submit(() -> tree.parallelStream().filter(key -> key % 3 == 0).count()).get();
+	}
+}
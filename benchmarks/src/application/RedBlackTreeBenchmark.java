@@ -0,0 +1,280 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * measures insert, delete, find and the traversals of {@link RedBlackTree}
+ * with {@link TreeMap} as the baseline
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class RedBlackTreeBenchmark {
+	private static final int PROBES = 1 << 16;
+
+	@Param({ "1000", "10000", "100000", "1000000", "10000000" })
+	private int size;
+
+	@Param({ "SEQUENTIAL", "RANDOM", "ZIPF" })
+	private KeyStream distribution;
+
+	private Integer[] load;
+	private Integer[] probes;
+	private int cursor;
+
+	private RedBlackTree<Integer> tree;
+	private TreeMap<Integer, Boolean> treeMap;
+
+	@State(Scope.Thread)
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	public static class Rebalancing {
+		/**
+		 * rotations per delete and insert pair
+		 */
+		public double rotations;
+
+		/**
+		 * color changes per delete and insert pair
+		 */
+		public double recolors;
+
+		/**
+		 * value comparisons per delete and insert pair
+		 */
+		public double comparisons;
+
+		/**
+		 * mean nodes visited by a search
+		 */
+		public double pathLength;
+	}
+
+	/**
+	 * generates the keys and loads both trees, keys are boxed up front so
+	 * the measured calls do not allocate for boxing
+	 */
+	@Setup
+	public void setUp() {
+		int[] distinct = KeyStream.distinct(distribution.generate(size, size, 42));
+		int[] stream = distribution.generate(size, PROBES, 7);
+
+		load = new Integer[distinct.length];
+		for (int i = 0; i < distinct.length; i++) {
+			load[i] = distinct[i];
+		}
+		probes = new Integer[PROBES];
+		for (int i = 0; i < PROBES; i++) {
+			probes[i] = stream[i];
+		}
+
+		tree = new RedBlackTree<Integer>();
+		treeMap = new TreeMap<Integer, Boolean>();
+		for (Integer key : load) {
+			tree.insert(key);
+			treeMap.put(key, Boolean.TRUE);
+		}
+	}
+
+	private Integer nextProbe() {
+		Integer probe = probes[cursor];
+		cursor = (cursor + 1) & (PROBES - 1);
+		return probe;
+	}
+
+	@Benchmark
+	public boolean find() {
+		return tree.find(nextProbe());
+	}
+
+	@Benchmark
+	public boolean treeMapFind() {
+		return treeMap.containsKey(nextProbe());
+	}
+
+	@Benchmark
+	public int rank() {
+		return tree.rank(nextProbe());
+	}
+
+	@Benchmark
+	public Integer select() {
+		return tree.select(nextProbe() % tree.size());
+	}
+
+	/**
+	 * delete followed by insert of the same key keeps the tree at a steady
+	 * size
+	 */
+	@Benchmark
+	public void churn() {
+		Integer key = nextProbe();
+		tree.delete(key);
+		tree.insert(key);
+	}
+
+	/**
+	 * churn with the find-before-insert pattern the GUI used, two descents
+	 * per insert against one for {@link #churn()}
+	 */
+	@Benchmark
+	public void guardedChurn() {
+		Integer key = nextProbe();
+		tree.delete(key);
+		if (!tree.find(key)) {
+			tree.insert(key);
+		}
+	}
+
+	/**
+	 * one pass of churn over every probe in a fork with {@link TreeStats}
+	 * on, reporting the rebalancing work it took next to the time
+	 */
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g", "-Dapplication.treeStats=true" })
+	public RedBlackTree<Integer> churnRebalancing(Rebalancing rebalancing) {
+		TreeStats stats = tree.stats();
+		stats.reset();
+		for (Integer key : probes) {
+			tree.delete(key);
+			tree.insert(key);
+		}
+		rebalancing.rotations = (double) (stats.getLeftRotations() + stats.getRightRotations()) / PROBES;
+		rebalancing.recolors = (double) stats.getRecolors() / PROBES;
+		rebalancing.comparisons = (double) stats.getComparisons() / PROBES;
+		rebalancing.pathLength = stats.getMeanPathLength();
+		return tree;
+	}
+
+	@Benchmark
+	public boolean addExisting() {
+		return tree.add(nextProbe());
+	}
+
+	@Benchmark
+	public Boolean treeMapChurn() {
+		Integer key = nextProbe();
+		treeMap.remove(key);
+		return treeMap.put(key, Boolean.TRUE);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public RedBlackTree<Integer> build() {
+		RedBlackTree<Integer> built = new RedBlackTree<Integer>();
+		for (Integer key : load) {
+			built.insert(key);
+		}
+		return built;
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 2)
+	@Measurement(iterations = 5)
+	public TreeMap<Integer, Boolean> treeMapBuild() {
+		TreeMap<Integer, Boolean> built = new TreeMap<Integer, Boolean>();
+		for (Integer key : load) {
+			built.put(key, Boolean.TRUE);
+		}
+		return built;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<RBNode<Integer>> preorder() {
+		return tree.preorder();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<RBNode<Integer>> inorder() {
+		return tree.inorder();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<RBNode<Integer>> postorder() {
+		return tree.postorder();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<RBNode<Integer>> breadthfirst() {
+		return tree.breadthfirst();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long preorderIterator() {
+		return sum(tree.preorderIterator());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long inorderIterator() {
+		return sum(tree.inorderIterator());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long postorderIterator() {
+		return sum(tree.postorderIterator());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long breadthfirstIterator() {
+		return sum(tree.breadthfirstIterator());
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public long treeMapIterator() {
+		return sum(treeMap.keySet().iterator());
+	}
+
+	private static long sum(Iterator<Integer> it) {
+		long sum = 0;
+		while (it.hasNext()) {
+			sum += it.next();
+		}
+		return sum;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public List<Integer> treeMapInorder() {
+		return new ArrayList<Integer>(treeMap.keySet());
+	}
+}
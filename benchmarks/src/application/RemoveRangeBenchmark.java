@@ -0,0 +1,76 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares dropping a contiguous key range with two splits and a join
+ * against deleting the values of the range one at a time. the tree is
+ * rebuilt before every call
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 5)
+@Measurement(iterations = 20)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class RemoveRangeBenchmark {
+	@Param({ "1000000" })
+	private int size;
+
+	@Param({ "100", "10000", "500000" })
+	private int width;
+
+	private Integer[] keys;
+	private Integer from;
+	private Integer to;
+	private RedBlackTree<Integer> tree;
+
+	@Setup
+	public void setUp() {
+		keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = i;
+		}
+		from = (size - width) / 2;
+		to = from + width;
+	}
+
+	@Setup(Level.Invocation)
+	public void build() {
+		tree = new RedBlackTree<Integer>(keys);
+	}
+
+	@Benchmark
+	public int removeRange() {
+		return tree.removeRange(from, to);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> extractRange() {
+		return tree.extractRange(from, to);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> deleteLoop() {
+		for (int key = from; key < to; key++) {
+			tree.delete(key);
+		}
+		return tree;
+	}
+}
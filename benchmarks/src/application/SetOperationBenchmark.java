@@ -0,0 +1,102 @@
+package application;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * compares the join based set operations with inserting or deleting the
+ * values of the smaller tree one at a time. the operations empty their
+ * argument, so both trees are rebuilt before every call
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class SetOperationBenchmark {
+	@Param({ "1000000" })
+	private int size;
+
+	@Param({ "1000", "100000", "1000000" })
+	private int otherSize;
+
+	private Integer[] keys;
+	private Integer[] otherKeys;
+	private RedBlackTree<Integer> tree;
+	private RedBlackTree<Integer> other;
+
+	/**
+	 * random keys from a range twice the larger size, so about half the
+	 * values of the smaller tree are in the larger one
+	 */
+	@Setup
+	public void setUp() {
+		int[] stream = KeyStream.RANDOM.generate(2 * size, size, 42);
+		int[] otherStream = KeyStream.RANDOM.generate(2 * size, otherSize, 7);
+
+		keys = new Integer[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = stream[i];
+		}
+		otherKeys = new Integer[otherSize];
+		for (int i = 0; i < otherSize; i++) {
+			otherKeys[i] = otherStream[i];
+		}
+	}
+
+	@Setup(Level.Invocation)
+	public void build() {
+		tree = new RedBlackTree<Integer>(keys);
+		other = new RedBlackTree<Integer>(otherKeys);
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> union() {
+		tree.union(other);
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> insertLoop() {
+		for (Integer key : other) {
+			tree.insert(key);
+		}
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> intersection() {
+		tree.intersection(other);
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> difference() {
+		tree.difference(other);
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<Integer> deleteLoop() {
+		for (Integer key : other) {
+			tree.delete(key);
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,111 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * write throughput of {@link ShardedRedBlackTree} against a single
+ * {@link ConcurrentRedBlackTree} and ConcurrentSkipListSet. every operation
+ * is an insert or a delete of a random key so the size stays about the same
+ * and throughput per thread count shows how writes scale
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms4g", "-Xmx4g" })
+public class ShardedTreeBenchmark {
+	@Param({ "1000000" })
+	private int size;
+
+	@Param({ "64" })
+	private int shards;
+
+	@Param({ "SHARDED", "SINGLE", "SKIP_LIST" })
+	private String impl;
+
+	private ShardedRedBlackTree<Integer> sharded;
+	private ConcurrentRedBlackTree<Integer> single;
+	private ConcurrentSkipListSet<Integer> skipList;
+
+	@Setup
+	public void setUp() {
+		Random random = new Random(42);
+		List<Integer> sample = new ArrayList<Integer>();
+		for (int i = 0; i < 16 * shards; i++) {
+			sample.add(random.nextInt(size));
+		}
+
+		sharded = new ShardedRedBlackTree<Integer>(shards, sample);
+		single = new ConcurrentRedBlackTree<Integer>();
+		skipList = new ConcurrentSkipListSet<Integer>();
+		for (int i = 0; i < size; i += 2) {
+			if (impl.equals("SHARDED")) {
+				sharded.add(i);
+			} else if (impl.equals("SINGLE")) {
+				single.add(i);
+			} else {
+				skipList.add(i);
+			}
+		}
+	}
+
+	private boolean operation() {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		Integer key = random.nextInt(size);
+		boolean insert = random.nextBoolean();
+
+		if (impl.equals("SHARDED")) {
+			return insert ? sharded.add(key) : sharded.delete(key);
+		} else if (impl.equals("SINGLE")) {
+			return insert ? single.add(key) : single.delete(key);
+		} else {
+			return insert ? skipList.add(key) : skipList.remove(key);
+		}
+	}
+
+	@Benchmark
+	@Threads(1)
+	public boolean threads1() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public boolean threads4() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public boolean threads16() {
+		return operation();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public boolean threads64() {
+		return operation();
+	}
+}
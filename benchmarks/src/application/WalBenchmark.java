@@ -0,0 +1,87 @@
+package application;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * logged insert/delete throughput of {@link DurableRedBlackTree} under each
+ * sync policy. the log lives in the default temp directory, so numbers
+ * depend on the disk behind it
+ *
+ * @author Alex
+ *
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+public class WalBenchmark {
+	@Param({ "100000" })
+	private int size;
+
+	@Param({ "EVERY_OPERATION", "GROUP", "NONE" })
+	private String policy;
+
+	private Path directory;
+	private DurableRedBlackTree<Integer> tree;
+
+	@Setup
+	public void setUp() throws IOException {
+		SyncPolicy sync;
+		if (policy.equals("EVERY_OPERATION")) {
+			sync = SyncPolicy.everyOperation();
+		} else if (policy.equals("GROUP")) {
+			sync = SyncPolicy.group(10, 1000);
+		} else {
+			sync = SyncPolicy.none();
+		}
+
+		directory = Files.createTempDirectory("wal");
+		tree = DurableRedBlackTree.open(directory, KeyCodec.INTEGER, sync);
+		for (int i = 0; i < size; i += 2) {
+			tree.add(i);
+		}
+		tree.checkpoint();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		tree.close();
+		try (Stream<Path> files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Files.delete(file);
+			}
+		}
+		Files.delete(directory);
+	}
+
+	/**
+	 * one logged write: a random key is added if missing, deleted if
+	 * present, so every call writes a record and the size stays about the
+	 * same
+	 */
+	@Benchmark
+	public boolean write() throws IOException {
+		Integer key = ThreadLocalRandom.current().nextInt(size);
+		return tree.add(key) || tree.delete(key);
+	}
+}
@@ -0,0 +1,374 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * red black tree that can be shared between threads. insert and delete take
+ * the write lock for the whole update including rebalancing. find, size and
+ * range reads first run without locking under an optimistic stamp and only
+ * take the read lock if a writer got in the way
+ *
+ * an optimistic read can see a tree in the middle of a rotation, so those
+ * walks are bounded and any exception is treated as a failed validation
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public class ConcurrentRedBlackTree<E extends Comparable<E>> {
+	/**
+	 * longest path a red black tree with int sized counts can have
+	 */
+	private static final int MAX_HEIGHT = 64;
+
+	private final RedBlackTree<E> tree;
+	private final StampedLock lock = new StampedLock();
+
+	/**
+	 * default constructor
+	 */
+	public ConcurrentRedBlackTree() {
+		this.tree = new RedBlackTree<E>();
+	}
+
+	/**
+	 * constructs shared tree around an existing tree. the tree must not be
+	 * used directly afterwards
+	 *
+	 * @param tree
+	 *            tree to guard
+	 */
+	public ConcurrentRedBlackTree(RedBlackTree<E> tree) {
+		this.tree = tree;
+	}
+
+	/**
+	 * adds data if it is not there yet
+	 *
+	 * @param data
+	 *            value to add
+	 * @return true if the value was added
+	 */
+	public boolean add(E data) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.add(data);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * deletes data
+	 *
+	 * @param data
+	 *            value to delete
+	 * @return true if the value was in the tree
+	 */
+	public boolean delete(E data) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.delete(data);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * adds a batch under one write lock
+	 *
+	 * @param batch
+	 *            values to add
+	 * @return number of values added
+	 */
+	public int insertAll(Collection<? extends E> batch) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.insertAll(batch);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * deletes a batch under one write lock
+	 *
+	 * @param batch
+	 *            values to delete
+	 * @return number of values deleted
+	 */
+	public int deleteAll(Collection<? extends E> batch) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.deleteAll(batch);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * deletes the values in [from, to) under one write lock, with two
+	 * splits and a join instead of a delete per value
+	 *
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return number of values deleted
+	 * @throws IllegalArgumentException
+	 *             if from is above to
+	 */
+	public int removeRange(E from, E to) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.removeRange(from, to);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * counters of the work done on the tree. optimistic reads that fail
+	 * validation are counted too. height and black height are measured under
+	 * the read lock
+	 *
+	 * @return stats of the underlying tree
+	 */
+	public TreeStats stats() {
+		long stamp = lock.writeLock();
+		try {
+			TreeStats stats = tree.stats();
+			stats.measure(this::height, this::blackHeight, this::size);
+			return stats;
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * walks the whole tree under the read lock
+	 *
+	 * @return height, 0 if empty
+	 */
+	public int height() {
+		long stamp = lock.readLock();
+		try {
+			return tree.height();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * black height under the read lock
+	 *
+	 * @return black height, 0 if empty
+	 */
+	public int blackHeight() {
+		long stamp = lock.readLock();
+		try {
+			return tree.blackHeight();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * checks if value is in tree
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			int found = optimisticFind(data);
+			if (found >= 0 && lock.validate(stamp)) {
+				return found == 1;
+			}
+		}
+
+		stamp = lock.readLock();
+		try {
+			return tree.find(data);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * number of values in the tree
+	 *
+	 * @return size
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.root.size;
+		if (stamp != 0 && lock.validate(stamp)) {
+			return size;
+		}
+
+		stamp = lock.readLock();
+		try {
+			return tree.size();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * copies the values in [from, to) in ascending order
+	 *
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return values in range
+	 * @throws IllegalArgumentException
+	 *             if from is above to
+	 */
+	public List<E> range(E from, E to) {
+		if (tree.compare(from, to) > 0) {
+			throw new IllegalArgumentException("from > to");
+		}
+
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			List<E> values = optimisticRange(from, to);
+			if (values != null && lock.validate(stamp)) {
+				return values;
+			}
+		}
+
+		stamp = lock.readLock();
+		try {
+			return new ArrayList<E>(tree.subSet(from, true, to, false));
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * copies every value in ascending order under the read lock
+	 *
+	 * @return values
+	 */
+	public List<E> toList() {
+		long stamp = lock.readLock();
+		try {
+			return new ArrayList<E>(tree);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * takes a point-in-time view. the write lock is held only to start the
+	 * snapshot, the view is then read without any locking while writers go
+	 * on
+	 *
+	 * @return read-only view
+	 */
+	public TreeSnapshot<E> snapshot() {
+		long stamp = lock.writeLock();
+		try {
+			return tree.snapshot();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * searches without locking
+	 *
+	 * @param data
+	 *            value to search
+	 * @return 1 if found, 0 if not, -1 if the walk ran into a torn tree
+	 */
+	private int optimisticFind(E data) {
+		try {
+			RBNode<E> nil = tree.nil;
+			RBNode<E> current = tree.root;
+
+			for (int steps = 0; current != nil; steps++) {
+				if (steps > MAX_HEIGHT) {
+					return -1;
+				}
+				int cmp = tree.compare(data, current.getData());
+				if (cmp == 0) {
+					return 1;
+				}
+				current = cmp < 0 ? current.left : current.right;
+			}
+			return 0;
+		} catch (RuntimeException e) {
+			return -1;
+		}
+	}
+
+	/**
+	 * copies a range without locking. every pointer followed is charged to
+	 * a budget large enough for any consistent tree
+	 *
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return values or null if the walk ran into a torn tree
+	 */
+	private List<E> optimisticRange(E from, E to) {
+		try {
+			RBNode<E> nil = tree.nil;
+			RBNode<E> current = tree.root;
+			RBNode<E> best = null;
+			long budget = 3L * Math.max(tree.root.size, 0) + 4 * MAX_HEIGHT;
+			ArrayList<E> values = new ArrayList<E>();
+
+			while (current != nil) {
+				if (--budget < 0) {
+					return null;
+				}
+				if (tree.compare(from, current.getData()) <= 0) {
+					best = current;
+					current = current.left;
+				} else {
+					current = current.right;
+				}
+			}
+
+			current = best;
+			while (current != null && tree.compare(current.getData(), to) < 0) {
+				values.add(current.getData());
+
+				if (current.right != nil) {
+					current = current.right;
+					while (current.left != nil) {
+						if (--budget < 0) {
+							return null;
+						}
+						current = current.left;
+					}
+				} else {
+					while (current.parent != null && current.parent.right == current) {
+						if (--budget < 0) {
+							return null;
+						}
+						current = current.parent;
+					}
+					current = current.parent;
+				}
+				if (--budget < 0) {
+					return null;
+				}
+			}
+			return values;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,155 @@
+package application;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * red black tree kept in a directory as a binary image plus a write-ahead
+ * log. every insert and delete is logged before it is applied, and opening
+ * the directory loads the image and replays the log on top of it
+ *
+ * replaying is safe even if a crash came between writing a new image and
+ * emptying the log: an insert or delete sets the state of its key no matter
+ * what the state was, so the last record for each key wins either way
+ *
+ * not thread safe
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public class DurableRedBlackTree<E extends Comparable<E>> implements Closeable {
+	private static final String IMAGE = "tree.rbt";
+	private static final String LOG = "tree.wal";
+
+	private final Path directory;
+	private final KeyCodec<E> codec;
+	private final RedBlackTree<E> tree;
+	private final WriteAheadLog<E> log;
+
+	private DurableRedBlackTree(Path directory, KeyCodec<E> codec, RedBlackTree<E> tree, WriteAheadLog<E> log) {
+		this.directory = directory;
+		this.codec = codec;
+		this.tree = tree;
+		this.log = log;
+	}
+
+	/**
+	 * opens a tree, recovering whatever the last run left. a record cut
+	 * short by a crash is dropped from the log
+	 *
+	 * @param directory
+	 *            directory holding the image and log, created if missing
+	 * @param codec
+	 *            key codec
+	 * @param policy
+	 *            when to force log records
+	 * @return tree
+	 * @throws IOException
+	 *             if the files cannot be read
+	 */
+	public static <E extends Comparable<E>> DurableRedBlackTree<E> open(Path directory, KeyCodec<E> codec,
+			SyncPolicy policy) throws IOException {
+		Files.createDirectories(directory);
+
+		Path image = directory.resolve(IMAGE);
+		RedBlackTree<E> tree = Files.exists(image) ? RedBlackTree.load(image, codec) : new RedBlackTree<E>();
+		Path path = directory.resolve(LOG);
+		long valid = WriteAheadLog.replay(path, codec, tree);
+
+		return new DurableRedBlackTree<E>(directory, codec, tree, new WriteAheadLog<E>(path, codec, policy, valid));
+	}
+
+	/**
+	 * logs and adds data if it is not there yet
+	 *
+	 * @param data
+	 *            value to add
+	 * @return true if the value was added
+	 * @throws IOException
+	 *             if logging fails, the tree is then left unchanged
+	 */
+	public boolean add(E data) throws IOException {
+		if (tree.find(data)) {
+			return false;
+		}
+		log.append(WriteAheadLog.INSERT, data);
+		return tree.add(data);
+	}
+
+	/**
+	 * logs and deletes data
+	 *
+	 * @param data
+	 *            value to delete
+	 * @return true if the value was in the tree
+	 * @throws IOException
+	 *             if logging fails, the tree is then left unchanged
+	 */
+	public boolean delete(E data) throws IOException {
+		if (!tree.find(data)) {
+			return false;
+		}
+		log.append(WriteAheadLog.DELETE, data);
+		return tree.delete(data);
+	}
+
+	/**
+	 * checks if value is in tree
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		return tree.find(data);
+	}
+
+	/**
+	 * number of values in the tree
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return tree.size();
+	}
+
+	/**
+	 * read-only point-in-time view
+	 *
+	 * @return view
+	 */
+	public TreeSnapshot<E> snapshot() {
+		return tree.snapshot();
+	}
+
+	/**
+	 * forces every logged operation to disk regardless of the policy
+	 *
+	 * @throws IOException
+	 *             if forcing fails
+	 */
+	public void sync() throws IOException {
+		log.sync();
+	}
+
+	/**
+	 * writes a new image and empties the log, bounding recovery time
+	 *
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void checkpoint() throws IOException {
+		log.sync();
+		tree.writeTo(directory.resolve(IMAGE), codec);
+		log.reset();
+	}
+
+	@Override
+	public void close() throws IOException {
+		log.close();
+	}
+}
@@ -0,0 +1,214 @@
+package application;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * read-only sorted index in one array, laid out in eytzinger order: the
+ * root at 1 and the children of slot k at 2k and 2k + 1. a search touches
+ * one slot per level like a tree walk, but the first levels of every search
+ * share a few cache lines and there are no links to follow
+ *
+ * the search loop only computes the next slot from the comparison, the
+ * answer is recovered from the bits of the final slot afterwards, so there
+ * is no early exit for the branch predictor to guess
+ *
+ * built with {@link RedBlackTree#freeze()} or {@link TreeSnapshot#freeze()},
+ * and kept up to date in the background by {@link FrozenIndexRefresher}
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public final class FrozenIndex<E extends Comparable<E>> {
+	private final Object[] keys;
+	private final long[] numbers;
+	private final int size;
+	private final Comparator<? super E> comparator;
+
+	/**
+	 * constructs index
+	 *
+	 * @param sorted
+	 *            values in ascending order
+	 * @param size
+	 *            number of values
+	 * @param comparator
+	 *            ordering of the values, null for natural order
+	 */
+	FrozenIndex(Iterator<? extends E> sorted, int size, Comparator<? super E> comparator) {
+		this.keys = new Object[size + 1];
+		this.size = size;
+		this.comparator = comparator;
+		fill(sorted, 1);
+		this.numbers = numbers();
+	}
+
+	/**
+	 * copies the values to a long array if they are all Integer or all Long
+	 * and in natural order
+	 *
+	 * @return copy or null
+	 */
+	private long[] numbers() {
+		if (comparator != null || size == 0) {
+			return null;
+		}
+		Class<?> type = keys[1].getClass();
+		if (type != Integer.class && type != Long.class) {
+			return null;
+		}
+
+		long[] copy = new long[size + 1];
+		for (int k = 1; k <= size; k++) {
+			if (keys[k].getClass() != type) {
+				return null;
+			}
+			copy[k] = ((Number) keys[k]).longValue();
+		}
+		return copy;
+	}
+
+	/**
+	 * places values in the order an inorder walk of the implicit tree visits
+	 * the slots
+	 *
+	 * @param sorted
+	 *            values in ascending order
+	 * @param k
+	 *            slot of the subtree root
+	 */
+	private void fill(Iterator<? extends E> sorted, int k) {
+		if (k <= size) {
+			fill(sorted, 2 * k);
+			keys[k] = sorted.next();
+			fill(sorted, 2 * k + 1);
+		}
+	}
+
+	/**
+	 * checks if value is in the index
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		int k = lowerBound(data);
+		if (numbers != null) {
+			return k != 0 && numbers[k] == ((Number) data).longValue();
+		}
+		return k != 0 && compare(key(k), data) == 0;
+	}
+
+	/**
+	 * smallest value at or above data
+	 *
+	 * @param data
+	 *            bound
+	 * @return value or null if there is none
+	 */
+	public E ceiling(E data) {
+		int k = lowerBound(data);
+		return k == 0 ? null : key(k);
+	}
+
+	/**
+	 * largest value at or below data
+	 *
+	 * @param data
+	 *            bound
+	 * @return value or null if there is none
+	 */
+	public E floor(E data) {
+		int k = 1;
+		if (numbers != null) {
+			long value = ((Number) data).longValue();
+			while (k <= size) {
+				k = (k << 1) | (numbers[k] <= value ? 1 : 0);
+			}
+		} else {
+			while (k <= size) {
+				k = (k << 1) | (compare(key(k), data) <= 0 ? 1 : 0);
+			}
+		}
+		// the last right turn is the floor
+		k >>>= Integer.numberOfTrailingZeros(k) + 1;
+		return k == 0 ? null : key(k);
+	}
+
+	/**
+	 * smallest value
+	 *
+	 * @return first value
+	 */
+	public E first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return key(Integer.highestOneBit(size));
+	}
+
+	/**
+	 * largest value
+	 *
+	 * @return last value
+	 */
+	public E last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		int k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		return key(k);
+	}
+
+	/**
+	 * number of values in the index
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	/**
+	 * finds the slot of the smallest value at or above data
+	 *
+	 * @param data
+	 *            bound
+	 * @return slot, 0 if every value is below data
+	 */
+	private int lowerBound(E data) {
+		int k = 1;
+		if (numbers != null) {
+			long value = ((Number) data).longValue();
+			while (k <= size) {
+				k = (k << 1) | (numbers[k] < value ? 1 : 0);
+			}
+		} else {
+			while (k <= size) {
+				k = (k << 1) | (compare(key(k), data) < 0 ? 1 : 0);
+			}
+		}
+		// the last left turn is the lower bound
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+
+	@SuppressWarnings("unchecked")
+	private E key(int k) {
+		return (E) keys[k];
+	}
+
+	private int compare(E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+}
@@ -0,0 +1,189 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * keeps a {@link FrozenIndex} of a shared tree for readers, rebuilt in the
+ * background and swapped in with one volatile write. readers always see a
+ * whole index, the old one until the new one is done
+ *
+ * a rebuild holds the tree lock only to take a snapshot and builds the index
+ * from the snapshot while writers go on. refresh requests that arrive during
+ * a rebuild are folded into one more rebuild after it
+ *
+ * the refresher keeps the previous snapshot and its values in order. a
+ * rebuild diffs the new snapshot against the previous one, which only walks
+ * the paths the tree copied, and merges the changes into the sorted values
+ * with one array copy per run of unchanged values. only the eytzinger layout
+ * is redone in full. when more than one value in twenty changed the
+ * sorted values are read from the new snapshot instead
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public final class FrozenIndexRefresher<E extends Comparable<E>> {
+	/**
+	 * a merge is tried while at most 1 / MERGE_RATIO of the values changed
+	 */
+	private static final int MERGE_RATIO = 20;
+
+	private final ConcurrentRedBlackTree<E> tree;
+	private final Executor executor;
+	private final AtomicInteger requests = new AtomicInteger();
+	private volatile FrozenIndex<E> current;
+	private TreeSnapshot<E> snapshot;
+	private Object[] sorted;
+
+	/**
+	 * constructs refresher and builds the first index on the calling thread
+	 *
+	 * @param tree
+	 *            tree to index
+	 * @param executor
+	 *            runs the rebuilds
+	 */
+	public FrozenIndexRefresher(ConcurrentRedBlackTree<E> tree, Executor executor) {
+		this.tree = tree;
+		this.executor = executor;
+		this.snapshot = tree.snapshot();
+		this.sorted = snapshot.toArray();
+		this.current = index();
+	}
+
+	/**
+	 * latest index, possibly missing the changes made since it was built
+	 *
+	 * @return frozen index
+	 */
+	public FrozenIndex<E> current() {
+		return current;
+	}
+
+	/**
+	 * asks for a rebuild. returns at once, the index is swapped when the
+	 * rebuild finishes
+	 */
+	public void refresh() {
+		if (requests.getAndIncrement() == 0) {
+			executor.execute(this::rebuild);
+		}
+	}
+
+	/**
+	 * rebuilds until no request came in during the last build
+	 */
+	private void rebuild() {
+		try {
+			int seen;
+			do {
+				seen = requests.get();
+				update(tree.snapshot());
+				current = index();
+			} while (!requests.compareAndSet(seen, 0));
+		} catch (RuntimeException | Error e) {
+			// let the next request start over
+			requests.set(0);
+			throw e;
+		}
+	}
+
+	/**
+	 * brings the sorted values up to a newer snapshot
+	 *
+	 * @param next
+	 *            newer snapshot
+	 */
+	private void update(TreeSnapshot<E> next) {
+		List<E> added = new ArrayList<E>();
+		List<E> removed = new ArrayList<E>();
+
+		if (snapshot.diff(next, added, removed, next.size() / MERGE_RATIO)) {
+			sorted = merge(sorted, added, removed, next.comparator());
+		} else {
+			sorted = next.toArray();
+		}
+		snapshot = next;
+	}
+
+	/**
+	 * merges sorted changes into sorted values, copying the runs between
+	 * changes whole
+	 *
+	 * @param sorted
+	 *            values in ascending order
+	 * @param added
+	 *            values to add in ascending order, none of them in sorted
+	 * @param removed
+	 *            values to drop in ascending order, all of them in sorted
+	 * @param comparator
+	 *            ordering, null for natural order
+	 * @return merged values
+	 */
+	static <E extends Comparable<E>> Object[] merge(Object[] sorted, List<E> added, List<E> removed,
+			Comparator<? super E> comparator) {
+		if (added.isEmpty() && removed.isEmpty()) {
+			return sorted;
+		}
+
+		Object[] merged = new Object[sorted.length + added.size() - removed.size()];
+		int from = 0;
+		int to = 0;
+		int a = 0;
+		int r = 0;
+
+		while (a < added.size() || r < removed.size()) {
+			boolean add = r == removed.size()
+					|| (a < added.size() && compare(added.get(a), removed.get(r), comparator) < 0);
+			E value = add ? added.get(a++) : removed.get(r++);
+
+			int at = lowerBound(sorted, from, value, comparator);
+			System.arraycopy(sorted, from, merged, to, at - from);
+			to += at - from;
+			from = at;
+			if (add) {
+				merged[to++] = value;
+			} else {
+				from++;
+			}
+		}
+		System.arraycopy(sorted, from, merged, to, sorted.length - from);
+		return merged;
+	}
+
+	/**
+	 * first position at or after from whose value is not below value
+	 */
+	@SuppressWarnings("unchecked")
+	private static <E extends Comparable<E>> int lowerBound(Object[] sorted, int from, E value,
+			Comparator<? super E> comparator) {
+		int lo = from;
+		int hi = sorted.length;
+		while (lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if (compare((E) sorted[mid], value, comparator) < 0) {
+				lo = mid + 1;
+			} else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	private static <E extends Comparable<E>> int compare(E a, E b, Comparator<? super E> comparator) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	@SuppressWarnings("unchecked")
+	private FrozenIndex<E> index() {
+		Iterator<E> values = (Iterator<E>) (Iterator<?>) Arrays.asList(sorted).iterator();
+		return new FrozenIndex<E>(values, sorted.length, snapshot.comparator());
+	}
+}
@@ -0,0 +1,139 @@
+package application;
+
+import java.util.NoSuchElementException;
+
+/**
+ * {@link FrozenIndex} for int keys, built with
+ * {@link IntRedBlackTree#freeze()}. the keys sit in an int array, so the
+ * comparison in the search loop is a plain int compare the JIT turns into
+ * a conditional move and the loop runs without branching on the data
+ *
+ * @author Alex
+ *
+ */
+public final class FrozenIntIndex {
+	private final int[] keys;
+	private final int size;
+
+	/**
+	 * constructs index
+	 *
+	 * @param sorted
+	 *            keys in ascending order
+	 */
+	FrozenIntIndex(int[] sorted) {
+		this.size = sorted.length;
+		this.keys = new int[size + 1];
+		fill(sorted, 1, 0);
+	}
+
+	/**
+	 * places keys in the order an inorder walk of the implicit tree visits
+	 * the slots
+	 *
+	 * @param sorted
+	 *            keys in ascending order
+	 * @param k
+	 *            slot of the subtree root
+	 * @param next
+	 *            index of the next key to place
+	 * @return index of the next key after the subtree
+	 */
+	private int fill(int[] sorted, int k, int next) {
+		if (k > size) {
+			return next;
+		}
+		int after = fill(sorted, 2 * k, next);
+		keys[k] = sorted[after];
+		return fill(sorted, 2 * k + 1, after + 1);
+	}
+
+	/**
+	 * checks if key is in the index
+	 *
+	 * @param key
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(int key) {
+		int k = lowerBound(key);
+		return k != 0 && keys[k] == key;
+	}
+
+	/**
+	 * smallest key at or above key
+	 *
+	 * @param key
+	 *            bound
+	 * @param absent
+	 *            returned if there is none
+	 * @return key or absent
+	 */
+	public int ceiling(int key, int absent) {
+		int k = lowerBound(key);
+		return k == 0 ? absent : keys[k];
+	}
+
+	/**
+	 * largest key at or below key
+	 *
+	 * @param key
+	 *            bound
+	 * @param absent
+	 *            returned if there is none
+	 * @return key or absent
+	 */
+	public int floor(int key, int absent) {
+		int k = 1;
+		while (k <= size) {
+			k = (k << 1) | (keys[k] <= key ? 1 : 0);
+		}
+		k >>>= Integer.numberOfTrailingZeros(k) + 1;
+		return k == 0 ? absent : keys[k];
+	}
+
+	/**
+	 * smallest key
+	 *
+	 * @return first key
+	 */
+	public int first() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		return keys[Integer.highestOneBit(size)];
+	}
+
+	/**
+	 * largest key
+	 *
+	 * @return last key
+	 */
+	public int last() {
+		if (size == 0) {
+			throw new NoSuchElementException();
+		}
+		int k = 1;
+		while (2 * k + 1 <= size) {
+			k = 2 * k + 1;
+		}
+		return keys[k];
+	}
+
+	/**
+	 * number of keys in the index
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	private int lowerBound(int key) {
+		int k = 1;
+		while (k <= size) {
+			k = (k << 1) | (keys[k] < key ? 1 : 0);
+		}
+		return k >>> (Integer.numberOfTrailingZeros(~k) + 1);
+	}
+}
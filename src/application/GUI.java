@@ -85,11 +85,10 @@ public class GUI {
 							view.displayTree();
 							view.setStatus("Invalid Input");
 						} else {
-							if (rb.find(value)) {
+							if (!rb.add(value)) {
 								view.displayTree();
 								view.setStatus(value + " is already in the tree...");
 							} else {
-								rb.insert(value);
 								view.displayTree();
 								tf.clear();
 								view.setStatus(value + " has been inserted in the tree...");
@@ -182,7 +181,7 @@ public class GUI {
 				displayTree(node.right, x + hGap, y + vGap, hGap / 2);
 			}
 
-			if (node.color == "R") {
+			if (node.color == RBNode.RED) {
 				Circle circle = new Circle(x, y, radius);
 				circle.setFill(Color.RED);
 				circle.setStroke(Color.BLACK);
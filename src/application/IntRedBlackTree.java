@@ -0,0 +1,572 @@
+package application;
+
+import java.util.Arrays;
+
+/**
+ * red black tree specialized for int keys
+ *
+ * nodes are slots in parallel arrays instead of objects, links are slot
+ * indices and slot 0 is the nil sentinel. deleted slots are chained into a
+ * free list through the left array and reused by later inserts
+ *
+ * there are no parent links. insert and delete remember the path they
+ * walked down in a reused array and rebalance along it, so a slot costs a
+ * key, two links and a color byte
+ *
+ * @author Alex
+ *
+ */
+public class IntRedBlackTree {
+	private static final byte RED = 0;
+	private static final byte BLACK = 1;
+	private static final int NIL = 0;
+	private static final int MAX_HEIGHT = 64;
+	private static final int DEFAULT_CAPACITY = 16;
+
+	private int[] keys;
+	private byte[] colors;
+	private int[] left;
+	private int[] right;
+	private final int[] path = new int[MAX_HEIGHT + 2];
+
+	private int root = NIL;
+	private int size;
+	private int next = 1;
+	private int free = NIL;
+
+	/**
+	 * default constructor
+	 */
+	public IntRedBlackTree() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * constructs tree with room for a number of keys
+	 *
+	 * @param capacity
+	 *            expected number of keys
+	 */
+	public IntRedBlackTree(int capacity) {
+		int slots = Math.max(capacity, 1) + 1;
+		keys = new int[slots];
+		colors = new byte[slots];
+		left = new int[slots];
+		right = new int[slots];
+		colors[NIL] = BLACK;
+	}
+
+	/**
+	 * constructs tree using array
+	 *
+	 * @param rb
+	 *            array of values
+	 */
+	public IntRedBlackTree(int[] rb) {
+		this(rb.length);
+		for (int i = 0; i < rb.length; i++) {
+			insert(rb[i]);
+		}
+	}
+
+	/**
+	 * adds key to the tree
+	 *
+	 * @param key
+	 *            value to add
+	 * @return false if key was already present
+	 */
+	public boolean insert(int key) {
+		int current = root;
+		int depth = 0;
+
+		while (current != NIL) {
+			path[depth++] = current;
+			if (key < keys[current]) {
+				current = left[current];
+			} else if (key > keys[current]) {
+				current = right[current];
+			} else {
+				return false;
+			}
+		}
+
+		int node = allocate(key);
+		path[depth] = node;
+
+		if (depth == 0) {
+			root = node;
+		} else if (key < keys[path[depth - 1]]) {
+			left[path[depth - 1]] = node;
+		} else {
+			right[path[depth - 1]] = node;
+		}
+		size++;
+
+		insertionCleanup(depth);
+		return true;
+	}
+
+	/**
+	 * fixes violations when adding to tree
+	 *
+	 * @param depth
+	 *            position of the added slot on the path
+	 */
+	private void insertionCleanup(int depth) {
+		// a red parent is never the root, so the grandparent is on the path
+		while (depth > 1 && colors[path[depth - 1]] == RED) {
+			int node = path[depth];
+			int p = path[depth - 1];
+			int g = path[depth - 2];
+
+			if (p == left[g]) {
+				int uncle = right[g];
+				if (colors[uncle] == RED) {
+					colors[p] = BLACK;
+					colors[uncle] = BLACK;
+					colors[g] = RED;
+					depth -= 2;
+				} else {
+					if (node == right[p]) {
+						leftRotate(p, g);
+						p = node;
+					}
+					colors[p] = BLACK;
+					colors[g] = RED;
+					rightRotate(g, above(depth - 2));
+					break;
+				}
+			} else {
+				int uncle = left[g];
+				if (colors[uncle] == RED) {
+					colors[p] = BLACK;
+					colors[uncle] = BLACK;
+					colors[g] = RED;
+					depth -= 2;
+				} else {
+					if (node == left[p]) {
+						rightRotate(p, g);
+						p = node;
+					}
+					colors[p] = BLACK;
+					colors[g] = RED;
+					leftRotate(g, above(depth - 2));
+					break;
+				}
+			}
+		}
+		colors[root] = BLACK;
+	}
+
+	/**
+	 * removes key from the tree
+	 *
+	 * @param key
+	 *            value to delete
+	 * @return false if key was not present
+	 */
+	public boolean delete(int key) {
+		int node = root;
+		int depth = 0;
+
+		while (node != NIL && key != keys[node]) {
+			path[depth++] = node;
+			node = key < keys[node] ? left[node] : right[node];
+		}
+		if (node == NIL) {
+			return false;
+		}
+
+		// a slot with two children takes its predecessor's key, and the
+		// predecessor, which has no right child, is unlinked instead
+		int removed = node;
+		if (left[node] != NIL && right[node] != NIL) {
+			path[depth++] = node;
+			removed = left[node];
+			while (right[removed] != NIL) {
+				path[depth++] = removed;
+				removed = right[removed];
+			}
+			keys[node] = keys[removed];
+		}
+
+		int child = left[removed] != NIL ? left[removed] : right[removed];
+		int p = above(depth);
+		boolean isLeft = p != NIL && left[p] == removed;
+		replace(p, removed, child);
+
+		if (colors[removed] == BLACK) {
+			fixDoubleBlack(child, depth, isLeft);
+		}
+		release(removed);
+		size--;
+		return true;
+	}
+
+	/**
+	 * fixes violations when deleting
+	 *
+	 * @param node
+	 *            slot carrying the extra black, may be nil
+	 * @param depth
+	 *            position of the slot on the path, the entries above it are
+	 *            its ancestors
+	 * @param isLeft
+	 *            whether the slot is the left child of its parent, needed
+	 *            when it is nil
+	 */
+	private void fixDoubleBlack(int node, int depth, boolean isLeft) {
+		while (depth > 0 && colors[node] == BLACK) {
+			int p = path[depth - 1];
+
+			if (isLeft) {
+				int sibling = right[p];
+				if (colors[sibling] == RED) {
+					colors[sibling] = BLACK;
+					colors[p] = RED;
+					leftRotate(p, above(depth - 1));
+					// the sibling moved in above the parent
+					path[depth - 1] = sibling;
+					path[depth++] = p;
+					sibling = right[p];
+				}
+				if (colors[left[sibling]] == BLACK && colors[right[sibling]] == BLACK) {
+					colors[sibling] = RED;
+					node = p;
+				} else {
+					if (colors[right[sibling]] == BLACK) {
+						colors[left[sibling]] = BLACK;
+						colors[sibling] = RED;
+						rightRotate(sibling, p);
+						sibling = right[p];
+					}
+					colors[sibling] = colors[p];
+					colors[p] = BLACK;
+					colors[right[sibling]] = BLACK;
+					leftRotate(p, above(depth - 1));
+					return;
+				}
+			} else {
+				int sibling = left[p];
+				if (colors[sibling] == RED) {
+					colors[sibling] = BLACK;
+					colors[p] = RED;
+					rightRotate(p, above(depth - 1));
+					path[depth - 1] = sibling;
+					path[depth++] = p;
+					sibling = left[p];
+				}
+				if (colors[left[sibling]] == BLACK && colors[right[sibling]] == BLACK) {
+					colors[sibling] = RED;
+					node = p;
+				} else {
+					if (colors[left[sibling]] == BLACK) {
+						colors[right[sibling]] = BLACK;
+						colors[sibling] = RED;
+						leftRotate(sibling, p);
+						sibling = left[p];
+					}
+					colors[sibling] = colors[p];
+					colors[p] = BLACK;
+					colors[left[sibling]] = BLACK;
+					rightRotate(p, above(depth - 1));
+					return;
+				}
+			}
+
+			depth--;
+			isLeft = depth > 0 && left[path[depth - 1]] == node;
+		}
+		if (node != NIL) {
+			colors[node] = BLACK;
+		}
+	}
+
+	/**
+	 * parent of the slot at a position on the path
+	 *
+	 * @param depth
+	 *            position on the path
+	 * @return slot above it, nil at the root
+	 */
+	private int above(int depth) {
+		return depth == 0 ? NIL : path[depth - 1];
+	}
+
+	/**
+	 * points the link that led to a slot at another slot
+	 *
+	 * @param p
+	 *            parent of the slot, nil at the root
+	 * @param node
+	 *            slot being replaced
+	 * @param with
+	 *            replacement slot, may be nil
+	 */
+	private void replace(int p, int node, int with) {
+		if (p == NIL) {
+			root = with;
+		} else if (node == left[p]) {
+			left[p] = with;
+		} else {
+			right[p] = with;
+		}
+	}
+
+	/**
+	 * rotates section of the tree left
+	 *
+	 * @param node
+	 *            pivot
+	 * @param p
+	 *            parent of the pivot, nil at the root
+	 */
+	private void leftRotate(int node, int p) {
+		int temp = right[node];
+
+		right[node] = left[temp];
+		left[temp] = node;
+		replace(p, node, temp);
+	}
+
+	/**
+	 * rotates section of tree right
+	 *
+	 * @param node
+	 *            pivot
+	 * @param p
+	 *            parent of the pivot, nil at the root
+	 */
+	private void rightRotate(int node, int p) {
+		int temp = left[node];
+
+		left[node] = right[temp];
+		right[temp] = node;
+		replace(p, node, temp);
+	}
+
+	/**
+	 * takes a slot from the free list or the end of the arrays
+	 *
+	 * @param key
+	 *            value stored in the slot
+	 * @return slot index
+	 */
+	private int allocate(int key) {
+		int node;
+
+		if (free != NIL) {
+			node = free;
+			free = left[node];
+		} else {
+			if (next == keys.length) {
+				grow();
+			}
+			node = next++;
+		}
+
+		keys[node] = key;
+		colors[node] = RED;
+		left[node] = NIL;
+		right[node] = NIL;
+		return node;
+	}
+
+	/**
+	 * puts a slot on the free list
+	 *
+	 * @param node
+	 *            slot no longer in the tree
+	 */
+	private void release(int node) {
+		left[node] = free;
+		right[node] = NIL;
+		free = node;
+	}
+
+	/**
+	 * grows the slot arrays by half
+	 */
+	private void grow() {
+		int capacity = keys.length + (keys.length >> 1) + 1;
+		keys = Arrays.copyOf(keys, capacity);
+		colors = Arrays.copyOf(colors, capacity);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+	}
+
+	/**
+	 * finds slot holding a key
+	 *
+	 * @param key
+	 *            value to look for
+	 * @return slot index or nil
+	 */
+	private int search(int key) {
+		int current = root;
+
+		while (current != NIL) {
+			if (key < keys[current]) {
+				current = left[current];
+			} else if (key > keys[current]) {
+				current = right[current];
+			} else {
+				return current;
+			}
+		}
+		return NIL;
+	}
+
+	/**
+	 * checks if value is in tree
+	 *
+	 * @param key
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(int key) {
+		return search(key) != NIL;
+	}
+
+	/**
+	 * number of keys in the tree
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * checks if tree is empty
+	 *
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return root == NIL;
+	}
+
+	/**
+	 * copies the keys into a read-only array index that searches faster than
+	 * the tree. later changes to the tree do not show in the index
+	 *
+	 * @return frozen index
+	 */
+	public FrozenIntIndex freeze() {
+		return new FrozenIntIndex(inorder());
+	}
+
+	/**
+	 * creates an array of keys using preorder traversal
+	 *
+	 * @return keys in preorder
+	 */
+	public int[] preorder() {
+		int[] sorted = new int[size];
+		int[] stack = new int[MAX_HEIGHT + 1];
+		int top = 0;
+		int count = 0;
+
+		if (root != NIL) {
+			stack[top++] = root;
+		}
+		while (top > 0) {
+			int current = stack[--top];
+			sorted[count++] = keys[current];
+
+			if (right[current] != NIL) {
+				stack[top++] = right[current];
+			}
+			if (left[current] != NIL) {
+				stack[top++] = left[current];
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * creates an array of keys using inorder traversal
+	 *
+	 * @return keys in ascending order
+	 */
+	public int[] inorder() {
+		int[] sorted = new int[size];
+		int[] stack = new int[MAX_HEIGHT];
+		int top = 0;
+		int count = 0;
+		int current = root;
+
+		while (top > 0 || current != NIL) {
+			if (current != NIL) {
+				stack[top++] = current;
+				current = left[current];
+			} else {
+				current = stack[--top];
+				sorted[count++] = keys[current];
+				current = right[current];
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * creates an array of keys using postorder traversal
+	 *
+	 * @return keys in postorder
+	 */
+	public int[] postorder() {
+		int[] sorted = new int[size];
+		int[] stack = new int[MAX_HEIGHT];
+		int top = 0;
+		int count = 0;
+		int current = root;
+		int last = NIL;
+
+		while (top > 0 || current != NIL) {
+			if (current != NIL) {
+				stack[top++] = current;
+				current = left[current];
+			} else {
+				int peek = stack[top - 1];
+				if (right[peek] != NIL && right[peek] != last) {
+					current = right[peek];
+				} else {
+					sorted[count++] = keys[peek];
+					last = stack[--top];
+				}
+			}
+		}
+		return sorted;
+	}
+
+	/**
+	 * creates an array of keys using breadthfirst traversal
+	 *
+	 * @return keys level by level
+	 */
+	public int[] breadthfirst() {
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+
+		if (root != NIL) {
+			queue[tail++] = root;
+		}
+		while (head < tail) {
+			int current = queue[head++];
+
+			if (left[current] != NIL) {
+				queue[tail++] = left[current];
+			}
+			if (right[current] != NIL) {
+				queue[tail++] = right[current];
+			}
+		}
+
+		for (int i = 0; i < tail; i++) {
+			queue[i] = keys[queue[i]];
+		}
+		return queue;
+	}
+}
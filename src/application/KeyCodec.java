@@ -0,0 +1,130 @@
+package application;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * turns keys into bytes and back for tree images. the tag is written into
+ * the image header so an image is never read back with a different codec
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            key type
+ */
+public interface KeyCodec<E> {
+	/**
+	 * fixed width big-endian ints
+	 */
+	KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+		@Override
+		public int tag() {
+			return 1;
+		}
+
+		@Override
+		public int size(Integer key) {
+			return Integer.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer out, Integer key) {
+			out.putInt(key);
+		}
+
+		@Override
+		public Integer read(ByteBuffer in) {
+			return in.getInt();
+		}
+	};
+
+	/**
+	 * fixed width big-endian longs
+	 */
+	KeyCodec<Long> LONG = new KeyCodec<Long>() {
+		@Override
+		public int tag() {
+			return 2;
+		}
+
+		@Override
+		public int size(Long key) {
+			return Long.BYTES;
+		}
+
+		@Override
+		public void write(ByteBuffer out, Long key) {
+			out.putLong(key);
+		}
+
+		@Override
+		public Long read(ByteBuffer in) {
+			return in.getLong();
+		}
+	};
+
+	/**
+	 * length prefixed UTF-8
+	 */
+	KeyCodec<String> STRING = new KeyCodec<String>() {
+		@Override
+		public int tag() {
+			return 3;
+		}
+
+		@Override
+		public int size(String key) {
+			return Integer.BYTES + key.getBytes(StandardCharsets.UTF_8).length;
+		}
+
+		@Override
+		public void write(ByteBuffer out, String key) {
+			byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+			out.putInt(bytes.length);
+			out.put(bytes);
+		}
+
+		@Override
+		public String read(ByteBuffer in) {
+			byte[] bytes = new byte[in.getInt()];
+			in.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	};
+
+	/**
+	 * identifies the codec in image headers, custom codecs should pick
+	 * values above 255
+	 *
+	 * @return tag
+	 */
+	int tag();
+
+	/**
+	 * number of bytes {@link #write} will use for a key
+	 *
+	 * @param key
+	 *            key
+	 * @return encoded size
+	 */
+	int size(E key);
+
+	/**
+	 * encodes a key at the position of a buffer
+	 *
+	 * @param out
+	 *            buffer with at least {@link #size} bytes remaining
+	 * @param key
+	 *            key
+	 */
+	void write(ByteBuffer out, E key);
+
+	/**
+	 * decodes a key at the position of a buffer
+	 *
+	 * @param in
+	 *            buffer
+	 * @return key
+	 */
+	E read(ByteBuffer in);
+}
@@ -0,0 +1,126 @@
+package application;
+
+/**
+ * nodes deleted from a red black tree kept for later inserts to reuse. the
+ * free nodes are chained through their left link, so the pool itself never
+ * allocates
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public final class NodePool<E extends Comparable<E>> {
+	private final int capacity;
+	private RBNode<E> head;
+	private int size;
+	private long hits;
+	private long misses;
+	private long dropped;
+
+	/**
+	 * constructs empty pool
+	 *
+	 * @param capacity
+	 *            most nodes kept
+	 */
+	NodePool(int capacity) {
+		this.capacity = capacity;
+	}
+
+	/**
+	 * takes a free node, or makes one if there is none
+	 *
+	 * @param data
+	 *            value of the node
+	 * @return red node with no links
+	 */
+	RBNode<E> take(E data) {
+		RBNode<E> node = head;
+
+		if (node == null) {
+			misses++;
+			return new RBNode<E>(data, RBNode.RED);
+		}
+		head = node.left;
+		size--;
+		hits++;
+
+		node.setData(data);
+		node.color = RBNode.RED;
+		node.size = 1;
+		node.left = null;
+		return node;
+	}
+
+	/**
+	 * takes back a node that is no longer reachable from the tree or any
+	 * snapshot. its value is cleared so the pool keeps nothing alive
+	 *
+	 * @param node
+	 *            unlinked node
+	 */
+	void give(RBNode<E> node) {
+		if (size == capacity) {
+			dropped++;
+			return;
+		}
+		node.setData(null);
+		node.parent = null;
+		node.right = null;
+		node.left = head;
+		head = node;
+		size++;
+	}
+
+	/**
+	 * free nodes held
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * most free nodes held
+	 *
+	 * @return capacity
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * inserts that reused a node
+	 *
+	 * @return hits
+	 */
+	public long hits() {
+		return hits;
+	}
+
+	/**
+	 * inserts that had to allocate
+	 *
+	 * @return misses
+	 */
+	public long misses() {
+		return misses;
+	}
+
+	/**
+	 * deleted nodes not kept because the pool was full
+	 *
+	 * @return dropped nodes
+	 */
+	public long dropped() {
+		return dropped;
+	}
+
+	@Override
+	public String toString() {
+		return "NodePool[size=" + size + "/" + capacity + ", hits=" + hits + ", misses=" + misses + ", dropped="
+				+ dropped + "]";
+	}
+}
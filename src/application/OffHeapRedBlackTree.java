@@ -0,0 +1,670 @@
+package application;
+
+import java.io.Closeable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * red black tree of long keys stored outside the java heap, so a tree of
+ * hundreds of millions of keys adds nothing for the garbage collector to
+ * trace. int keys fit as longs
+ *
+ * nodes are fixed size records in direct buffers. a node is named by a 32
+ * bit slot number, slot 0 is the nil sentinel, and links are slot numbers.
+ * slots live in chunks of {@link #CHUNK_SLOTS} so growing never copies and
+ * no single buffer hits the 2GB limit. deleted slots are chained into a free
+ * list through the left link
+ *
+ * <pre>
+ * long key    offset 0
+ * int  left   offset 8
+ * int  right  offset 12
+ * int  parent offset 16
+ * byte color  offset 20
+ * </pre>
+ *
+ * the memory is freed by {@link #close()}, after which the tree can not be
+ * used
+ *
+ * @author Alex
+ *
+ */
+public class OffHeapRedBlackTree implements Closeable {
+	private static final byte RED = 0;
+	private static final byte BLACK = 1;
+	private static final int NIL = 0;
+
+	private static final int NODE_BYTES = 24;
+	private static final int KEY = 0;
+	private static final int LEFT = 8;
+	private static final int RIGHT = 12;
+	private static final int PARENT = 16;
+	private static final int COLOR = 20;
+
+	private static final int CHUNK_SHIFT = 16;
+	private static final int CHUNK_SLOTS = 1 << CHUNK_SHIFT;
+	private static final int CHUNK_MASK = CHUNK_SLOTS - 1;
+
+	private ByteBuffer[] chunks = new ByteBuffer[0];
+	private int capacity;
+	private int root = NIL;
+	private int size;
+	private int next = 1;
+	private int free = NIL;
+
+	/**
+	 * default constructor
+	 */
+	public OffHeapRedBlackTree() {
+		grow();
+		setColor(NIL, BLACK);
+	}
+
+	/**
+	 * adds key to the tree
+	 *
+	 * @param key
+	 *            value to add
+	 * @return false if key was already present
+	 */
+	public boolean insert(long key) {
+		ensureOpen();
+
+		int current = root;
+		int point = NIL;
+
+		while (current != NIL) {
+			point = current;
+			long k = key(current);
+			if (key < k) {
+				current = left(current);
+			} else if (key > k) {
+				current = right(current);
+			} else {
+				return false;
+			}
+		}
+
+		int node = allocate(key);
+		setParent(node, point);
+
+		if (point == NIL) {
+			root = node;
+		} else if (key < key(point)) {
+			setLeft(point, node);
+		} else {
+			setRight(point, node);
+		}
+		size++;
+
+		insertionCleanup(node);
+		return true;
+	}
+
+	/**
+	 * fixes violations when adding to tree
+	 *
+	 * @param node
+	 *            slot that was added
+	 */
+	private void insertionCleanup(int node) {
+		while (color(parent(node)) == RED) {
+			int p = parent(node);
+			int g = parent(p);
+
+			if (p == left(g)) {
+				int uncle = right(g);
+				if (color(uncle) == RED) {
+					setColor(p, BLACK);
+					setColor(uncle, BLACK);
+					setColor(g, RED);
+					node = g;
+				} else {
+					if (node == right(p)) {
+						node = p;
+						leftRotate(node);
+						p = parent(node);
+					}
+					setColor(p, BLACK);
+					setColor(g, RED);
+					rightRotate(g);
+				}
+			} else {
+				int uncle = left(g);
+				if (color(uncle) == RED) {
+					setColor(p, BLACK);
+					setColor(uncle, BLACK);
+					setColor(g, RED);
+					node = g;
+				} else {
+					if (node == left(p)) {
+						node = p;
+						rightRotate(node);
+						p = parent(node);
+					}
+					setColor(p, BLACK);
+					setColor(g, RED);
+					leftRotate(g);
+				}
+			}
+		}
+		setColor(root, BLACK);
+	}
+
+	/**
+	 * removes key from the tree
+	 *
+	 * @param key
+	 *            value to delete
+	 * @return false if key was not present
+	 */
+	public boolean delete(long key) {
+		ensureOpen();
+
+		int node = search(key);
+
+		if (node == NIL) {
+			return false;
+		}
+
+		int removed = node;
+		byte removedColor = color(removed);
+		int child;
+
+		if (left(node) == NIL) {
+			child = right(node);
+			transplant(node, child);
+		} else if (right(node) == NIL) {
+			child = left(node);
+			transplant(node, child);
+		} else {
+			removed = left(node);
+			while (right(removed) != NIL) {
+				removed = right(removed);
+			}
+			removedColor = color(removed);
+			child = left(removed);
+
+			if (parent(removed) == node) {
+				setParent(child, removed);
+			} else {
+				transplant(removed, child);
+				setLeft(removed, left(node));
+				setParent(left(removed), removed);
+			}
+			transplant(node, removed);
+			setRight(removed, right(node));
+			setParent(right(removed), removed);
+			setColor(removed, color(node));
+		}
+
+		if (removedColor == BLACK) {
+			fixDoubleBlack(child);
+		}
+		release(node);
+		size--;
+		return true;
+	}
+
+	/**
+	 * fixes violations when deleting
+	 *
+	 * @param node
+	 *            slot carrying the extra black
+	 */
+	private void fixDoubleBlack(int node) {
+		while (node != root && color(node) == BLACK) {
+			int p = parent(node);
+
+			if (node == left(p)) {
+				int sibling = right(p);
+				if (color(sibling) == RED) {
+					setColor(sibling, BLACK);
+					setColor(p, RED);
+					leftRotate(p);
+					sibling = right(p);
+				}
+				if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+					setColor(sibling, RED);
+					node = p;
+				} else {
+					if (color(right(sibling)) == BLACK) {
+						setColor(left(sibling), BLACK);
+						setColor(sibling, RED);
+						rightRotate(sibling);
+						sibling = right(p);
+					}
+					setColor(sibling, color(p));
+					setColor(p, BLACK);
+					setColor(right(sibling), BLACK);
+					leftRotate(p);
+					node = root;
+				}
+			} else {
+				int sibling = left(p);
+				if (color(sibling) == RED) {
+					setColor(sibling, BLACK);
+					setColor(p, RED);
+					rightRotate(p);
+					sibling = left(p);
+				}
+				if (color(left(sibling)) == BLACK && color(right(sibling)) == BLACK) {
+					setColor(sibling, RED);
+					node = p;
+				} else {
+					if (color(left(sibling)) == BLACK) {
+						setColor(right(sibling), BLACK);
+						setColor(sibling, RED);
+						leftRotate(sibling);
+						sibling = left(p);
+					}
+					setColor(sibling, color(p));
+					setColor(p, BLACK);
+					setColor(left(sibling), BLACK);
+					rightRotate(p);
+					node = root;
+				}
+			}
+		}
+		setColor(node, BLACK);
+	}
+
+	/**
+	 * replaces subtree rooted at one slot with another
+	 *
+	 * @param node
+	 *            slot being replaced
+	 * @param with
+	 *            replacement slot, may be nil
+	 */
+	private void transplant(int node, int with) {
+		int p = parent(node);
+
+		if (p == NIL) {
+			root = with;
+		} else if (node == left(p)) {
+			setLeft(p, with);
+		} else {
+			setRight(p, with);
+		}
+		setParent(with, p);
+	}
+
+	/**
+	 * rotates section of the tree left
+	 *
+	 * @param node
+	 *            pivot
+	 */
+	private void leftRotate(int node) {
+		int temp = right(node);
+
+		setRight(node, left(temp));
+		if (left(temp) != NIL) {
+			setParent(left(temp), node);
+		}
+
+		transplant(node, temp);
+		setLeft(temp, node);
+		setParent(node, temp);
+	}
+
+	/**
+	 * rotates section of tree right
+	 *
+	 * @param node
+	 *            pivot
+	 */
+	private void rightRotate(int node) {
+		int temp = left(node);
+
+		setLeft(node, right(temp));
+		if (right(temp) != NIL) {
+			setParent(right(temp), node);
+		}
+
+		transplant(node, temp);
+		setRight(temp, node);
+		setParent(node, temp);
+	}
+
+	/**
+	 * finds slot holding a key
+	 *
+	 * @param key
+	 *            value to look for
+	 * @return slot index or nil
+	 */
+	private int search(long key) {
+		int current = root;
+
+		while (current != NIL) {
+			long k = key(current);
+			if (key < k) {
+				current = left(current);
+			} else if (key > k) {
+				current = right(current);
+			} else {
+				return current;
+			}
+		}
+		return NIL;
+	}
+
+	/**
+	 * checks if value is in tree
+	 *
+	 * @param key
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(long key) {
+		ensureOpen();
+		return search(key) != NIL;
+	}
+
+	/**
+	 * number of keys in the tree
+	 *
+	 * @return size
+	 */
+	public int size() {
+		ensureOpen();
+		return size;
+	}
+
+	/**
+	 * checks if tree is empty
+	 *
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		ensureOpen();
+		return root == NIL;
+	}
+
+	/**
+	 * bytes of off-heap memory held, including free slots
+	 *
+	 * @return reserved bytes
+	 */
+	public long reservedBytes() {
+		ensureOpen();
+		return (long) capacity * NODE_BYTES;
+	}
+
+	/**
+	 * iterates keys in ascending order by following parent links, nothing
+	 * is allocated per key
+	 *
+	 * @return iterator
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		ensureOpen();
+
+		return new PrimitiveIterator.OfLong() {
+			private int next = leftmost(root);
+
+			@Override
+			public boolean hasNext() {
+				ensureOpen();
+				return next != NIL;
+			}
+
+			@Override
+			public long nextLong() {
+				ensureOpen();
+				if (next == NIL) {
+					throw new NoSuchElementException();
+				}
+
+				int current = next;
+				if (right(current) != NIL) {
+					next = leftmost(right(current));
+				} else {
+					int child = current;
+					next = parent(current);
+					while (next != NIL && child == right(next)) {
+						child = next;
+						next = parent(next);
+					}
+				}
+				return key(current);
+			}
+		};
+	}
+
+	/**
+	 * creates an array of keys in ascending order
+	 *
+	 * @return keys in ascending order
+	 */
+	public long[] inorder() {
+		long[] sorted = new long[size];
+		PrimitiveIterator.OfLong keys = iterator();
+
+		for (int i = 0; i < sorted.length; i++) {
+			sorted[i] = keys.nextLong();
+		}
+		return sorted;
+	}
+
+	/**
+	 * checks the red black invariants: black root and nil, no red child of
+	 * a red node, the same number of black nodes on every path, keys in
+	 * order, parent links that match the child links, and a node count
+	 * equal to size
+	 *
+	 * @return black height, 0 if empty
+	 * @throws IllegalStateException
+	 *             if an invariant is broken or the tree is closed
+	 */
+	int blackHeight() {
+		ensureOpen();
+		if (color(NIL) != BLACK || color(root) != BLACK || (root != NIL && parent(root) != NIL)) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		int[] count = new int[1];
+		int height = blackHeight(root, Long.MIN_VALUE, Long.MAX_VALUE, count);
+		if (count[0] != size) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		return height;
+	}
+
+	/**
+	 * checks a subtree whose keys lie in [lo, hi] and adds its nodes to
+	 * count[0]
+	 *
+	 * @return black height of the subtree
+	 */
+	private int blackHeight(int node, long lo, long hi, int[] count) {
+		if (node == NIL) {
+			return 0;
+		}
+		long key = key(node);
+		int left = left(node);
+		int right = right(node);
+		if (key < lo || key > hi || (color(node) == RED && (color(left) == RED || color(right) == RED))
+				|| (left != NIL && parent(left) != node) || (right != NIL && parent(right) != node)) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		count[0]++;
+
+		int height = blackHeight(left, lo, key - 1, count);
+		if (height != blackHeight(right, key + 1, hi, count)) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		return height + (color(node) == BLACK ? 1 : 0);
+	}
+
+	/**
+	 * frees the off-heap memory. the buffers are released right away where
+	 * the runtime allows it, otherwise when they are collected
+	 */
+	@Override
+	public void close() {
+		ByteBuffer[] released = chunks;
+
+		chunks = null;
+		root = NIL;
+		size = 0;
+		if (released != null) {
+			for (ByteBuffer chunk : released) {
+				Cleaner.free(chunk);
+			}
+		}
+	}
+
+	private void ensureOpen() {
+		if (chunks == null) {
+			throw new IllegalStateException("tree is closed");
+		}
+	}
+
+	private int leftmost(int node) {
+		if (node == NIL) {
+			return NIL;
+		}
+		while (left(node) != NIL) {
+			node = left(node);
+		}
+		return node;
+	}
+
+	/**
+	 * takes a slot from the free list or the end of the chunks
+	 *
+	 * @param key
+	 *            value stored in the slot
+	 * @return slot index
+	 */
+	private int allocate(long key) {
+		int node;
+
+		if (free != NIL) {
+			node = free;
+			free = left(node);
+		} else {
+			if (next == capacity) {
+				grow();
+			}
+			node = next++;
+		}
+
+		ByteBuffer chunk = chunks[node >>> CHUNK_SHIFT];
+		int offset = (node & CHUNK_MASK) * NODE_BYTES;
+		chunk.putLong(offset + KEY, key);
+		chunk.putInt(offset + LEFT, NIL);
+		chunk.putInt(offset + RIGHT, NIL);
+		chunk.put(offset + COLOR, RED);
+		return node;
+	}
+
+	/**
+	 * puts a slot on the free list
+	 *
+	 * @param node
+	 *            slot no longer in the tree
+	 */
+	private void release(int node) {
+		setLeft(node, free);
+		setRight(node, NIL);
+		setParent(node, NIL);
+		free = node;
+	}
+
+	/**
+	 * adds a chunk, existing chunks stay where they are
+	 *
+	 * @throws IllegalStateException
+	 *             if every 32 bit slot is taken
+	 */
+	private void grow() {
+		if (chunks.length == (1 << (31 - CHUNK_SHIFT))) {
+			throw new IllegalStateException("tree is full");
+		}
+		chunks = Arrays.copyOf(chunks, chunks.length + 1);
+		chunks[chunks.length - 1] = ByteBuffer.allocateDirect(CHUNK_SLOTS * NODE_BYTES).order(ByteOrder.nativeOrder());
+		capacity += CHUNK_SLOTS;
+	}
+
+	private long key(int node) {
+		return chunks[node >>> CHUNK_SHIFT].getLong((node & CHUNK_MASK) * NODE_BYTES + KEY);
+	}
+
+	private int left(int node) {
+		return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * NODE_BYTES + LEFT);
+	}
+
+	private int right(int node) {
+		return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * NODE_BYTES + RIGHT);
+	}
+
+	private int parent(int node) {
+		return chunks[node >>> CHUNK_SHIFT].getInt((node & CHUNK_MASK) * NODE_BYTES + PARENT);
+	}
+
+	private byte color(int node) {
+		return chunks[node >>> CHUNK_SHIFT].get((node & CHUNK_MASK) * NODE_BYTES + COLOR);
+	}
+
+	private void setLeft(int node, int link) {
+		chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * NODE_BYTES + LEFT, link);
+	}
+
+	private void setRight(int node, int link) {
+		chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * NODE_BYTES + RIGHT, link);
+	}
+
+	private void setParent(int node, int link) {
+		chunks[node >>> CHUNK_SHIFT].putInt((node & CHUNK_MASK) * NODE_BYTES + PARENT, link);
+	}
+
+	private void setColor(int node, byte color) {
+		chunks[node >>> CHUNK_SHIFT].put((node & CHUNK_MASK) * NODE_BYTES + COLOR, color);
+	}
+
+	/**
+	 * frees direct buffers through the cleaner hook the JDK exposes in
+	 * sun.misc.Unsafe. if the hook is missing buffers are left to the
+	 * garbage collector
+	 */
+	private static final class Cleaner {
+		private static final Object UNSAFE;
+		private static final Method INVOKE_CLEANER;
+
+		static {
+			Object unsafe = null;
+			Method invokeCleaner = null;
+			try {
+				Class<?> type = Class.forName("sun.misc.Unsafe");
+				Field field = type.getDeclaredField("theUnsafe");
+				field.setAccessible(true);
+				unsafe = field.get(null);
+				invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				unsafe = null;
+				invokeCleaner = null;
+			}
+			UNSAFE = unsafe;
+			INVOKE_CLEANER = invokeCleaner;
+		}
+
+		static void free(ByteBuffer buffer) {
+			if (INVOKE_CLEANER == null) {
+				return;
+			}
+			try {
+				INVOKE_CLEANER.invoke(UNSAFE, buffer);
+			} catch (ReflectiveOperationException | RuntimeException e) {
+				// left to the garbage collector
+			}
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package application;
+
+import java.util.Set;
+
+/**
+ * set kept in sorted order, the part of the {@link RedBlackTree} API every
+ * engine from {@link TreeEngine} supports
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public interface OrderedSet<E extends Comparable<E>> extends Set<E> {
+	/**
+	 * deletes value
+	 *
+	 * @param data
+	 *            value to delete
+	 * @return true if the value was in the set
+	 */
+	boolean delete(E data);
+
+	/**
+	 * checks if value is in the set
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	boolean find(E data);
+
+	/**
+	 * smallest value
+	 *
+	 * @return first value
+	 * @throws java.util.NoSuchElementException
+	 *             if the set is empty
+	 */
+	E first();
+
+	/**
+	 * largest value
+	 *
+	 * @return last value
+	 * @throws java.util.NoSuchElementException
+	 *             if the set is empty
+	 */
+	E last();
+
+	/**
+	 * largest value at or below data
+	 *
+	 * @param data
+	 *            bound
+	 * @return value or null if there is none
+	 */
+	E floor(E data);
+
+	/**
+	 * smallest value at or above data
+	 *
+	 * @param data
+	 *            bound
+	 * @return value or null if there is none
+	 */
+	E ceiling(E data);
+}
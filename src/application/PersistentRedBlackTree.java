@@ -0,0 +1,469 @@
+package application;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * persistent red black tree. nodes are immutable and have no parent pointer,
+ * so insert and delete copy only the nodes on the search path (plus a few
+ * siblings when rebalancing) and share everything else with the previous
+ * version. the current version is published through an AtomicReference,
+ * readers take a version and use it without any locking, and versions no
+ * one holds any more are left to the garbage collector
+ *
+ * insert follows Okasaki's balance and delete follows Kahrs' functional
+ * deletion, writers retry with compare-and-set if another writer won
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public class PersistentRedBlackTree<E extends Comparable<E>> implements Iterable<E> {
+	private static final int MAX_HEIGHT = 64;
+
+	private final Comparator<? super E> comparator;
+	private final AtomicReference<Version<E>> current;
+
+	/**
+	 * default constructor
+	 */
+	public PersistentRedBlackTree() {
+		this(null);
+	}
+
+	/**
+	 * constructs tree ordered by a comparator
+	 *
+	 * @param comparator
+	 *            ordering, null for natural order
+	 */
+	public PersistentRedBlackTree(Comparator<? super E> comparator) {
+		this.comparator = comparator;
+		this.current = new AtomicReference<Version<E>>(new Version<E>(null, comparator));
+	}
+
+	/**
+	 * immutable node
+	 */
+	private static final class Node<E> {
+		final byte color;
+		final Node<E> left;
+		final E data;
+		final Node<E> right;
+		final int size;
+
+		Node(byte color, Node<E> left, E data, Node<E> right) {
+			this.color = color;
+			this.left = left;
+			this.data = data;
+			this.right = right;
+			this.size = size(left) + size(right) + 1;
+		}
+	}
+
+	/**
+	 * read-only version of the tree, safe to use from any thread
+	 *
+	 * @param <E>
+	 *            generic data type
+	 */
+	public static final class Version<E extends Comparable<E>> implements Iterable<E> {
+		private final Node<E> root;
+		private final Comparator<? super E> comparator;
+
+		private Version(Node<E> root, Comparator<? super E> comparator) {
+			this.root = root;
+			this.comparator = comparator;
+		}
+
+		/**
+		 * checks if value is in this version
+		 *
+		 * @param data
+		 *            value to be checked
+		 * @return boolean if value is present
+		 */
+		public boolean find(E data) {
+			Node<E> node = root;
+
+			while (node != null) {
+				int cmp = comparator == null ? data.compareTo(node.data) : comparator.compare(data, node.data);
+				if (cmp == 0) {
+					return true;
+				}
+				node = cmp < 0 ? node.left : node.right;
+			}
+			return false;
+		}
+
+		/**
+		 * number of values in this version
+		 *
+		 * @return size
+		 */
+		public int size() {
+			return PersistentRedBlackTree.size(root);
+		}
+
+		/**
+		 * checks if this version is empty
+		 *
+		 * @return boolean
+		 */
+		public boolean isEmpty() {
+			return root == null;
+		}
+
+		/**
+		 * checks the red black invariants of this version: black root, no
+		 * red child of a red node, the same number of black nodes on every
+		 * path, values in order and sizes that add up
+		 *
+		 * @return black height, 0 if empty
+		 * @throws IllegalStateException
+		 *             if an invariant is broken
+		 */
+		int blackHeight() {
+			if (isRed(root)) {
+				throw new IllegalStateException("red black invariant broken");
+			}
+			return PersistentRedBlackTree.blackHeight(root, null, null, comparator);
+		}
+
+		/**
+		 * iterates values in ascending order
+		 */
+		@Override
+		public Iterator<E> iterator() {
+			return new Iterator<E>() {
+				@SuppressWarnings("unchecked")
+				private final Node<E>[] stack = (Node<E>[]) new Node<?>[MAX_HEIGHT];
+				private int top = pushLeft(root, 0);
+
+				private int pushLeft(Node<E> node, int top) {
+					while (node != null) {
+						stack[top++] = node;
+						node = node.left;
+					}
+					return top;
+				}
+
+				@Override
+				public boolean hasNext() {
+					return top > 0;
+				}
+
+				@Override
+				public E next() {
+					if (top == 0) {
+						throw new NoSuchElementException();
+					}
+					Node<E> node = stack[--top];
+					stack[top] = null;
+					top = pushLeft(node.right, top);
+					return node.data;
+				}
+			};
+		}
+	}
+
+	/**
+	 * current version, later changes to the tree do not affect it
+	 *
+	 * @return immutable version
+	 */
+	public Version<E> version() {
+		return current.get();
+	}
+
+	/**
+	 * adds data if it is not there yet
+	 *
+	 * @param data
+	 *            value to add
+	 * @return true if the value was added
+	 */
+	public boolean add(E data) {
+		while (true) {
+			Version<E> version = current.get();
+			Node<E> root = ins(version.root, data);
+
+			if (root == version.root) {
+				return false;
+			}
+			if (current.compareAndSet(version, new Version<E>(blacken(root), comparator))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * deletes data
+	 *
+	 * @param data
+	 *            value to delete
+	 * @return true if the value was in the tree
+	 */
+	public boolean delete(E data) {
+		while (true) {
+			Version<E> version = current.get();
+
+			if (!version.find(data)) {
+				return false;
+			}
+
+			Node<E> root = del(version.root, data);
+			if (current.compareAndSet(version, new Version<E>(root == null ? null : blacken(root), comparator))) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * checks if value is in the current version
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		return current.get().find(data);
+	}
+
+	/**
+	 * number of values in the current version
+	 *
+	 * @return size
+	 */
+	public int size() {
+		return current.get().size();
+	}
+
+	/**
+	 * checks if the current version is empty
+	 *
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return current.get().isEmpty();
+	}
+
+	/**
+	 * iterates the current version, later changes are not seen
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return current.get().iterator();
+	}
+
+	private int compare(E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * inserts below a node, returns the node itself if data is present
+	 */
+	private Node<E> ins(Node<E> node, E data) {
+		if (node == null) {
+			return new Node<E>(RBNode.RED, null, data, null);
+		}
+
+		int cmp = compare(data, node.data);
+		if (cmp == 0) {
+			return node;
+		}
+
+		if (cmp < 0) {
+			Node<E> left = ins(node.left, data);
+			if (left == node.left) {
+				return node;
+			}
+			return node.color == RBNode.BLACK ? balance(left, node.data, node.right)
+					: new Node<E>(RBNode.RED, left, node.data, node.right);
+		} else {
+			Node<E> right = ins(node.right, data);
+			if (right == node.right) {
+				return node;
+			}
+			return node.color == RBNode.BLACK ? balance(node.left, node.data, right)
+					: new Node<E>(RBNode.RED, node.left, node.data, right);
+		}
+	}
+
+	/**
+	 * deletes data, which must be present, below a node
+	 */
+	private Node<E> del(Node<E> node, E data) {
+		if (node == null) {
+			return null;
+		}
+
+		int cmp = compare(data, node.data);
+		if (cmp < 0) {
+			if (isBlackNode(node.left)) {
+				return balanceLeft(del(node.left, data), node.data, node.right);
+			}
+			return new Node<E>(RBNode.RED, del(node.left, data), node.data, node.right);
+		} else if (cmp > 0) {
+			if (isBlackNode(node.right)) {
+				return balanceRight(node.left, node.data, del(node.right, data));
+			}
+			return new Node<E>(RBNode.RED, node.left, node.data, del(node.right, data));
+		}
+		return append(node.left, node.right);
+	}
+
+	/**
+	 * builds a black node over two subtrees, fixing a red child with a red
+	 * child of its own
+	 */
+	private static <E> Node<E> balance(Node<E> l, E data, Node<E> r) {
+		if (isRed(l) && isRed(r)) {
+			return new Node<E>(RBNode.RED, blacken(l), data, blacken(r));
+		}
+		if (isRed(l)) {
+			if (isRed(l.left)) {
+				return new Node<E>(RBNode.RED, blacken(l.left), l.data, new Node<E>(RBNode.BLACK, l.right, data, r));
+			}
+			if (isRed(l.right)) {
+				return new Node<E>(RBNode.RED, new Node<E>(RBNode.BLACK, l.left, l.data, l.right.left), l.right.data,
+						new Node<E>(RBNode.BLACK, l.right.right, data, r));
+			}
+		}
+		if (isRed(r)) {
+			if (isRed(r.right)) {
+				return new Node<E>(RBNode.RED, new Node<E>(RBNode.BLACK, l, data, r.left), r.data, blacken(r.right));
+			}
+			if (isRed(r.left)) {
+				return new Node<E>(RBNode.RED, new Node<E>(RBNode.BLACK, l, data, r.left.left), r.left.data,
+						new Node<E>(RBNode.BLACK, r.left.right, r.data, r.right));
+			}
+		}
+		return new Node<E>(RBNode.BLACK, l, data, r);
+	}
+
+	/**
+	 * rebalances after the left subtree lost one black
+	 */
+	private static <E> Node<E> balanceLeft(Node<E> l, E data, Node<E> r) {
+		if (isRed(l)) {
+			return new Node<E>(RBNode.RED, blacken(l), data, r);
+		}
+		if (isBlackNode(r)) {
+			return balance(l, data, redden(r));
+		}
+		if (isRed(r) && isBlackNode(r.left)) {
+			return new Node<E>(RBNode.RED, new Node<E>(RBNode.BLACK, l, data, r.left.left), r.left.data,
+					balance(r.left.right, r.data, redden(r.right)));
+		}
+		throw new IllegalStateException("red black invariant broken");
+	}
+
+	/**
+	 * rebalances after the right subtree lost one black
+	 */
+	private static <E> Node<E> balanceRight(Node<E> l, E data, Node<E> r) {
+		if (isRed(r)) {
+			return new Node<E>(RBNode.RED, l, data, blacken(r));
+		}
+		if (isBlackNode(l)) {
+			return balance(redden(l), data, r);
+		}
+		if (isRed(l) && isBlackNode(l.right)) {
+			return new Node<E>(RBNode.RED, balance(redden(l.left), l.data, l.right.left), l.right.data,
+					new Node<E>(RBNode.BLACK, l.right.right, data, r));
+		}
+		throw new IllegalStateException("red black invariant broken");
+	}
+
+	/**
+	 * joins the two subtrees of a deleted node
+	 */
+	private static <E> Node<E> append(Node<E> l, Node<E> r) {
+		if (l == null) {
+			return r;
+		}
+		if (r == null) {
+			return l;
+		}
+
+		if (isRed(l) && isRed(r)) {
+			Node<E> middle = append(l.right, r.left);
+			if (isRed(middle)) {
+				return new Node<E>(RBNode.RED, new Node<E>(RBNode.RED, l.left, l.data, middle.left), middle.data,
+						new Node<E>(RBNode.RED, middle.right, r.data, r.right));
+			}
+			return new Node<E>(RBNode.RED, l.left, l.data, new Node<E>(RBNode.RED, middle, r.data, r.right));
+		}
+		if (!isRed(l) && !isRed(r)) {
+			Node<E> middle = append(l.right, r.left);
+			if (isRed(middle)) {
+				return new Node<E>(RBNode.RED, new Node<E>(RBNode.BLACK, l.left, l.data, middle.left), middle.data,
+						new Node<E>(RBNode.BLACK, middle.right, r.data, r.right));
+			}
+			return balanceLeft(l.left, l.data, new Node<E>(RBNode.BLACK, middle, r.data, r.right));
+		}
+		if (isRed(r)) {
+			return new Node<E>(RBNode.RED, append(l, r.left), r.data, r.right);
+		}
+		return new Node<E>(RBNode.RED, l.left, l.data, append(l.right, r));
+	}
+
+	private static boolean isRed(Node<?> node) {
+		return node != null && node.color == RBNode.RED;
+	}
+
+	private static boolean isBlackNode(Node<?> node) {
+		return node != null && node.color == RBNode.BLACK;
+	}
+
+	private static <E> Node<E> blacken(Node<E> node) {
+		return node.color == RBNode.BLACK ? node : new Node<E>(RBNode.BLACK, node.left, node.data, node.right);
+	}
+
+	/**
+	 * recolors a black node red, only valid where Kahrs' delete expects one
+	 */
+	private static <E> Node<E> redden(Node<E> node) {
+		if (!isBlackNode(node)) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		return new Node<E>(RBNode.RED, node.left, node.data, node.right);
+	}
+
+	/**
+	 * checks a subtree whose values lie strictly between lo and hi, null for
+	 * no bound
+	 *
+	 * @return black height of the subtree
+	 */
+	private static <E extends Comparable<E>> int blackHeight(Node<E> node, E lo, E hi,
+			Comparator<? super E> comparator) {
+		if (node == null) {
+			return 0;
+		}
+		if ((lo != null && compare(comparator, node.data, lo) <= 0)
+				|| (hi != null && compare(comparator, node.data, hi) >= 0)
+				|| (isRed(node) && (isRed(node.left) || isRed(node.right)))
+				|| node.size != size(node.left) + size(node.right) + 1) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+
+		int left = blackHeight(node.left, lo, node.data, comparator);
+		if (left != blackHeight(node.right, node.data, hi, comparator)) {
+			throw new IllegalStateException("red black invariant broken");
+		}
+		return left + (isBlackNode(node) ? 1 : 0);
+	}
+
+	private static <E extends Comparable<E>> int compare(Comparator<? super E> comparator, E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	private static int size(Node<?> node) {
+		return node == null ? 0 : node.size;
+	}
+}
@@ -0,0 +1,74 @@
+package application;
+
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * key/value pair stored as the data of a red black tree node. entries are
+ * ordered by key only, the value can change without moving the entry
+ *
+ * @author Alex
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+class RBEntry<K extends Comparable<K>, V> implements Map.Entry<K, V>, Comparable<RBEntry<K, V>> {
+	private final K key;
+	private V value;
+
+	/**
+	 * constructs entry
+	 *
+	 * @param key
+	 *            key
+	 * @param value
+	 *            value
+	 */
+	RBEntry(K key, V value) {
+		this.key = key;
+		this.value = value;
+	}
+
+	@Override
+	public K getKey() {
+		return key;
+	}
+
+	@Override
+	public V getValue() {
+		return value;
+	}
+
+	@Override
+	public V setValue(V value) {
+		V old = this.value;
+		this.value = value;
+		return old;
+	}
+
+	@Override
+	public int compareTo(RBEntry<K, V> o) {
+		return key.compareTo(o.key);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (!(o instanceof Map.Entry)) {
+			return false;
+		}
+		Map.Entry<?, ?> e = (Map.Entry<?, ?>) o;
+		return Objects.equals(key, e.getKey()) && Objects.equals(value, e.getValue());
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hashCode(key) ^ Objects.hashCode(value);
+	}
+
+	@Override
+	public String toString() {
+		return key + "=" + value;
+	}
+}
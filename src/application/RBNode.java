@@ -3,24 +3,33 @@ package application;
 /**
  * handles creating red black nodes
  * 
+ * the color is a byte, but with 8 byte object alignment a node is no
+ * smaller than it was with a String color, see RBNodeLayoutTest
+ * 
  * @author Alex
  *
  * @param <E>
  *            generic data type
  */
 public class RBNode<E extends Comparable<E>> implements Comparable<E> {
+	public static final byte RED = 0;
+	public static final byte BLACK = 1;
+
 	private E data;
-	protected String color;
+	protected byte color;
+	protected int size;
+	protected int epoch;
 	protected RBNode<E> parent;
 	protected RBNode<E> left;
 	protected RBNode<E> right;
 
 	/**
-	 * default constructor
+	 * default constructor, size stays 0 so the nil sentinel counts as an
+	 * empty subtree
 	 */
 	public RBNode() {
 		this.data = null;
-		this.color = "B";
+		this.color = BLACK;
 	}
 
 	/**
@@ -29,11 +38,12 @@ public class RBNode<E extends Comparable<E>> implements Comparable<E> {
 	 * @param data
 	 *            value
 	 * @param color
-	 *            color of node
+	 *            color of node, {@link #RED} or {@link #BLACK}
 	 */
-	public RBNode(E data, String color) {
+	public RBNode(E data, byte color) {
 		this.data = data;
 		this.color = color;
+		this.size = 1;
 	}
 
 	/**
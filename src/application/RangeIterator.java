@@ -0,0 +1,87 @@
+package application;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * iterates the nodes from a start node up to, not including, a fence node in
+ * either direction. nothing outside the range is visited
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+class RangeIterator<E extends Comparable<E>> implements Iterator<E> {
+	private final RedBlackTree<E> tree;
+	private RBNode<E> fence;
+	private final boolean ascending;
+	private RBNode<E> next;
+	private RBNode<E> lastReturned;
+
+	/**
+	 * constructs iterator
+	 *
+	 * @param tree
+	 *            tree to iterate
+	 * @param first
+	 *            first node, null for an empty range
+	 * @param fence
+	 *            first node past the range, null for the end of the tree
+	 * @param ascending
+	 *            direction
+	 */
+	RangeIterator(RedBlackTree<E> tree, RBNode<E> first, RBNode<E> fence, boolean ascending) {
+		this.tree = tree;
+		this.fence = fence;
+		this.ascending = ascending;
+		this.next = first == fence ? null : first;
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public E next() {
+		RBNode<E> current = next;
+
+		if (current == null) {
+			throw new NoSuchElementException();
+		}
+
+		next = ascending ? TreeIterator.successor(current, tree.nil) : tree.predecessor(current);
+		if (next == fence) {
+			next = null;
+		}
+		lastReturned = current;
+		return current.getData();
+	}
+
+	/**
+	 * deletes the last value returned. the next node can leave the tree
+	 * while its value stays: going down, a node with two children takes its
+	 * predecessor's value, and after a snapshot any node may be copied. such
+	 * a node, or fence, is looked up again by value. the values are read
+	 * first because a deleted node may go back to the node pool cleared
+	 */
+	@Override
+	public void remove() {
+		if (lastReturned == null) {
+			throw new IllegalStateException();
+		}
+
+		E resume = next == null ? null : next.getData();
+		E bound = fence == null ? null : fence.getData();
+		tree.delete(lastReturned);
+		lastReturned = null;
+
+		if (next != null && !tree.linked(next)) {
+			next = tree.search(resume);
+		}
+		if (fence != null && !tree.linked(fence)) {
+			fence = tree.search(bound);
+		}
+	}
+}
@@ -0,0 +1,322 @@
+package application;
+
+import java.util.AbstractSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * view of the values of a red black tree between two bounds, in either
+ * direction. bounds are kept in ascending terms, the view only flips how
+ * they are read. changes go straight through to the tree
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+class RangeSet<E extends Comparable<E>> extends AbstractSet<E> implements NavigableSet<E> {
+	private final RedBlackTree<E> tree;
+	private final boolean fromStart;
+	private final E lo;
+	private final boolean loInclusive;
+	private final boolean toEnd;
+	private final E hi;
+	private final boolean hiInclusive;
+	private final boolean descending;
+
+	/**
+	 * constructs view
+	 *
+	 * @param tree
+	 *            backing tree
+	 * @param fromStart
+	 *            true if there is no lower bound
+	 * @param lo
+	 *            lower bound
+	 * @param loInclusive
+	 *            true if lo itself is in the range
+	 * @param toEnd
+	 *            true if there is no upper bound
+	 * @param hi
+	 *            upper bound
+	 * @param hiInclusive
+	 *            true if hi itself is in the range
+	 * @param descending
+	 *            true to read the range from the top
+	 * @throws IllegalArgumentException
+	 *             if lo is above hi
+	 */
+	RangeSet(RedBlackTree<E> tree, boolean fromStart, E lo, boolean loInclusive, boolean toEnd, E hi,
+			boolean hiInclusive, boolean descending) {
+		if (!fromStart && !toEnd && tree.compare(lo, hi) > 0) {
+			throw new IllegalArgumentException("fromKey > toKey");
+		}
+		this.tree = tree;
+		this.fromStart = fromStart;
+		this.lo = lo;
+		this.loInclusive = loInclusive;
+		this.toEnd = toEnd;
+		this.hi = hi;
+		this.hiInclusive = hiInclusive;
+		this.descending = descending;
+	}
+
+	private boolean tooLow(E data) {
+		if (fromStart) {
+			return false;
+		}
+		int cmp = tree.compare(data, lo);
+		return cmp < 0 || (cmp == 0 && !loInclusive);
+	}
+
+	private boolean tooHigh(E data) {
+		if (toEnd) {
+			return false;
+		}
+		int cmp = tree.compare(data, hi);
+		return cmp > 0 || (cmp == 0 && !hiInclusive);
+	}
+
+	private boolean inRange(E data) {
+		return !tooLow(data) && !tooHigh(data);
+	}
+
+	private boolean inRange(E data, boolean inclusive) {
+		if (inclusive) {
+			return inRange(data);
+		}
+		return (fromStart || tree.compare(data, lo) >= 0) && (toEnd || tree.compare(data, hi) <= 0);
+	}
+
+	private RBNode<E> lowest() {
+		RBNode<E> node = fromStart ? tree.firstNode() : tree.boundNode(lo, true, loInclusive);
+		return node == null || tooHigh(node.getData()) ? null : node;
+	}
+
+	private RBNode<E> highest() {
+		RBNode<E> node = toEnd ? tree.lastNode() : tree.boundNode(hi, false, hiInclusive);
+		return node == null || tooLow(node.getData()) ? null : node;
+	}
+
+	private RBNode<E> highFence() {
+		return toEnd ? null : tree.boundNode(hi, true, !hiInclusive);
+	}
+
+	private RBNode<E> lowFence() {
+		return fromStart ? null : tree.boundNode(lo, false, !loInclusive);
+	}
+
+	private RBNode<E> above(E data, boolean inclusive) {
+		if (tooLow(data)) {
+			return lowest();
+		}
+		RBNode<E> node = tree.boundNode(data, true, inclusive);
+		return node == null || tooHigh(node.getData()) ? null : node;
+	}
+
+	private RBNode<E> below(E data, boolean inclusive) {
+		if (tooHigh(data)) {
+			return highest();
+		}
+		RBNode<E> node = tree.boundNode(data, false, inclusive);
+		return node == null || tooLow(node.getData()) ? null : node;
+	}
+
+	private static <E extends Comparable<E>> E data(RBNode<E> node) {
+		return node == null ? null : node.getData();
+	}
+
+	@Override
+	public E lower(E e) {
+		return data(descending ? above(e, false) : below(e, false));
+	}
+
+	@Override
+	public E floor(E e) {
+		return data(descending ? above(e, true) : below(e, true));
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return data(descending ? below(e, true) : above(e, true));
+	}
+
+	@Override
+	public E higher(E e) {
+		return data(descending ? below(e, false) : above(e, false));
+	}
+
+	@Override
+	public E first() {
+		RBNode<E> node = descending ? highest() : lowest();
+		if (node == null) {
+			throw new NoSuchElementException();
+		}
+		return node.getData();
+	}
+
+	@Override
+	public E last() {
+		RBNode<E> node = descending ? lowest() : highest();
+		if (node == null) {
+			throw new NoSuchElementException();
+		}
+		return node.getData();
+	}
+
+	@Override
+	public E pollFirst() {
+		return poll(descending ? highest() : lowest());
+	}
+
+	@Override
+	public E pollLast() {
+		return poll(descending ? lowest() : highest());
+	}
+
+	private E poll(RBNode<E> node) {
+		if (node == null) {
+			return null;
+		}
+		E data = node.getData();
+		tree.delete(node);
+		return data;
+	}
+
+	/**
+	 * counts the range from the ranks of its ends
+	 */
+	@Override
+	public int size() {
+		RBNode<E> first = lowest();
+		if (first == null) {
+			return 0;
+		}
+		return tree.rankOf(highFence()) - tree.rankOf(first);
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return lowest() == null;
+	}
+
+	/**
+	 * cuts the whole range out of the tree at once instead of deleting
+	 * value by value
+	 */
+	@Override
+	public void clear() {
+		tree.extract(fromStart ? null : lo, loInclusive, toEnd ? null : hi, hiInclusive);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) {
+		E data = (E) o;
+		return inRange(data) && tree.find(data);
+	}
+
+	@Override
+	public boolean add(E e) {
+		if (!inRange(e)) {
+			throw new IllegalArgumentException("value out of range");
+		}
+		return tree.add(e);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) {
+		E data = (E) o;
+		return inRange(data) && tree.delete(data);
+	}
+
+	@Override
+	public Iterator<E> iterator() {
+		if (descending) {
+			return new RangeIterator<E>(tree, highest(), lowFence(), false);
+		}
+		return new RangeIterator<E>(tree, lowest(), highFence(), true);
+	}
+
+	@Override
+	public Iterator<E> descendingIterator() {
+		return descendingSet().iterator();
+	}
+
+	@Override
+	public NavigableSet<E> descendingSet() {
+		return new RangeSet<E>(tree, fromStart, lo, loInclusive, toEnd, hi, hiInclusive, !descending);
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return descending ? Collections.reverseOrder(tree.comparator()) : tree.comparator();
+	}
+
+	/**
+	 * checks a bound the caller passed to narrow the view. a bound carried
+	 * over from this view is not checked again, on an empty view such as
+	 * (2, 2] it lies outside the view itself
+	 */
+	private void check(E bound, boolean inclusive, String name) {
+		if (!inRange(bound, inclusive)) {
+			throw new IllegalArgumentException(name + " out of range");
+		}
+	}
+
+	/**
+	 * narrows the view, bounds are given in ascending terms
+	 */
+	private NavigableSet<E> narrow(boolean fromStart, E lo, boolean loInclusive, boolean toEnd, E hi,
+			boolean hiInclusive) {
+		return new RangeSet<E>(tree, fromStart, lo, loInclusive, toEnd, hi, hiInclusive, descending);
+	}
+
+	@Override
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+		check(fromElement, fromInclusive, "fromKey");
+		check(toElement, toInclusive, "toKey");
+		if (descending) {
+			return narrow(false, toElement, toInclusive, false, fromElement, fromInclusive);
+		}
+		return narrow(false, fromElement, fromInclusive, false, toElement, toInclusive);
+	}
+
+	@Override
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		check(toElement, inclusive, "toKey");
+		if (descending) {
+			return narrow(false, toElement, inclusive, toEnd, hi, hiInclusive);
+		}
+		return narrow(fromStart, lo, loInclusive, false, toElement, inclusive);
+	}
+
+	@Override
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		check(fromElement, inclusive, "fromKey");
+		if (descending) {
+			return narrow(fromStart, lo, loInclusive, false, fromElement, inclusive);
+		}
+		return narrow(false, fromElement, inclusive, toEnd, hi, hiInclusive);
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+}
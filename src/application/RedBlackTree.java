@@ -1,10 +1,21 @@
 package application;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractSet;
 import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.Queue;
-
-import hw4.LinkedStack;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * handles creation and methods for a red black tree
@@ -13,9 +24,31 @@ import hw4.LinkedStack;
  *
  * @param <E> generic data type
  */
-public class RedBlackTree<E extends Comparable<E>> {
+public class RedBlackTree<E extends Comparable<E>> extends AbstractSet<E> implements NavigableSet<E>, OrderedSet<E> {
+	/**
+	 * leaf shared by every tree. it is never written, so subtrees can move
+	 * from one tree to another without touching their leaves
+	 */
+	@SuppressWarnings("rawtypes")
+	private static final RBNode NIL = new RBNode();
+
+	/**
+	 * how many times larger than its argument a tree must be for a set
+	 * operation to insert or delete value by value instead of joining
+	 */
+	private static final int BATCH_RATIO = 64;
+
 	protected RBNode<E> root;
-	protected RBNode<E> nil = new RBNode<E>();
+	protected RBNode<E> nil = sentinel();
+	private Comparator<? super E> comparator;
+	private int epoch;
+	private NodePool<E> pool;
+	private TreeStats stats = TreeStats.ENABLED ? new TreeStats(this) : null;
+
+	@SuppressWarnings("unchecked")
+	private static <E extends Comparable<E>> RBNode<E> sentinel() {
+		return NIL;
+	}
 
 	/**
 	 * default constructor
@@ -25,15 +58,168 @@ public class RedBlackTree<E extends Comparable<E>> {
 	}
 
 	/**
-	 * constructs red black tree using array
+	 * constructs red black tree ordered by a comparator instead of the
+	 * natural order of the values
+	 * 
+	 * @param comparator
+	 *            ordering, null for natural order
+	 */
+	public RedBlackTree(Comparator<? super E> comparator) {
+		this.root = nil;
+		this.comparator = comparator;
+	}
+
+	/**
+	 * constructs red black tree using array. values are sorted and
+	 * deduplicated, then the tree is built balanced in one pass
 	 * 
 	 * @param rb
 	 *            array of values
 	 */
 	public RedBlackTree(E[] rb) {
-		for (int i = 0; i < rb.length; i++) {
-			insert(rb[i]);
+		this(Arrays.asList(rb));
+	}
+
+	/**
+	 * constructs red black tree using a collection. values are sorted and
+	 * deduplicated, then the tree is built balanced in one pass
+	 * 
+	 * @param rb
+	 *            collection of values
+	 */
+	public RedBlackTree(Collection<? extends E> rb) {
+		this.root = nil;
+		bulkLoad(new ArrayList<E>(rb));
+	}
+
+	/**
+	 * constructs red black tree from an iterator over sorted values. unsorted
+	 * input is still accepted but has to be sorted first
+	 * 
+	 * @param rb
+	 *            iterator of values, ideally ascending
+	 */
+	public RedBlackTree(Iterator<? extends E> rb) {
+		ArrayList<E> keys = new ArrayList<E>();
+
+		while (rb.hasNext()) {
+			keys.add(rb.next());
+		}
+		this.root = nil;
+		bulkLoad(keys);
+	}
+
+	/**
+	 * reads a tree written by {@link #writeTo}. the file is mapped and the
+	 * tree is rebuilt from the sorted keys in O(n)
+	 * 
+	 * @param path
+	 *            image file
+	 * @param codec
+	 *            key codec the image was written with
+	 * @return tree
+	 * @throws IOException
+	 *             if the file cannot be read or is not an image for codec
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> load(Path path, KeyCodec<E> codec) throws IOException {
+		return TreeImage.read(path, codec, null);
+	}
+
+	/**
+	 * reads a tree written by {@link #writeTo} from a tree ordered by a
+	 * comparator
+	 * 
+	 * @param path
+	 *            image file
+	 * @param codec
+	 *            key codec the image was written with
+	 * @param comparator
+	 *            ordering of the tree that was written
+	 * @return tree
+	 * @throws IOException
+	 *             if the file cannot be read or is not an image for codec
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> load(Path path, KeyCodec<E> codec,
+			Comparator<? super E> comparator) throws IOException {
+		return TreeImage.read(path, codec, comparator);
+	}
+
+	/**
+	 * writes the values to a binary image: a header, the values in
+	 * ascending order and a color bit per value. the file is replaced
+	 * atomically
+	 * 
+	 * @param path
+	 *            image file
+	 * @param codec
+	 *            key codec
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	public void writeTo(Path path, KeyCodec<E> codec) throws IOException {
+		TreeImage.write(this, path, codec);
+	}
+
+	/**
+	 * replaces the contents of the tree with a balanced tree of the keys
+	 * 
+	 * @param keys
+	 *            values, sorted in place if needed
+	 */
+	private void bulkLoad(ArrayList<E> keys) {
+		for (int i = 1; i < keys.size(); i++) {
+			if (compare(keys.get(i - 1), keys.get(i)) > 0) {
+				keys.sort(comparator);
+				break;
+			}
+		}
+
+		int count = 0;
+		for (int i = 0; i < keys.size(); i++) {
+			if (count == 0 || compare(keys.get(count - 1), keys.get(i)) != 0) {
+				keys.set(count++, keys.get(i));
+			}
+		}
+
+		if (count > 0) {
+			int redDepth = 31 - Integer.numberOfLeadingZeros(count);
+			root = build(keys, 0, count - 1, 0, redDepth, null);
+			root.color = RBNode.BLACK;
+		}
+	}
+
+	/**
+	 * builds a balanced subtree from a sorted range. every level is black
+	 * except the deepest, which is the only one that can be partly filled,
+	 * so all paths keep the same black height
+	 * 
+	 * @param keys
+	 *            sorted distinct values
+	 * @param lo
+	 *            first index of range
+	 * @param hi
+	 *            last index of range
+	 * @param depth
+	 *            depth of the subtree root
+	 * @param redDepth
+	 *            depth of the deepest level
+	 * @param parent
+	 *            parent of the subtree root
+	 * @return subtree root
+	 */
+	private RBNode<E> build(List<E> keys, int lo, int hi, int depth, int redDepth, RBNode<E> parent) {
+		if (lo > hi) {
+			return nil;
 		}
+
+		int mid = (lo + hi) >>> 1;
+		RBNode<E> node = new RBNode<E>(keys.get(mid), depth == redDepth ? RBNode.RED : RBNode.BLACK);
+
+		node.parent = parent;
+		node.size = hi - lo + 1;
+		node.left = build(keys, lo, mid - 1, depth + 1, redDepth, node);
+		node.right = build(keys, mid + 1, hi, depth + 1, redDepth, node);
+		return node;
 	}
 
 	/**
@@ -43,55 +229,131 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 *            value to add
 	 */
 	public void insert(E data) {
-		RBNode<E> newNode = new RBNode<E>(data, "R");
+		add(data);
+	}
+
+	/**
+	 * adds data to the red black tree if it is not there yet. the tree is
+	 * walked once with a single comparison per level
+	 * 
+	 * @param data
+	 *            value to add
+	 * @return true if the value was added
+	 */
+	public boolean add(E data) {
+		RBNode<E> current = root;
+		RBNode<E> point = null;
+		int cmp = 0;
+		int length = 0;
+
+		while (!current.equals(nil)) {
+			length++;
+			cmp = compare(data, current.getData());
+			if (cmp == 0) {
+				if (TreeStats.ENABLED) {
+					stats.searched(length);
+				}
+				return false;
+			}
+			point = current;
+			current = cmp < 0 ? current.left : current.right;
+		}
+
+		if (TreeStats.ENABLED) {
+			stats.searched(length);
+		}
+		attach(point, cmp, data);
+		return true;
+	}
+
+	/**
+	 * links a new red node below the point where a search ended
+	 * 
+	 * @param point
+	 *            last node visited, null if the tree is empty
+	 * @param cmp
+	 *            result of comparing data with point
+	 * @param data
+	 *            value to add
+	 * @return the new node
+	 */
+	private RBNode<E> attach(RBNode<E> point, int cmp, E data) {
+		RBNode<E> newNode = pool == null ? new RBNode<E>(data, RBNode.RED) : pool.take(data);
+
+		newNode.left = nil;
+		newNode.right = nil;
+		newNode.epoch = epoch;
+
+		if (point != null) {
+			point = own(point);
+		}
+		newNode.parent = point;
 
-		if (root == null || root.equals(nil)) {
+		if (point == null) {
 			root = newNode;
-			root.left = nil;
-			root.right = nil;
+		} else if (cmp < 0) {
+			point.left = newNode;
 		} else {
-			RBNode<E> point = insertionPoint(data);
-
-			if (data.compareTo(point.getData()) < 0) {
-				point.left = newNode;
-				point.left.left = nil;
-				point.left.right = nil;
-				point.left.parent = point;
-			} else if (data.compareTo(point.getData()) > 0) {
-				point.right = newNode;
-				point.right.right = nil;
-				point.right.left = nil;
-				point.right.parent = point;
-			}
+			point.right = newNode;
 		}
 
+		for (RBNode<E> up = point; up != null; up = up.parent) {
+			up.size++;
+		}
 		insertionCleanup(newNode);
+		return newNode;
 	}
 
 	/**
-	 * finds position to add node
+	 * compares two values with the comparator, or their natural order if
+	 * there is none
 	 * 
-	 * @param data
-	 *            value to be added
-	 * @return position
+	 * @param a
+	 *            first value
+	 * @param b
+	 *            second value
+	 * @return negative, zero or positive
 	 */
-	private RBNode<E> insertionPoint(E data) {
-		RBNode<E> current = root;
-		RBNode<E> point = null;
+	int compare(E a, E b) {
+		if (TreeStats.ENABLED) {
+			stats.comparisons.increment();
+		}
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
 
-		while (!current.equals(nil)) {
-			if (data.equals(current.getData())) {
-				break;
-			} else if (data.compareTo(current.getData()) < 0) {
-				point = current;
-				current = current.left;
-			} else if (data.compareTo(current.getData()) > 0) {
+	/**
+	 * adds a batch of values. the batch is sorted and each descent starts
+	 * from the node touched by the previous value instead of the root
+	 * 
+	 * @param batch
+	 *            values to add
+	 * @return number of values that were not already in the tree
+	 */
+	public int insertAll(Collection<? extends E> batch) {
+		RBNode<E> finger = null;
+		int inserted = 0;
+
+		for (E data : sortedBatch(batch)) {
+			RBNode<E> current = fingerStart(finger, data);
+			RBNode<E> point = null;
+			int cmp = 0;
+
+			while (!current.equals(nil)) {
+				cmp = compare(data, current.getData());
+				if (cmp == 0) {
+					break;
+				}
 				point = current;
-				current = current.right;
+				current = cmp < 0 ? current.left : current.right;
 			}
-		}
 
-		return point;
+			if (current.equals(nil)) {
+				current = attach(point, cmp, data);
+				inserted++;
+			}
+			finger = current;
+		}
+		return inserted;
 	}
 
 	/**
@@ -101,37 +363,49 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 *            node to be checked
 	 */
 	private void insertionCleanup(RBNode<E> node) {
-		while (node != root && node.parent.color == "R") {
+		while (node != root && node.parent.color == RBNode.RED) {
 			if (isLeftChild(node.parent)) {
 				RBNode<E> uncle = node.parent.parent.right;
-				if (uncle.color == "R") {
-					node.parent.color = "B";
-					uncle.color = "B";
-					grandparent(node).color = "R";
+				if (uncle.color == RBNode.RED) {
+					node.parent.color = RBNode.BLACK;
+					own(uncle).color = RBNode.BLACK;
+					grandparent(node).color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(3);
+					}
 					node = grandparent(node);
 				} else {
 					if (isRightChild(node)) {
 						node = node.parent;
 						leftRotate(node);
 					}
-					node.parent.color = "B";
-					grandparent(node).color = "R";
+					node.parent.color = RBNode.BLACK;
+					grandparent(node).color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(2);
+					}
 					rightRotate(grandparent(node));
 				}
 			} else {
 				RBNode<E> uncle = node.parent.parent.left;
-				if (uncle.color == "R") {
-					node.parent.color = "B";
-					uncle.color = "B";
-					grandparent(node).color = "R";
+				if (uncle.color == RBNode.RED) {
+					node.parent.color = RBNode.BLACK;
+					own(uncle).color = RBNode.BLACK;
+					grandparent(node).color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(3);
+					}
 					node = grandparent(node);
 				} else {
 					if (isLeftChild(node)) {
 						node = node.parent;
 						rightRotate(node);
 					}
-					node.parent.color = "B";
-					grandparent(node).color = "R";
+					node.parent.color = RBNode.BLACK;
+					grandparent(node).color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(2);
+					}
 					leftRotate(grandparent(node));
 				}
 			}
@@ -156,22 +430,22 @@ public class RedBlackTree<E extends Comparable<E>> {
 			// }
 			// }
 		}
-		root.color = "B";
+		root.color = RBNode.BLACK;
 	}
 
 	/**
 	 * rotates section of the tree left
 	 * 
 	 * @param node
-	 *            pivot
+	 *            pivot, already owned
 	 */
 	private void leftRotate(RBNode<E> node) {
-		RBNode<E> temp = node.right;
+		RBNode<E> temp = own(node.right);
 
 		node.right = temp.left;
 
-		if (!node.left.equals(nil)) {
-			node.left.parent = node;
+		if (!node.right.equals(nil)) {
+			node.right.parent = node;
 		}
 
 		temp.parent = node.parent;
@@ -186,21 +460,26 @@ public class RedBlackTree<E extends Comparable<E>> {
 
 		temp.left = node;
 		node.parent = temp;
+		temp.size = node.size;
+		node.size = node.left.size + node.right.size + 1;
+		if (TreeStats.ENABLED) {
+			stats.leftRotations.increment();
+		}
 	}
 
 	/**
 	 * rotates section of tree right
 	 * 
 	 * @param node
-	 *            pivot
+	 *            pivot, already owned
 	 */
 	private void rightRotate(RBNode<E> node) {
-		RBNode<E> temp = node.left;
+		RBNode<E> temp = own(node.left);
 
 		node.left = temp.right;
 
 		if (!node.left.equals(nil)) {
-			node.right.parent = node;
+			node.left.parent = node;
 		}
 
 		temp.parent = node.parent;
@@ -215,6 +494,11 @@ public class RedBlackTree<E extends Comparable<E>> {
 
 		temp.right = node;
 		node.parent = temp;
+		temp.size = node.size;
+		node.size = node.left.size + node.right.size + 1;
+		if (TreeStats.ENABLED) {
+			stats.rightRotations.increment();
+		}
 	}
 
 	/**
@@ -222,9 +506,57 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * 
 	 * @param data
 	 *            value to delete
+	 * @return true if the value was in the tree
+	 */
+	public boolean delete(E data) {
+		RBNode<E> node = search(data);
+
+		if (node == null) {
+			return false;
+		}
+		delete(node);
+		return true;
+	}
+
+	/**
+	 * deletes a batch of values. the batch is sorted and each search starts
+	 * from a node left behind by the previous value instead of the root
+	 * 
+	 * @param batch
+	 *            values to delete
+	 * @return number of values that were in the tree
 	 */
-	public void delete(E data) {
-		delete(nodeToDelete(data));
+	public int deleteAll(Collection<? extends E> batch) {
+		RBNode<E> finger = null;
+		int deleted = 0;
+
+		for (E data : sortedBatch(batch)) {
+			RBNode<E> current = fingerStart(finger, data);
+			RBNode<E> last = null;
+			int cmp = 0;
+
+			while (!current.equals(nil)) {
+				cmp = compare(data, current.getData());
+				if (cmp == 0) {
+					break;
+				}
+				last = current;
+				current = cmp < 0 ? current.left : current.right;
+			}
+
+			if (current.equals(nil)) {
+				if (last != null && cmp < 0) {
+					last = predecessor(last);
+				}
+				finger = last;
+			} else {
+				// a node with two children survives holding its predecessor
+				finger = numChildren(current) == 2 ? current : predecessor(current);
+				delete(current);
+				deleted++;
+			}
+		}
+		return deleted;
 	}
 
 	/**
@@ -233,128 +565,139 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @param node
 	 *            node to be deleted
 	 */
-	private void delete(RBNode<E> node) {
-		if (isLeaf(node)) {
-			if (isLeftChild(node)) {
-				node.parent.left = nil;
-			} else if (isRightChild(node)) {
-				node.parent.right = nil;
-			}
-			nil.parent = node.parent;
+	void delete(RBNode<E> node) {
+		node = own(node);
 
-			if (node.color == "B") {
-				nil.color = "DB";
-				fixDoubleBlack(nil);
-			}
-		} else if (numChildren(node) == 1) {
-			if (isLeftChild(node)) {
-				if (!node.left.equals(nil)) {
-					node.parent.left = node.left;
-					node.left.parent = node.parent;
-				} else if (!node.right.equals(nil)) {
-					node.parent.left = node.right;
-					node.right.parent = node.parent;
-				}
+		if (numChildren(node) == 2) {
+			RBNode<E> max = maxLeftSub(node);
+			node.setData(max.getData());
+			delete(max);
+		} else {
+			RBNode<E> child = node.left.equals(nil) ? node.right : node.left;
+			RBNode<E> parent = node.parent;
 
-				if (node.left.color == "R" || node.color == "R") {
-					node.left.color = "B";
-				} else if (node.left.color == "B" && node.color == "B") {
-					node.left.color = "DB";
-					fixDoubleBlack(node.left);
-				}
-			} else if (isRightChild(node)) {
-				if (!node.left.equals(nil)) {
-					node.parent.right = node.left;
-					node.left.parent = node.parent;
-				} else if (!node.right.equals(nil)) {
-					node.parent.right = node.right;
-					node.right.parent = node.parent;
-				}
+			if (parent == null) {
+				root = child;
+			} else if (parent.left == node) {
+				parent.left = child;
+			} else {
+				parent.right = child;
+			}
+			if (!child.equals(nil)) {
+				child.parent = parent;
+			}
+			for (RBNode<E> up = parent; up != null; up = up.parent) {
+				up.size--;
+			}
 
-				if (node.right.color == "R" || node.color == "R") {
-					node.right.color = "B";
-				} else if (node.right.color == "B" && node.color == "B") {
-					node.right.color = "DB";
-					fixDoubleBlack(node.right);
+			if (node.color == RBNode.BLACK) {
+				if (child.color == RBNode.RED) {
+					own(child).color = RBNode.BLACK;
+					if (TreeStats.ENABLED) {
+						stats.recolors.increment();
+					}
+				} else {
+					fixDoubleBlack(child, parent);
 				}
 			}
-		} else if (numChildren(node) == 2) {
-			RBNode<E> max = maxLeftSub(node);
-			node.setData(max.getData());
-			delete(max);
+			// owned above, so no snapshot can reach it
+			if (pool != null) {
+				pool.give(node);
+			}
 		}
 	}
 
 	/**
-	 * fixes violations when deleting
+	 * fixes violations when deleting. the node passed in carries an extra
+	 * black; it is not stored in the node, so the parent is carried along for
+	 * the case where the node is the shared nil. each step resolves the
+	 * sibling once and either moves the extra black up a level by recoloring
+	 * or ends it with at most three rotations in all
 	 * 
 	 * @param node
-	 *            node to check
+	 *            double black node
+	 * @param parent
+	 *            parent of the double black node, null at the root
 	 */
-	private void fixDoubleBlack(RBNode<E> node) {
-		if (sibling(node).color == "R") {
-			if (isRightChild(node)) {
-				sibling(node).color = "B";
-				node.parent.color = "R";
-				rightRotate(node.parent);
-				fixDoubleBlack(node);
-			} else {
-				sibling(node).color = "B";
-				node.parent.color = "R";
-				leftRotate(node.parent);
-				fixDoubleBlack(node);
-			}
+	private void fixDoubleBlack(RBNode<E> node, RBNode<E> parent) {
+		if (TreeStats.ENABLED) {
+			stats.doubleBlackFixups.increment();
 		}
-		if (!sibling(node).equals(nil)) {
-			if (sibling(node).left.color == "R" || sibling(node).right.color == "R") {
-				if (isLeftChild(sibling(node))) {
-					if (sibling(node).right.color == "R") {
-						leftRotate(sibling(node));
-						rightRotate(node.parent);
-						sibling(node).right.color = node.parent.color;
-						sibling(node).color = "B";
-						node.parent.color = "B";
-						node.color = "B";
-					} else if (sibling(node).left.color == "R") {
-						rightRotate(node.parent);
-						sibling(node).color = node.parent.color;
-						sibling(node).left.color = "B";
-						node.parent.color = "B";
-						node.color = "B";
+		while (parent != null && node.color == RBNode.BLACK) {
+			boolean isLeft = parent.left == node;
+			RBNode<E> sibling = own(isLeft ? parent.right : parent.left);
+
+			if (sibling.color == RBNode.RED) {
+				sibling.color = RBNode.BLACK;
+				parent.color = RBNode.RED;
+				if (TreeStats.ENABLED) {
+					stats.recolors.add(2);
+				}
+				if (isLeft) {
+					leftRotate(parent);
+					sibling = own(parent.right);
+				} else {
+					rightRotate(parent);
+					sibling = own(parent.left);
+				}
+			}
+
+			if (sibling.left.color == RBNode.BLACK && sibling.right.color == RBNode.BLACK) {
+				sibling.color = RBNode.RED;
+				if (TreeStats.ENABLED) {
+					stats.recolors.increment();
+				}
+				node = parent;
+				parent = node.parent;
+				continue;
+			}
+
+			if (isLeft) {
+				if (sibling.right.color == RBNode.BLACK) {
+					own(sibling.left).color = RBNode.BLACK;
+					sibling.color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(2);
 					}
-				} else if (isRightChild(sibling(node))) {
-					if (sibling(node).left.color == "R") {
-						rightRotate(sibling(node));
-						leftRotate(node.parent);
-						sibling(node).left.color = node.parent.color;
-						sibling(node).color = "B";
-						node.parent.color = "B";
-						node.color = "B";
-					} else if (sibling(node).right.color == "R") {
-						leftRotate(node.parent);
-						sibling(node).color = node.parent.color;
-						sibling(node).right.color = "B";
-						node.parent.color = "B";
-						node.color = "B";
+					rightRotate(sibling);
+					sibling = parent.right;
+				}
+				sibling.color = parent.color;
+				parent.color = RBNode.BLACK;
+				own(sibling.right).color = RBNode.BLACK;
+				if (TreeStats.ENABLED) {
+					stats.recolors.add(3);
+				}
+				leftRotate(parent);
+			} else {
+				if (sibling.left.color == RBNode.BLACK) {
+					own(sibling.right).color = RBNode.BLACK;
+					sibling.color = RBNode.RED;
+					if (TreeStats.ENABLED) {
+						stats.recolors.add(2);
 					}
+					leftRotate(sibling);
+					sibling = parent.left;
+				}
+				sibling.color = parent.color;
+				parent.color = RBNode.BLACK;
+				own(sibling.left).color = RBNode.BLACK;
+				if (TreeStats.ENABLED) {
+					stats.recolors.add(3);
 				}
+				rightRotate(parent);
 			}
+			return;
 		}
 
-		if (sibling(node).color == "B" && sibling(node).left.color == "B" && sibling(node).right.color == "B") {
-			if (node.parent.color == "R") {
-				sibling(node).color = "R";
-				node.parent.color = "B";
-				node.color = "B";
-			} else {
-				sibling(node).color = "R";
-				node.parent.color = "DB";
-				node.color = "B";
-				fixDoubleBlack(node.parent);
+		// a red node reached from below is owned, its ancestors were copied
+		// with the deleted node
+		if (node.color == RBNode.RED) {
+			node.color = RBNode.BLACK;
+			if (TreeStats.ENABLED) {
+				stats.recolors.increment();
 			}
 		}
-		root.color = "B";
-
 	}
 
 	/**
@@ -377,23 +720,144 @@ public class RedBlackTree<E extends Comparable<E>> {
 	}
 
 	/**
-	 * finds place on tree to delete node
+	 * finds the node holding the next smaller value
+	 * 
+	 * @param node
+	 *            node to start from
+	 * @return predecessor or null if node holds the minimum
+	 */
+	RBNode<E> predecessor(RBNode<E> node) {
+		if (!node.left.equals(nil)) {
+			return maxLeftSub(node);
+		}
+
+		RBNode<E> current = node;
+		while (current.parent != null && current.parent.left == current) {
+			current = current.parent;
+		}
+		return current.parent;
+	}
+
+	/**
+	 * makes a node safe to change. nodes older than the last snapshot are
+	 * still reachable from it, so such a node is copied, along with any
+	 * ancestors that are also shared, and the copy takes its place. callers
+	 * must use the returned node from then on
+	 * 
+	 * @param node
+	 *            node about to change
+	 * @return node owned by the live tree
+	 */
+	private RBNode<E> own(RBNode<E> node) {
+		if (node == nil || node.epoch == epoch) {
+			return node;
+		}
+
+		RBNode<E> parent = node.parent == null ? null : own(node.parent);
+		RBNode<E> copy = new RBNode<E>(node.getData(), node.color);
+
+		copy.size = node.size;
+		copy.epoch = epoch;
+		copy.parent = parent;
+		copy.left = node.left;
+		copy.right = node.right;
+
+		if (parent == null) {
+			root = copy;
+		} else if (parent.left == node) {
+			parent.left = copy;
+		} else {
+			parent.right = copy;
+		}
+		if (!copy.left.equals(nil)) {
+			copy.left.parent = copy;
+		}
+		if (!copy.right.equals(nil)) {
+			copy.right.parent = copy;
+		}
+		return copy;
+	}
+
+	/**
+	 * checks if a node is still part of the live tree, it is not once it was
+	 * deleted or copied away from a snapshot
+	 * 
+	 * @param node
+	 *            node to check
+	 * @return true if the node is reachable from the root
+	 */
+	boolean linked(RBNode<E> node) {
+		if (node.parent == null) {
+			return node == root;
+		}
+		return node.parent.left == node || node.parent.right == node;
+	}
+
+	/**
+	 * finds where a batch descent should start. the finger holds a value
+	 * smaller than data, so its subtree bound from below is already fine and
+	 * climbing stops at the first left child whose parent is above data. a
+	 * finger older than the last snapshot may have been copied away, so the
+	 * descent starts from the root instead
+	 * 
+	 * @param finger
+	 *            node touched for the previous value, or null
+	 * @param data
+	 *            value being searched
+	 * @return node to descend from
+	 */
+	private RBNode<E> fingerStart(RBNode<E> finger, E data) {
+		if (finger == null || finger.epoch != epoch) {
+			return root;
+		}
+
+		RBNode<E> current = finger;
+		while (current.parent != null) {
+			if (current.parent.left == current && compare(data, current.parent.getData()) < 0) {
+				break;
+			}
+			current = current.parent;
+		}
+		return current;
+	}
+
+	/**
+	 * copies and sorts a batch
+	 * 
+	 * @param batch
+	 *            values
+	 * @return ascending copy
+	 */
+	private ArrayList<E> sortedBatch(Collection<? extends E> batch) {
+		ArrayList<E> keys = new ArrayList<E>(batch);
+		keys.sort(comparator);
+		return keys;
+	}
+
+	/**
+	 * finds the node holding a value
 	 * 
 	 * @param data
-	 *            value to be deleted
-	 * @return position
+	 *            value to look for
+	 * @return node or null if the value is not in the tree
 	 */
-	private RBNode<E> nodeToDelete(E data) {
+	RBNode<E> search(E data) {
 		RBNode<E> current = root;
+		int length = 0;
 
-		while (current != null) {
-			if (data.equals(current.getData())) {
+		while (!current.equals(nil)) {
+			length++;
+			int cmp = compare(data, current.getData());
+			if (cmp == 0) {
+				if (TreeStats.ENABLED) {
+					stats.searched(length);
+				}
 				return current;
-			} else if (data.compareTo(current.getData()) < 0) {
-				current = current.left;
-			} else if (data.compareTo(current.getData()) > 0) {
-				current = current.right;
 			}
+			current = cmp < 0 ? current.left : current.right;
+		}
+		if (TreeStats.ENABLED) {
+			stats.searched(length);
 		}
 		return null;
 	}
@@ -426,56 +890,666 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 */
 	public boolean find(E data) {
 		RBNode<E> current = root;
+		int length = 0;
 
 		while (!current.equals(nil)) {
-			if (data.equals(current.getData())) {
+			length++;
+			int cmp = compare(data, current.getData());
+			if (cmp == 0) {
+				if (TreeStats.ENABLED) {
+					stats.searched(length);
+				}
 				return true;
-			} else if (data.compareTo(current.getData()) < 0) {
-				current = current.left;
-			} else if (data.compareTo(current.getData()) > 0) {
-				current = current.right;
 			}
+			current = cmp < 0 ? current.left : current.right;
 		}
 
+		if (TreeStats.ENABLED) {
+			stats.searched(length);
+		}
 		return false;
 	}
 
 	/**
-	 * checks if tree is empty
+	 * number of values in the tree
 	 * 
-	 * @return boolean
+	 * @return size
 	 */
-	public boolean isEmpty() {
-		return root.equals(nil);
+	public int size() {
+		return root.size;
 	}
 
 	/**
-	 * checks if node is a leaf
+	 * counters of the work done on this tree, only updated when
+	 * {@link TreeStats#ENABLED} is set. without it they are created on the
+	 * first call and stay at zero
 	 * 
-	 * @param node
-	 *            node to be checked
-	 * @return boolean
+	 * @return stats, also a JMX MBean
 	 */
-	public boolean isLeaf(RBNode<E> node) {
-		return node.left.equals(nil) && node.right.equals(nil);
+	public TreeStats stats() {
+		if (stats == null) {
+			stats = new TreeStats(this);
+		}
+		return stats;
 	}
 
 	/**
-	 * checks if node is left child
+	 * counts the nodes on the longest path from the root to a leaf
 	 * 
-	 * @param node
-	 *            node to be checked
-	 * @return boolean
+	 * @return height, 0 if empty
 	 */
-	public boolean isLeftChild(RBNode<E> node) {
-		if (node.equals(root)) {
-			return false;
+	public int height() {
+		return height(root);
+	}
+
+	private int height(RBNode<E> node) {
+		if (node == nil) {
+			return 0;
 		}
-		return node.parent.left == node;
+		return 1 + Math.max(height(node.left), height(node.right));
 	}
 
 	/**
-	 * checks if node is right child
+	 * counts the black nodes on the path from the root to the leftmost leaf,
+	 * the same on every path
+	 * 
+	 * @return black height, 0 if empty
+	 */
+	public int blackHeight() {
+		int height = 0;
+		for (RBNode<E> node = root; node != nil; node = node.left) {
+			if (node.color == RBNode.BLACK) {
+				height++;
+			}
+		}
+		return height;
+	}
+
+	/**
+	 * keeps up to capacity deleted nodes for later inserts to reuse, so a
+	 * steady mix of inserts and deletes allocates nothing. nodes still
+	 * reachable from a snapshot are never reused
+	 * 
+	 * @param capacity
+	 *            most free nodes kept, 0 turns pooling off
+	 * @return the pool, for its metrics
+	 * @throws IllegalArgumentException
+	 *             if capacity is negative
+	 */
+	public NodePool<E> enableNodePool(int capacity) {
+		if (capacity < 0) {
+			throw new IllegalArgumentException("capacity: " + capacity);
+		}
+		pool = capacity == 0 ? null : new NodePool<E>(capacity);
+		return pool;
+	}
+
+	/**
+	 * node pool in use
+	 * 
+	 * @return pool or null if pooling is off
+	 */
+	public NodePool<E> nodePool() {
+		return pool;
+	}
+
+	/**
+	 * read-only view of the values as they are now. taking it is O(1): the
+	 * view keeps the current root, and from then on the tree copies a node
+	 * the view can still reach before changing it, so later inserts and
+	 * deletes cost memory only for the nodes they touch
+	 * 
+	 * @return point-in-time view
+	 */
+	public TreeSnapshot<E> snapshot() {
+		epoch++;
+		return new TreeSnapshot<E>(root, nil, comparator);
+	}
+
+	/**
+	 * copies the values into a read-only array index that searches faster
+	 * than the tree. later changes to the tree do not show in the index
+	 * 
+	 * @return frozen index
+	 */
+	public FrozenIndex<E> freeze() {
+		return new FrozenIndex<E>(iterator(), size(), comparator);
+	}
+
+	/**
+	 * moves the values at or above data into a new tree, the values below
+	 * stay here. takes O(log n), the nodes are moved rather than copied
+	 * 
+	 * @param data
+	 *            value to split at
+	 * @return tree with the values at or above data
+	 */
+	public RedBlackTree<E> split(E data) {
+		return extract(data, true, null, false);
+	}
+
+	/**
+	 * moves the values in [from, to) into a new tree. takes O(log n) no
+	 * matter how many values move, the nodes are moved rather than copied
+	 * 
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return tree with the values in range
+	 * @throws IllegalArgumentException
+	 *             if from is above to
+	 */
+	public RedBlackTree<E> extractRange(E from, E to) {
+		if (compare(from, to) > 0) {
+			throw new IllegalArgumentException("from > to");
+		}
+		return extract(from, true, to, false);
+	}
+
+	/**
+	 * deletes the values in [from, to) in O(log n), where a delete per value
+	 * would search and rebalance once for each
+	 * 
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return number of values deleted
+	 * @throws IllegalArgumentException
+	 *             if from is above to
+	 */
+	public int removeRange(E from, E to) {
+		return extractRange(from, to).size();
+	}
+
+	/**
+	 * cuts the values between two bounds out with two splits and joins the
+	 * rest back together
+	 * 
+	 * @param lo
+	 *            lower bound, null for none
+	 * @param loInclusive
+	 *            true if lo itself is in the range
+	 * @param hi
+	 *            upper bound, null for none
+	 * @param hiInclusive
+	 *            true if hi itself is in the range
+	 * @return tree with the values in range
+	 */
+	RedBlackTree<E> extract(E lo, boolean loInclusive, E hi, boolean hiInclusive) {
+		TreeJoin<E> joins = new TreeJoin<E>(nil, comparator, epoch);
+		TreeJoin.Part<E> lower = joins.whole(nil);
+		TreeJoin.Part<E> range = joins.whole(root);
+		TreeJoin.Part<E> upper = joins.whole(nil);
+
+		if (lo != null) {
+			TreeJoin.Split<E> cut = joins.split(range, lo);
+			lower = joins.below(cut, !loInclusive);
+			range = joins.above(cut, loInclusive);
+		}
+		if (hi != null) {
+			TreeJoin.Split<E> cut = joins.split(range, hi);
+			range = joins.below(cut, hiInclusive);
+			upper = joins.above(cut, !hiInclusive);
+		}
+
+		RedBlackTree<E> extracted = new RedBlackTree<E>(comparator);
+		extracted.epoch = epoch;
+		extracted.root = joins.finish(range);
+		root = joins.finish(joins.join(lower, upper));
+		return extracted;
+	}
+
+	/**
+	 * joins two trees and a value between them into a new tree in
+	 * O(log n). the nodes are moved, both trees are left empty
+	 * 
+	 * @param left
+	 *            tree with every value below data
+	 * @param data
+	 *            middle value
+	 * @param right
+	 *            tree with every value above data, same comparator as left
+	 * @return joined tree
+	 * @throws IllegalArgumentException
+	 *             if the trees are ordered differently or the values are
+	 *             not in order
+	 */
+	public static <E extends Comparable<E>> RedBlackTree<E> join(RedBlackTree<E> left, E data,
+			RedBlackTree<E> right) {
+		if (left.comparator != right.comparator) {
+			throw new IllegalArgumentException("different comparators");
+		}
+		if (!left.isEmpty() && left.compare(left.last(), data) >= 0
+				|| !right.isEmpty() && left.compare(data, right.first()) >= 0) {
+			throw new IllegalArgumentException("values out of order");
+		}
+
+		RedBlackTree<E> joined = new RedBlackTree<E>(left.comparator);
+		joined.epoch = Math.max(left.epoch, right.epoch);
+
+		TreeJoin<E> joins = new TreeJoin<E>(joined.nil, joined.comparator, joined.epoch);
+		RBNode<E> middle = new RBNode<E>(data, RBNode.RED);
+		middle.epoch = joined.epoch;
+		joined.root = joins.finish(joins.join(joins.whole(left.root), middle, joins.whole(right.root)));
+
+		left.root = left.nil;
+		right.root = right.nil;
+		return joined;
+	}
+
+	/**
+	 * adds every value of other, which is left empty. splits this tree by
+	 * the values of the smaller tree and joins the pieces back in parallel
+	 * on the common fork join pool, O(m log(n / m + 1)) work for sizes n and
+	 * m &lt;= n
+	 * 
+	 * @param other
+	 *            tree with the same comparator
+	 * @return number of values added
+	 */
+	public int union(RedBlackTree<E> other) {
+		int before = size();
+		combine(other, TreeJoin.Operation.UNION);
+		return size() - before;
+	}
+
+	/**
+	 * keeps only the values also in other, which is left empty. runs like
+	 * {@link #union(RedBlackTree)}
+	 * 
+	 * @param other
+	 *            tree with the same comparator
+	 * @return number of values removed
+	 */
+	public int intersection(RedBlackTree<E> other) {
+		int before = size();
+		combine(other, TreeJoin.Operation.INTERSECTION);
+		return before - size();
+	}
+
+	/**
+	 * removes every value that is in other, which is left empty. runs like
+	 * {@link #union(RedBlackTree)}
+	 * 
+	 * @param other
+	 *            tree with the same comparator
+	 * @return number of values removed
+	 */
+	public int difference(RedBlackTree<E> other) {
+		int before = size();
+		combine(other, TreeJoin.Operation.DIFFERENCE);
+		return before - size();
+	}
+
+	/**
+	 * runs a set operation with the nodes of both trees
+	 * 
+	 * @param other
+	 *            second tree, emptied
+	 * @param operation
+	 *            operation to run
+	 * @throws IllegalArgumentException
+	 *             if the trees are ordered differently
+	 */
+	private void combine(RedBlackTree<E> other, TreeJoin.Operation operation) {
+		if (other == this) {
+			if (operation == TreeJoin.Operation.DIFFERENCE) {
+				clear();
+			}
+			return;
+		}
+		if (comparator != other.comparator) {
+			throw new IllegalArgumentException("different comparators");
+		}
+
+		// a split and join rewrites the path a plain descent only reads, so
+		// a batch far smaller than this tree is applied one value at a time
+		if (other.size() < size() / BATCH_RATIO) {
+			ArrayList<E> batch = new ArrayList<E>(other);
+			other.clear();
+
+			switch (operation) {
+			case UNION:
+				insertAll(batch);
+				break;
+			case DIFFERENCE:
+				deleteAll(batch);
+				break;
+			default:
+				ArrayList<E> kept = new ArrayList<E>();
+				for (E data : batch) {
+					if (find(data)) {
+						kept.add(data);
+					}
+				}
+				clear();
+				insertAll(kept);
+			}
+			return;
+		}
+
+		epoch = Math.max(epoch, other.epoch);
+		TreeJoin<E> joins = new TreeJoin<E>(nil, comparator, epoch);
+		TreeJoin.Part<E> a = joins.whole(root);
+		TreeJoin.Part<E> b = joins.whole(other.root);
+
+		// union and intersection are symmetric, split the larger tree
+		if (operation != TreeJoin.Operation.DIFFERENCE && b.root.size > a.root.size) {
+			TreeJoin.Part<E> swap = a;
+			a = b;
+			b = swap;
+		}
+		root = joins.finish(joins.invoke(ForkJoinPool.commonPool(), operation, a, b));
+		other.root = other.nil;
+	}
+
+	/**
+	 * counts the values smaller than data, which is the position data has
+	 * or would have in ascending order
+	 * 
+	 * @param data
+	 *            value to rank
+	 * @return number of smaller values
+	 */
+	public int rank(E data) {
+		RBNode<E> current = root;
+		int rank = 0;
+
+		while (!current.equals(nil)) {
+			int cmp = compare(data, current.getData());
+			if (cmp == 0) {
+				return rank + current.left.size;
+			} else if (cmp < 0) {
+				current = current.left;
+			} else {
+				rank += current.left.size + 1;
+				current = current.right;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * finds the k-th smallest value
+	 * 
+	 * @param k
+	 *            position in ascending order, starting at 0
+	 * @return value at position k
+	 * @throws IndexOutOfBoundsException
+	 *             if k is not in [0, size)
+	 */
+	public E select(int k) {
+		if (k < 0 || k >= root.size) {
+			throw new IndexOutOfBoundsException("k: " + k + ", size: " + root.size);
+		}
+
+		RBNode<E> current = root;
+		while (true) {
+			int left = current.left.size;
+			if (k < left) {
+				current = current.left;
+			} else if (k > left) {
+				k -= left + 1;
+				current = current.right;
+			} else {
+				return current.getData();
+			}
+		}
+	}
+
+	/**
+	 * counts the nodes before a node in ascending order
+	 * 
+	 * @param node
+	 *            node in the tree, null for one past the maximum
+	 * @return position of node
+	 */
+	int rankOf(RBNode<E> node) {
+		if (node == null) {
+			return root.size;
+		}
+
+		int rank = node.left.size;
+		while (node.parent != null) {
+			if (node.parent.right == node) {
+				rank += node.parent.left.size + 1;
+			}
+			node = node.parent;
+		}
+		return rank;
+	}
+
+	/**
+	 * finds the smallest node
+	 * 
+	 * @return first node or null if empty
+	 */
+	RBNode<E> firstNode() {
+		return root.equals(nil) ? null : TreeIterator.leftmost(root, nil);
+	}
+
+	/**
+	 * finds the largest node
+	 * 
+	 * @return last node or null if empty
+	 */
+	RBNode<E> lastNode() {
+		if (root.equals(nil)) {
+			return null;
+		}
+
+		RBNode<E> current = root;
+		while (!current.right.equals(nil)) {
+			current = current.right;
+		}
+		return current;
+	}
+
+	/**
+	 * finds the closest node above or below a value in one descent
+	 * 
+	 * @param data
+	 *            value to search around
+	 * @param above
+	 *            true for ceiling/higher, false for floor/lower
+	 * @param inclusive
+	 *            true if a node equal to data counts
+	 * @return closest node or null if there is none
+	 */
+	RBNode<E> boundNode(E data, boolean above, boolean inclusive) {
+		RBNode<E> current = root;
+		RBNode<E> best = null;
+
+		while (!current.equals(nil)) {
+			int cmp = compare(data, current.getData());
+			if (cmp == 0 && inclusive) {
+				return current;
+			}
+			if (above ? cmp < 0 : cmp > 0) {
+				best = current;
+				current = above ? current.left : current.right;
+			} else {
+				current = above ? current.right : current.left;
+			}
+		}
+		return best;
+	}
+
+	private static <E extends Comparable<E>> E data(RBNode<E> node) {
+		return node == null ? null : node.getData();
+	}
+
+	@Override
+	public E lower(E e) {
+		return data(boundNode(e, false, false));
+	}
+
+	@Override
+	public E floor(E e) {
+		return data(boundNode(e, false, true));
+	}
+
+	@Override
+	public E ceiling(E e) {
+		return data(boundNode(e, true, true));
+	}
+
+	@Override
+	public E higher(E e) {
+		return data(boundNode(e, true, false));
+	}
+
+	@Override
+	public E first() {
+		if (root.equals(nil)) {
+			throw new NoSuchElementException();
+		}
+		return firstNode().getData();
+	}
+
+	@Override
+	public E last() {
+		if (root.equals(nil)) {
+			throw new NoSuchElementException();
+		}
+		return lastNode().getData();
+	}
+
+	@Override
+	public E pollFirst() {
+		RBNode<E> node = firstNode();
+		if (node == null) {
+			return null;
+		}
+		E data = node.getData();
+		delete(node);
+		return data;
+	}
+
+	@Override
+	public E pollLast() {
+		RBNode<E> node = lastNode();
+		if (node == null) {
+			return null;
+		}
+		E data = node.getData();
+		delete(node);
+		return data;
+	}
+
+	@Override
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public NavigableSet<E> descendingSet() {
+		return new RangeSet<E>(this, true, null, false, true, null, false, true);
+	}
+
+	/**
+	 * view of the values between two bounds. iteration starts at the lower
+	 * bound after one descent and stops at the upper bound
+	 */
+	@Override
+	public NavigableSet<E> subSet(E fromElement, boolean fromInclusive, E toElement, boolean toInclusive) {
+		return new RangeSet<E>(this, false, fromElement, fromInclusive, false, toElement, toInclusive, false);
+	}
+
+	@Override
+	public NavigableSet<E> headSet(E toElement, boolean inclusive) {
+		return new RangeSet<E>(this, true, null, false, false, toElement, inclusive, false);
+	}
+
+	@Override
+	public NavigableSet<E> tailSet(E fromElement, boolean inclusive) {
+		return new RangeSet<E>(this, false, fromElement, inclusive, true, null, false, false);
+	}
+
+	@Override
+	public SortedSet<E> subSet(E fromElement, E toElement) {
+		return subSet(fromElement, true, toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> headSet(E toElement) {
+		return headSet(toElement, false);
+	}
+
+	@Override
+	public SortedSet<E> tailSet(E fromElement) {
+		return tailSet(fromElement, true);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) {
+		return find((E) o);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean remove(Object o) {
+		return delete((E) o);
+	}
+
+	@Override
+	public boolean addAll(Collection<? extends E> c) {
+		return insertAll(c) > 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean removeAll(Collection<?> c) {
+		return deleteAll((Collection<? extends E>) c) > 0;
+	}
+
+	/**
+	 * removes every value
+	 */
+	@Override
+	public void clear() {
+		root = nil;
+	}
+
+	/**
+	 * checks if tree is empty
+	 * 
+	 * @return boolean
+	 */
+	public boolean isEmpty() {
+		return root.equals(nil);
+	}
+
+	/**
+	 * checks if node is a leaf
+	 * 
+	 * @param node
+	 *            node to be checked
+	 * @return boolean
+	 */
+	public boolean isLeaf(RBNode<E> node) {
+		return node.left.equals(nil) && node.right.equals(nil);
+	}
+
+	/**
+	 * checks if node is left child
+	 * 
+	 * @param node
+	 *            node to be checked
+	 * @return boolean
+	 */
+	public boolean isLeftChild(RBNode<E> node) {
+		if (node.equals(root)) {
+			return false;
+		}
+		return node.parent.left == node;
+	}
+
+	/**
+	 * checks if node is right child
 	 * 
 	 * @param node
 	 *            node to be checked
@@ -560,29 +1634,17 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @return list of nodes
 	 */
 	public ArrayList<RBNode<E>> preorder() {
-		ArrayList<RBNode<E>> sorted = new ArrayList<RBNode<E>>();
-
-		if (root == null) {
-
-		} else {
-			RBNode<E> current;
-			LinkedStack<RBNode<E>> stack = new LinkedStack<RBNode<E>>();
-
-			stack.push(root);
-
-			while (!stack.isEmpty()) {
-				current = stack.pop();
-				sorted.add(current);
+		return collect(TreeIterator.Order.PREORDER);
+	}
 
-				if (current.right != null) {
-					stack.push(current.right);
-				}
-				if (current.left != null) {
-					stack.push(current.left);
-				}
-			}
-		}
-		return sorted;
+	/**
+	 * lazy preorder traversal, nothing is copied and no allocation happens
+	 * per value
+	 * 
+	 * @return iterator of values
+	 */
+	public Iterator<E> preorderIterator() {
+		return new TreeIterator<E>(this, TreeIterator.Order.PREORDER);
 	}
 
 	/**
@@ -591,26 +1653,17 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @return list of nodes
 	 */
 	public ArrayList<RBNode<E>> inorder() {
-		ArrayList<RBNode<E>> sorted = new ArrayList<RBNode<E>>();
-
-		if (root == null) {
-			System.out.println("Tree is empty");
-		} else {
-			RBNode<E> current = root;
-			LinkedStack<RBNode<E>> stack = new LinkedStack<RBNode<E>>();
+		return collect(TreeIterator.Order.INORDER);
+	}
 
-			while (!stack.isEmpty() || current != null) {
-				if (current != null) {
-					stack.push(current);
-					current = current.left;
-				} else {
-					current = stack.pop();
-					sorted.add(current);
-					current = current.right;
-				}
-			}
-		}
-		return sorted;
+	/**
+	 * lazy inorder traversal, nothing is copied and no allocation happens
+	 * per value
+	 * 
+	 * @return iterator of values
+	 */
+	public Iterator<E> inorderIterator() {
+		return new TreeIterator<E>(this, TreeIterator.Order.INORDER);
 	}
 
 	/**
@@ -619,63 +1672,95 @@ public class RedBlackTree<E extends Comparable<E>> {
 	 * @return list of nodes
 	 */
 	public ArrayList<RBNode<E>> postorder() {
-		ArrayList<RBNode<E>> sorted = new ArrayList<RBNode<E>>();
+		return collect(TreeIterator.Order.POSTORDER);
+	}
 
-		if (root == null) {
-			System.out.println("Tree is empty");
-		} else {
-			RBNode<E> current = root;
-			LinkedStack<RBNode<E>> stack1 = new LinkedStack<RBNode<E>>();
-			LinkedStack<RBNode<E>> stack2 = new LinkedStack<RBNode<E>>();
+	/**
+	 * lazy postorder traversal, nothing is copied and no allocation happens
+	 * per value
+	 * 
+	 * @return iterator of values
+	 */
+	public Iterator<E> postorderIterator() {
+		return new TreeIterator<E>(this, TreeIterator.Order.POSTORDER);
+	}
 
-			stack1.push(root);
+	/**
+	 * creates a list of node using breadthfirst traversal
+	 * 
+	 * @return list of nodes
+	 */
+	public ArrayList<RBNode<E>> breadthfirst() {
+		return collect(TreeIterator.Order.BREADTHFIRST);
+	}
 
-			while (!stack1.isEmpty()) {
-				current = stack1.pop();
-				stack2.push(current);
+	/**
+	 * lazy breadthfirst traversal, nothing is copied and no allocation happens
+	 * per value apart from growing the level queue
+	 * 
+	 * @return iterator of values
+	 */
+	public Iterator<E> breadthfirstIterator() {
+		return new TreeIterator<E>(this, TreeIterator.Order.BREADTHFIRST);
+	}
 
-				if (current.left != null) {
-					stack1.push(current.left);
-				}
-				if (current.right != null) {
-					stack1.push((current.right));
-				}
-			}
+	/**
+	 * iterates values in ascending order, values can be removed through the
+	 * iterator
+	 * 
+	 * @return lazy ascending iterator
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new RangeIterator<E>(this, firstNode(), null, true);
+	}
 
-			while (!stack2.isEmpty()) {
-				current = stack2.pop();
-				sorted.add(current);
-			}
-		}
-		return sorted;
+	@Override
+	public Iterator<E> descendingIterator() {
+		return new RangeIterator<E>(this, lastNode(), null, false);
 	}
 
 	/**
-	 * creates a list of node using breadthfirst traversal
+	 * ascending spliterator that splits at subtree roots
 	 * 
-	 * @return list of nodes
+	 * @return spliterator of values
 	 */
-	public ArrayList<RBNode<E>> breadthfirst() {
-		ArrayList<RBNode<E>> sorted = new ArrayList<RBNode<E>>();
+	@Override
+	public Spliterator<E> spliterator() {
+		return new TreeSpliterator<E>(this, comparator);
+	}
 
-		if (root == null) {
-			System.out.println("Tree is empty");
-		} else {
-			RBNode<E> current = root;
-			Queue<RBNode<E>> que = new LinkedList<RBNode<E>>();
+	/**
+	 * sequential stream of values in ascending order
+	 * 
+	 * @return stream
+	 */
+	public Stream<E> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
+
+	/**
+	 * parallel stream of values, fork/join workers get whole subtrees
+	 * 
+	 * @return stream
+	 */
+	public Stream<E> parallelStream() {
+		return StreamSupport.stream(spliterator(), true);
+	}
 
-			que.add(root);
+	/**
+	 * copies the nodes of a traversal into a list
+	 * 
+	 * @param order
+	 *            traversal order
+	 * @return list of nodes
+	 */
+	private ArrayList<RBNode<E>> collect(TreeIterator.Order order) {
+		ArrayList<RBNode<E>> sorted = new ArrayList<RBNode<E>>();
+		TreeIterator<E> it = new TreeIterator<E>(this, order);
 
-			while (!que.isEmpty()) {
-				current = que.remove();
-				sorted.add(current);
-				if (current.left != null) {
-					que.add(current.left);
-				}
-				if (current.right != null) {
-					que.add(current.right);
-				}
-			}
+		while (it.hasNext()) {
+			sorted.add(it.nextNode());
 		}
 		return sorted;
 	}
@@ -716,7 +1801,7 @@ public class RedBlackTree<E extends Comparable<E>> {
 		if (node == null) {
 			System.out.print("<null>");
 		} else {
-			System.out.print(node.getData() + node.color);
+			System.out.print(node.getData() + (node.color == RBNode.RED ? "R" : "B"));
 		}
 		System.out.println();
 	}
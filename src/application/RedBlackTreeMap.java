@@ -0,0 +1,193 @@
+package application;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.SortedMap;
+
+/**
+ * sorted map on top of {@link RedBlackTree}. the tree stores key/value
+ * entries ordered by key, so the map shares the node and rebalancing code of
+ * the set. sub maps are views over a range of the same tree
+ *
+ * @author Alex
+ *
+ * @param <K>
+ *            key type
+ * @param <V>
+ *            value type
+ */
+public class RedBlackTreeMap<K extends Comparable<K>, V> extends AbstractMap<K, V> implements SortedMap<K, V> {
+	private final Comparator<? super K> comparator;
+	private final NavigableSet<RBEntry<K, V>> entries;
+
+	/**
+	 * default constructor, keys use their natural order
+	 */
+	public RedBlackTreeMap() {
+		this.comparator = null;
+		this.entries = new RedBlackTree<RBEntry<K, V>>();
+	}
+
+	/**
+	 * constructs map ordered by a comparator
+	 *
+	 * @param comparator
+	 *            key ordering, null for natural order
+	 */
+	public RedBlackTreeMap(Comparator<? super K> comparator) {
+		this.comparator = comparator;
+		if (comparator == null) {
+			this.entries = new RedBlackTree<RBEntry<K, V>>();
+		} else {
+			this.entries = new RedBlackTree<RBEntry<K, V>>((a, b) -> comparator.compare(a.getKey(), b.getKey()));
+		}
+	}
+
+	private RedBlackTreeMap(Comparator<? super K> comparator, NavigableSet<RBEntry<K, V>> entries) {
+		this.comparator = comparator;
+		this.entries = entries;
+	}
+
+	private int compare(K a, K b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+
+	/**
+	 * entry with only a key, used to search the tree
+	 */
+	private RBEntry<K, V> probe(K key) {
+		return new RBEntry<K, V>(key, null);
+	}
+
+	/**
+	 * finds the entry for a key
+	 *
+	 * @param key
+	 *            key to look for
+	 * @return entry or null if the key is absent or outside this view
+	 */
+	@SuppressWarnings("unchecked")
+	private RBEntry<K, V> entry(Object key) {
+		K k = (K) key;
+		RBEntry<K, V> e = entries.ceiling(probe(k));
+		return e != null && compare(e.getKey(), k) == 0 ? e : null;
+	}
+
+	@Override
+	public V get(Object key) {
+		RBEntry<K, V> e = entry(key);
+		return e == null ? null : e.getValue();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return entry(key) != null;
+	}
+
+	@Override
+	public V put(K key, V value) {
+		RBEntry<K, V> e = entry(key);
+
+		if (e != null) {
+			return e.setValue(value);
+		}
+		entries.add(new RBEntry<K, V>(key, value));
+		return null;
+	}
+
+	@Override
+	public V remove(Object key) {
+		RBEntry<K, V> e = entry(key);
+
+		if (e == null) {
+			return null;
+		}
+		entries.remove(e);
+		return e.getValue();
+	}
+
+	@Override
+	public int size() {
+		return entries.size();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return entries.isEmpty();
+	}
+
+	@Override
+	public void clear() {
+		entries.clear();
+	}
+
+	@Override
+	public Comparator<? super K> comparator() {
+		return comparator;
+	}
+
+	@Override
+	public K firstKey() {
+		return entries.first().getKey();
+	}
+
+	@Override
+	public K lastKey() {
+		return entries.last().getKey();
+	}
+
+	@Override
+	public SortedMap<K, V> subMap(K fromKey, K toKey) {
+		return new RedBlackTreeMap<K, V>(comparator, entries.subSet(probe(fromKey), true, probe(toKey), false));
+	}
+
+	@Override
+	public SortedMap<K, V> headMap(K toKey) {
+		return new RedBlackTreeMap<K, V>(comparator, entries.headSet(probe(toKey), false));
+	}
+
+	@Override
+	public SortedMap<K, V> tailMap(K fromKey) {
+		return new RedBlackTreeMap<K, V>(comparator, entries.tailSet(probe(fromKey), true));
+	}
+
+	/**
+	 * entries in key order, removal through the iterator goes to the tree
+	 */
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return new AbstractSet<Map.Entry<K, V>>() {
+			@Override
+			public Iterator<Map.Entry<K, V>> iterator() {
+				Iterator<RBEntry<K, V>> it = entries.iterator();
+
+				return new Iterator<Map.Entry<K, V>>() {
+					@Override
+					public boolean hasNext() {
+						return it.hasNext();
+					}
+
+					@Override
+					public Map.Entry<K, V> next() {
+						return it.next();
+					}
+
+					@Override
+					public void remove() {
+						it.remove();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return entries.size();
+			}
+		};
+	}
+}
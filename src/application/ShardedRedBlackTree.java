@@ -0,0 +1,466 @@
+package application;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * red black tree split into shards by key range, each shard a separate tree
+ * with its own lock, so writers to different ranges never wait for each
+ * other
+ *
+ * the shard boundaries form a layout that only changes when rebalancing.
+ * a single value operation reads the layout under an optimistic stamp, locks
+ * its shard and then validates the stamp, so the layout lock itself is never
+ * written on the common path. rebalancing takes the layout write lock and
+ * then every shard lock, which waits out operations already inside a shard
+ *
+ * boundaries start as quantiles of a sample of expected values. when a shard
+ * grows past twice the mean shard size the values are repartitioned evenly
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public class ShardedRedBlackTree<E extends Comparable<E>> implements Iterable<E> {
+	/**
+	 * size a shard may reach before the first skew check
+	 */
+	private static final int MIN_SHARD_SIZE = 1024;
+
+	/**
+	 * how many times the mean size a shard may hold before repartitioning
+	 */
+	private static final int SKEW = 2;
+
+	private final int shards;
+	private final StampedLock lock = new StampedLock();
+	private Layout<E> layout;
+	/**
+	 * times the values were repartitioned, guarded by the layout lock
+	 */
+	private int repartitions;
+
+	/**
+	 * one key range
+	 */
+	private static final class Shard<E extends Comparable<E>> {
+		final RedBlackTree<E> tree;
+		final StampedLock lock = new StampedLock();
+		final Lock read = lock.asReadLock();
+		final Lock write = lock.asWriteLock();
+		/**
+		 * size that triggers a skew check, guarded by the write lock
+		 */
+		int limit;
+
+		Shard(RedBlackTree<E> tree, int limit) {
+			this.tree = tree;
+			this.limit = limit;
+		}
+	}
+
+	/**
+	 * shards in ascending order and the smallest value each one after the
+	 * first may hold
+	 */
+	private static final class Layout<E extends Comparable<E>> {
+		final E[] bounds;
+		final Shard<E>[] shards;
+
+		Layout(E[] bounds, Shard<E>[] shards) {
+			this.bounds = bounds;
+			this.shards = shards;
+		}
+
+		/**
+		 * finds the shard a value belongs to
+		 *
+		 * @param data
+		 *            value
+		 * @return index of shard
+		 */
+		int index(E data) {
+			int lo = 0;
+			int hi = bounds.length;
+
+			while (lo < hi) {
+				int mid = (lo + hi) >>> 1;
+				if (data.compareTo(bounds[mid]) >= 0) {
+					lo = mid + 1;
+				} else {
+					hi = mid;
+				}
+			}
+			return lo;
+		}
+	}
+
+	/**
+	 * constructs tree that starts with one shard and splits into the given
+	 * number once it holds enough values to pick boundaries from
+	 *
+	 * @param shards
+	 *            number of shards
+	 */
+	public ShardedRedBlackTree(int shards) {
+		this(shards, new ArrayList<E>());
+	}
+
+	/**
+	 * constructs empty tree with boundaries taken from a sample of the
+	 * values expected
+	 *
+	 * @param shards
+	 *            number of shards
+	 * @param sample
+	 *            values the boundaries are chosen from
+	 * @throws IllegalArgumentException
+	 *             if shards is not positive
+	 */
+	public ShardedRedBlackTree(int shards, Collection<? extends E> sample) {
+		if (shards < 1) {
+			throw new IllegalArgumentException("shards: " + shards);
+		}
+		this.shards = shards;
+
+		ArrayList<E> keys = new ArrayList<E>(new RedBlackTree<E>(sample));
+		this.layout = partition(keys, false, MIN_SHARD_SIZE);
+	}
+
+	/**
+	 * adds data if it is not there yet
+	 *
+	 * @param data
+	 *            value to add
+	 * @return true if the value was added
+	 */
+	public boolean add(E data) {
+		Shard<E> shard = acquire(data, true);
+		boolean added;
+		boolean overfull;
+
+		try {
+			added = shard.tree.add(data);
+			overfull = shard.tree.size() > shard.limit;
+		} finally {
+			shard.write.unlock();
+		}
+
+		if (overfull) {
+			rebalance(shard);
+		}
+		return added;
+	}
+
+	/**
+	 * deletes data
+	 *
+	 * @param data
+	 *            value to delete
+	 * @return true if the value was in the tree
+	 */
+	public boolean delete(E data) {
+		Shard<E> shard = acquire(data, true);
+		try {
+			return shard.tree.delete(data);
+		} finally {
+			shard.write.unlock();
+		}
+	}
+
+	/**
+	 * checks if value is in tree
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		Shard<E> shard = acquire(data, false);
+		try {
+			return shard.tree.find(data);
+		} finally {
+			shard.read.unlock();
+		}
+	}
+
+	/**
+	 * number of values in the tree, counted with every shard locked at once
+	 *
+	 * @return size
+	 */
+	public int size() {
+		long stamp = lock.readLock();
+		try {
+			Shard<E>[] current = layout.shards;
+			int size = 0;
+
+			lockAll(current, false);
+			try {
+				for (Shard<E> shard : current) {
+					size += shard.tree.size();
+				}
+			} finally {
+				unlockAll(current, false);
+			}
+			return size;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * number of shards in the current layout
+	 *
+	 * @return shard count
+	 */
+	public int shardCount() {
+		long stamp = lock.readLock();
+		try {
+			return layout.shards.length;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * number of times the values were repartitioned because a shard grew
+	 * too large
+	 *
+	 * @return repartitions
+	 */
+	int repartitions() {
+		long stamp = lock.readLock();
+		try {
+			return repartitions;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * copies the values in [from, to) in ascending order. only the shards
+	 * overlapping the range are locked, all of them at once
+	 *
+	 * @param from
+	 *            lowest value, inclusive
+	 * @param to
+	 *            upper bound, exclusive
+	 * @return values in range
+	 * @throws IllegalArgumentException
+	 *             if from is above to
+	 */
+	public List<E> range(E from, E to) {
+		if (from.compareTo(to) > 0) {
+			throw new IllegalArgumentException("from > to");
+		}
+
+		long stamp = lock.readLock();
+		try {
+			Layout<E> current = layout;
+			int first = current.index(from);
+			int last = current.index(to);
+			ArrayList<E> values = new ArrayList<E>();
+
+			for (int i = first; i <= last; i++) {
+				current.shards[i].read.lock();
+			}
+			try {
+				for (int i = first; i <= last; i++) {
+					values.addAll(current.shards[i].tree.subSet(from, true, to, false));
+				}
+			} finally {
+				for (int i = first; i <= last; i++) {
+					current.shards[i].read.unlock();
+				}
+			}
+			return values;
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * iterates every value in ascending order. a snapshot of each shard is
+	 * taken with all shards locked, so the iterator sees one point in time
+	 * and writers carry on while it runs
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		final ArrayList<TreeSnapshot<E>> snapshots = new ArrayList<TreeSnapshot<E>>();
+
+		long stamp = lock.readLock();
+		try {
+			Shard<E>[] current = layout.shards;
+
+			lockAll(current, true);
+			try {
+				for (Shard<E> shard : current) {
+					snapshots.add(shard.tree.snapshot());
+				}
+			} finally {
+				unlockAll(current, true);
+			}
+		} finally {
+			lock.unlockRead(stamp);
+		}
+
+		return new Iterator<E>() {
+			private int shard = 0;
+			private Iterator<E> values = snapshots.get(0).iterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!values.hasNext() && shard + 1 < snapshots.size()) {
+					values = snapshots.get(++shard).iterator();
+				}
+				return values.hasNext();
+			}
+
+			@Override
+			public E next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return values.next();
+			}
+		};
+	}
+
+	/**
+	 * locks the shard a value belongs to. the layout is read without
+	 * locking and checked after the shard lock is held, if it changed in
+	 * between the shard is unlocked and the lookup runs again
+	 *
+	 * @param data
+	 *            value
+	 * @param write
+	 *            true for the write lock, false for the read lock
+	 * @return locked shard
+	 */
+	private Shard<E> acquire(E data, boolean write) {
+		while (true) {
+			long stamp = lock.tryOptimisticRead();
+			Layout<E> current = layout;
+			Shard<E> shard = current.shards[current.index(data)];
+			Lock held = write ? shard.write : shard.read;
+
+			held.lock();
+			if (stamp != 0 && lock.validate(stamp)) {
+				return shard;
+			}
+			held.unlock();
+
+			if (stamp == 0) {
+				// a rebalance is running, wait for it instead of spinning
+				lock.unlockRead(lock.readLock());
+			}
+		}
+	}
+
+	/**
+	 * checks the shard sizes after a shard went over its limit. if the
+	 * largest is more than {@link #SKEW} times the mean every value is
+	 * repartitioned, otherwise only the limits are raised
+	 *
+	 * @param overfull
+	 *            shard that went over its limit
+	 */
+	private void rebalance(Shard<E> overfull) {
+		long stamp = lock.writeLock();
+		try {
+			Shard<E>[] current = layout.shards;
+			boolean live = false;
+			for (Shard<E> shard : current) {
+				live |= shard == overfull;
+			}
+			if (!live) {
+				// another thread rebalanced first
+				return;
+			}
+
+			lockAll(current, true);
+			try {
+				int total = 0;
+				int largest = 0;
+				for (Shard<E> shard : current) {
+					total += shard.tree.size();
+					largest = Math.max(largest, shard.tree.size());
+				}
+
+				int limit = Math.max(MIN_SHARD_SIZE, SKEW * (total / current.length));
+				if (largest <= limit && current.length == Math.min(shards, Math.max(total, 1))) {
+					for (Shard<E> shard : current) {
+						shard.limit = limit;
+					}
+					return;
+				}
+
+				ArrayList<E> values = new ArrayList<E>(total);
+				for (Shard<E> shard : current) {
+					values.addAll(shard.tree);
+				}
+				layout = partition(values, true, limit);
+				repartitions++;
+			} finally {
+				unlockAll(current, true);
+			}
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * splits sorted distinct values into equal ranges, each becoming a
+	 * shard. with no values yet there is a single shard
+	 *
+	 * @param keys
+	 *            sorted distinct values, a sample or the full contents
+	 * @param fill
+	 *            true to load the keys into the shards, false if they are
+	 *            only a sample
+	 * @param limit
+	 *            size that triggers the next skew check
+	 * @return new layout
+	 */
+	@SuppressWarnings("unchecked")
+	private Layout<E> partition(List<E> keys, boolean fill, int limit) {
+		int count = Math.min(shards, Math.max(keys.size(), 1));
+		E[] bounds = (E[]) new Comparable<?>[count - 1];
+		Shard<E>[] parts = (Shard<E>[]) new Shard<?>[count];
+
+		int lo = 0;
+		for (int i = 0; i < count; i++) {
+			int hi = (int) ((long) (i + 1) * keys.size() / count);
+			if (i > 0) {
+				bounds[i - 1] = keys.get(lo);
+			}
+			RedBlackTree<E> tree = fill ? new RedBlackTree<E>(keys.subList(lo, hi)) : new RedBlackTree<E>();
+			parts[i] = new Shard<E>(tree, limit);
+			lo = hi;
+		}
+		return new Layout<E>(bounds, parts);
+	}
+
+	/**
+	 * locks every shard in ascending order, the order all multi shard locking
+	 * follows
+	 */
+	private static <E extends Comparable<E>> void lockAll(Shard<E>[] shards, boolean write) {
+		for (Shard<E> shard : shards) {
+			(write ? shard.write : shard.read).lock();
+		}
+	}
+
+	private static <E extends Comparable<E>> void unlockAll(Shard<E>[] shards, boolean write) {
+		for (Shard<E> shard : shards) {
+			(write ? shard.write : shard.read).unlock();
+		}
+	}
+}
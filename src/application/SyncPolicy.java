@@ -0,0 +1,70 @@
+package application;
+
+/**
+ * when a write-ahead log forces its records to disk
+ *
+ * @author Alex
+ *
+ */
+public final class SyncPolicy {
+	/**
+	 * kinds of policy
+	 */
+	enum Mode {
+		EVERY_OPERATION, GROUP, NONE
+	}
+
+	final Mode mode;
+	final long millis;
+	final int operations;
+
+	private SyncPolicy(Mode mode, long millis, int operations) {
+		this.mode = mode;
+		this.millis = millis;
+		this.operations = operations;
+	}
+
+	/**
+	 * forces every record before the operation returns, nothing
+	 * acknowledged is ever lost
+	 *
+	 * @return policy
+	 */
+	public static SyncPolicy everyOperation() {
+		return new SyncPolicy(Mode.EVERY_OPERATION, 0, 1);
+	}
+
+	/**
+	 * forces records in groups, once enough operations are waiting or the
+	 * oldest has waited long enough. a crash loses at most that window
+	 *
+	 * @param millis
+	 *            longest time a record waits to be forced
+	 * @param operations
+	 *            number of records that triggers a force
+	 * @return policy
+	 * @throws IllegalArgumentException
+	 *             if either bound is not positive
+	 */
+	public static SyncPolicy group(long millis, int operations) {
+		if (millis <= 0 || operations <= 0) {
+			throw new IllegalArgumentException("millis: " + millis + ", operations: " + operations);
+		}
+		return new SyncPolicy(Mode.GROUP, millis, operations);
+	}
+
+	/**
+	 * never forces, records reach the file when the buffer fills and are
+	 * only forced on checkpoint or close
+	 *
+	 * @return policy
+	 */
+	public static SyncPolicy none() {
+		return new SyncPolicy(Mode.NONE, 0, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public String toString() {
+		return mode == Mode.GROUP ? "GROUP(" + millis + "ms, " + operations + " ops)" : mode.toString();
+	}
+}
@@ -0,0 +1,47 @@
+package application;
+
+import java.util.Comparator;
+
+/**
+ * ordered set implementations to choose from
+ *
+ * @author Alex
+ *
+ */
+public enum TreeEngine {
+	/**
+	 * {@link RedBlackTree}, one value per node
+	 */
+	RED_BLACK,
+
+	/**
+	 * {@link BTreeSet}, many values per node so a lookup visits far fewer
+	 * nodes
+	 */
+	B_TREE;
+
+	/**
+	 * creates an empty set in natural order
+	 *
+	 * @return set
+	 */
+	public <E extends Comparable<E>> OrderedSet<E> create() {
+		return create(null);
+	}
+
+	/**
+	 * creates an empty set ordered by a comparator
+	 *
+	 * @param comparator
+	 *            ordering, null for natural order
+	 * @return set
+	 */
+	public <E extends Comparable<E>> OrderedSet<E> create(Comparator<? super E> comparator) {
+		switch (this) {
+		case B_TREE:
+			return new BTreeSet<E>(comparator);
+		default:
+			return new RedBlackTree<E>(comparator);
+		}
+	}
+}
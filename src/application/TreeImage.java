@@ -0,0 +1,291 @@
+package application;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+
+/**
+ * binary image of a red black tree. the layout is
+ *
+ * <pre>
+ * int  magic
+ * int  codec tag
+ * int  number of keys
+ * long number of key bytes
+ * keys in ascending order
+ * color bits, bit i set if key i is red
+ * </pre>
+ *
+ * the colors are those of the balanced tree the bulk loader builds from the
+ * sorted keys, so reading the image gives that exact tree in O(n) without a
+ * single comparison
+ *
+ * a single mapping is limited to 2 GB, so the keys are read through a
+ * window that is remapped as the build moves along them
+ *
+ * @author Alex
+ *
+ */
+final class TreeImage {
+	private static final int MAGIC = 0x52425431;
+	private static final int HEADER = 20;
+	private static final int BUFFER_SIZE = 1 << 16;
+	private static final int WINDOW_SIZE = 1 << 30;
+
+	private TreeImage() {
+	}
+
+	/**
+	 * writes an image next to the file and moves it over the file once it
+	 * is on disk, then forces the directory so the move is on disk too. a
+	 * crash leaves either the old image or the new one
+	 *
+	 * @param tree
+	 *            tree to write
+	 * @param path
+	 *            file to write
+	 * @param codec
+	 *            key codec
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	static <E extends Comparable<E>> void write(RedBlackTree<E> tree, Path path, KeyCodec<E> codec)
+			throws IOException {
+		int count = tree.size();
+		byte[] colors = new byte[(count + 7) >>> 3];
+		if (count > 0) {
+			paint(colors, 0, count - 1, 0, 31 - Integer.numberOfLeadingZeros(count));
+		}
+
+		Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+		try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+			long keyBytes = 0;
+
+			// the header is filled in last, once the key bytes are known
+			buffer.position(HEADER);
+			for (E key : tree) {
+				int size = codec.size(key);
+				if (buffer.remaining() < size) {
+					flush(channel, buffer);
+					if (buffer.capacity() < size) {
+						buffer = ByteBuffer.allocate(size);
+					}
+				}
+				codec.write(buffer, key);
+				keyBytes += size;
+			}
+			flush(channel, buffer);
+
+			ByteBuffer bits = ByteBuffer.wrap(colors);
+			while (bits.hasRemaining()) {
+				channel.write(bits);
+			}
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			header.putInt(MAGIC).putInt(codec.tag()).putInt(count).putLong(keyBytes).flip();
+			while (header.hasRemaining()) {
+				channel.write(header, header.position());
+			}
+			channel.force(true);
+		}
+		Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		forceDirectory(path.toAbsolutePath().getParent());
+	}
+
+	/**
+	 * forces a directory, so entries created, renamed or removed in it
+	 * survive a crash
+	 *
+	 * @param directory
+	 *            directory to force
+	 * @throws IOException
+	 *             if forcing fails
+	 */
+	static void forceDirectory(Path directory) throws IOException {
+		try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+			channel.force(true);
+		} catch (AccessDeniedException e) {
+			// windows cannot open a directory, and makes renames durable itself
+		}
+	}
+
+	/**
+	 * maps an image and builds its tree. keys are decoded straight from the
+	 * mapping in order while the tree is built bottom up
+	 *
+	 * @param path
+	 *            file to read
+	 * @param codec
+	 *            key codec the image was written with
+	 * @param comparator
+	 *            ordering the image was written in, null for natural order
+	 * @return tree
+	 * @throws IOException
+	 *             if the file cannot be read or is not an image for codec
+	 */
+	static <E extends Comparable<E>> RedBlackTree<E> read(Path path, KeyCodec<E> codec,
+			Comparator<? super E> comparator) throws IOException {
+		return read(path, codec, comparator, WINDOW_SIZE);
+	}
+
+	/**
+	 * reads an image through key windows of a given size
+	 *
+	 * @param window
+	 *            bytes of keys mapped at a time, grown for a key that does
+	 *            not fit
+	 */
+	static <E extends Comparable<E>> RedBlackTree<E> read(Path path, KeyCodec<E> codec,
+			Comparator<? super E> comparator, int window) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long length = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+			}
+			header.flip();
+
+			if (header.limit() < HEADER || header.getInt(0) != MAGIC) {
+				throw new IOException(path + " is not a tree image");
+			}
+			if (header.getInt(4) != codec.tag()) {
+				throw new IOException(path + " was written with codec " + header.getInt(4));
+			}
+
+			int count = header.getInt(8);
+			long keyBytes = header.getLong(12);
+			if (count < 0 || keyBytes < 0 || HEADER + keyBytes + ((count + 7L) >>> 3) != length) {
+				throw new IOException(path + " is truncated or corrupt");
+			}
+
+			RedBlackTree<E> tree = new RedBlackTree<E>(comparator);
+			if (count > 0) {
+				MappedByteBuffer colors = channel.map(FileChannel.MapMode.READ_ONLY, HEADER + keyBytes,
+						(count + 7L) >>> 3);
+				KeyWindow<E> keys = new KeyWindow<E>(channel, codec, HEADER, HEADER + keyBytes, window);
+
+				tree.root = build(tree.nil, keys, colors, 0, count - 1);
+				tree.root.parent = null;
+				if (keys.offset() != HEADER + keyBytes) {
+					throw new IOException(path + " is truncated or corrupt");
+				}
+			}
+			return tree;
+		}
+	}
+
+	/**
+	 * reads keys in order through a mapped window of the file. a key cut by
+	 * the end of the window underflows, the window is then remapped to start
+	 * at that key and the key is read again. codecs read with relative gets,
+	 * so the cut always shows as an underflow
+	 */
+	private static final class KeyWindow<E> {
+		private final FileChannel channel;
+		private final KeyCodec<E> codec;
+		private final long end;
+		private int size;
+		private long base;
+		private MappedByteBuffer window;
+
+		KeyWindow(FileChannel channel, KeyCodec<E> codec, long start, long end, int size) throws IOException {
+			this.channel = channel;
+			this.codec = codec;
+			this.end = end;
+			this.size = size;
+			map(start);
+		}
+
+		E next() throws IOException {
+			while (true) {
+				int start = window.position();
+				try {
+					return codec.read(window);
+				} catch (BufferUnderflowException e) {
+					long at = base + start;
+					if (at + window.capacity() >= end && start == 0) {
+						throw new IOException("key at " + at + " runs past the end of the keys");
+					}
+					if (start == 0) {
+						// a single key wider than the window
+						if (size > Integer.MAX_VALUE / 2) {
+							throw new IOException("key at " + at + " is larger than a mapping");
+						}
+						size *= 2;
+					}
+					map(at);
+				}
+			}
+		}
+
+		long offset() {
+			return base + window.position();
+		}
+
+		private void map(long at) throws IOException {
+			base = at;
+			window = channel.map(FileChannel.MapMode.READ_ONLY, at, Math.min(size, end - at));
+		}
+	}
+
+	/**
+	 * marks the red nodes of the balanced tree over a range, the same shape
+	 * and coloring the bulk loader uses
+	 */
+	private static void paint(byte[] colors, int lo, int hi, int depth, int redDepth) {
+		if (lo > hi) {
+			return;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		if (depth == redDepth && depth > 0) {
+			colors[mid >>> 3] |= 1 << (mid & 7);
+		}
+		paint(colors, lo, mid - 1, depth + 1, redDepth);
+		paint(colors, mid + 1, hi, depth + 1, redDepth);
+	}
+
+	/**
+	 * builds the subtree over a range of keys in order, so keys are read
+	 * from the image sequentially whatever their width
+	 */
+	private static <E extends Comparable<E>> RBNode<E> build(RBNode<E> nil, KeyWindow<E> keys, ByteBuffer colors,
+			int lo, int hi) throws IOException {
+		if (lo > hi) {
+			return nil;
+		}
+
+		int mid = (lo + hi) >>> 1;
+		RBNode<E> left = build(nil, keys, colors, lo, mid - 1);
+		boolean red = (colors.get(mid >>> 3) & (1 << (mid & 7))) != 0;
+		RBNode<E> node = new RBNode<E>(keys.next(), red ? RBNode.RED : RBNode.BLACK);
+
+		node.size = hi - lo + 1;
+		node.left = left;
+		node.right = build(nil, keys, colors, mid + 1, hi);
+		if (!left.equals(nil)) {
+			left.parent = node;
+		}
+		if (!node.right.equals(nil)) {
+			node.right.parent = node;
+		}
+		return node;
+	}
+
+	private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,217 @@
+package application;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * lazy traversal of a red black tree. depth first orders step through the
+ * parent pointers and allocate nothing, breadth first keeps one array queue
+ * that only grows when a level is wider than any before it
+ *
+ * the tree must not be changed while iterating
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+class TreeIterator<E extends Comparable<E>> implements Iterator<E> {
+	/**
+	 * traversal orders
+	 */
+	enum Order {
+		PREORDER, INORDER, POSTORDER, BREADTHFIRST
+	}
+
+	private final Order order;
+	private final RBNode<E> nil;
+	private RBNode<E> next;
+
+	private Object[] queue;
+	private int head;
+	private int count;
+
+	/**
+	 * constructs iterator positioned before the first node
+	 *
+	 * @param tree
+	 *            tree to traverse
+	 * @param order
+	 *            traversal order
+	 */
+	TreeIterator(RedBlackTree<E> tree, Order order) {
+		this.order = order;
+		this.nil = tree.nil;
+
+		RBNode<E> root = tree.root;
+		if (root == null || root.equals(nil)) {
+			return;
+		}
+
+		switch (order) {
+		case PREORDER:
+			next = root;
+			break;
+		case INORDER:
+			next = leftmost(root, nil);
+			break;
+		case POSTORDER:
+			next = firstPostorder(root);
+			break;
+		case BREADTHFIRST:
+			queue = new Object[16];
+			next = root;
+			break;
+		}
+	}
+
+	@Override
+	public boolean hasNext() {
+		return next != null;
+	}
+
+	@Override
+	public E next() {
+		return nextNode().getData();
+	}
+
+	/**
+	 * moves to the next node
+	 *
+	 * @return current node
+	 */
+	RBNode<E> nextNode() {
+		RBNode<E> current = next;
+
+		if (current == null) {
+			throw new NoSuchElementException();
+		}
+
+		switch (order) {
+		case PREORDER:
+			next = preorderSuccessor(current);
+			break;
+		case INORDER:
+			next = successor(current, nil);
+			break;
+		case POSTORDER:
+			next = postorderSuccessor(current);
+			break;
+		case BREADTHFIRST:
+			next = breadthfirstSuccessor(current);
+			break;
+		}
+		return current;
+	}
+
+	private RBNode<E> preorderSuccessor(RBNode<E> node) {
+		if (!node.left.equals(nil)) {
+			return node.left;
+		}
+		if (!node.right.equals(nil)) {
+			return node.right;
+		}
+
+		while (node.parent != null) {
+			RBNode<E> parent = node.parent;
+			if (parent.left == node && !parent.right.equals(nil)) {
+				return parent.right;
+			}
+			node = parent;
+		}
+		return null;
+	}
+
+	private RBNode<E> postorderSuccessor(RBNode<E> node) {
+		RBNode<E> parent = node.parent;
+
+		if (parent == null) {
+			return null;
+		}
+		if (parent.left == node && !parent.right.equals(nil)) {
+			return firstPostorder(parent.right);
+		}
+		return parent;
+	}
+
+	@SuppressWarnings("unchecked")
+	private RBNode<E> breadthfirstSuccessor(RBNode<E> node) {
+		if (!node.left.equals(nil)) {
+			offer(node.left);
+		}
+		if (!node.right.equals(nil)) {
+			offer(node.right);
+		}
+
+		if (count == 0) {
+			return null;
+		}
+
+		RBNode<E> first = (RBNode<E>) queue[head];
+		queue[head] = null;
+		head = (head + 1) & (queue.length - 1);
+		count--;
+		return first;
+	}
+
+	private void offer(RBNode<E> node) {
+		if (count == queue.length) {
+			Object[] grown = new Object[queue.length * 2];
+			for (int i = 0; i < count; i++) {
+				grown[i] = queue[(head + i) & (queue.length - 1)];
+			}
+			queue = grown;
+			head = 0;
+		}
+		queue[(head + count) & (queue.length - 1)] = node;
+		count++;
+	}
+
+	/**
+	 * finds the next node in ascending order
+	 *
+	 * @param node
+	 *            node to start from
+	 * @param nil
+	 *            sentinel of the tree
+	 * @return successor or null after the maximum
+	 */
+	static <E extends Comparable<E>> RBNode<E> successor(RBNode<E> node, RBNode<E> nil) {
+		if (!node.right.equals(nil)) {
+			return leftmost(node.right, nil);
+		}
+
+		while (node.parent != null && node.parent.right == node) {
+			node = node.parent;
+		}
+		return node.parent;
+	}
+
+	/**
+	 * finds the smallest node of a subtree
+	 *
+	 * @param node
+	 *            subtree root, not nil
+	 * @param nil
+	 *            sentinel of the tree
+	 * @return leftmost node
+	 */
+	static <E extends Comparable<E>> RBNode<E> leftmost(RBNode<E> node, RBNode<E> nil) {
+		while (!node.left.equals(nil)) {
+			node = node.left;
+		}
+		return node;
+	}
+
+	private RBNode<E> firstPostorder(RBNode<E> node) {
+		while (true) {
+			if (!node.left.equals(nil)) {
+				node = node.left;
+			} else if (!node.right.equals(nil)) {
+				node = node.right;
+			} else {
+				return node;
+			}
+		}
+	}
+}
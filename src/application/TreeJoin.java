@@ -0,0 +1,456 @@
+package application;
+
+import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * split, join and the set operations built on them, after Blelloch,
+ * Ferizovic and Sun, "Just Join for Parallel Ordered Sets". join links two
+ * trees and a middle node in time proportional to the difference of their
+ * black heights, split cuts a tree at a value with a join per level, and
+ * union, intersection and difference of trees of sizes n and m &lt;= n take
+ * O(m log(n / m + 1)) work. the two halves of every set operation touch
+ * disjoint nodes, so they run as fork join tasks
+ *
+ * the operations take nodes from their inputs instead of copying them.
+ * every node the operations change is first owned at the result epoch, a
+ * node from an older epoch may still be reachable from a snapshot so a copy
+ * is changed instead
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+final class TreeJoin<E extends Comparable<E>> {
+	/**
+	 * smallest pair of trees worth splitting into two tasks
+	 */
+	private static final int PARALLEL = 1 << 13;
+
+	private final RBNode<E> nil;
+	private final Comparator<? super E> comparator;
+	private final int epoch;
+
+	/**
+	 * set operations
+	 */
+	enum Operation {
+		UNION, INTERSECTION, DIFFERENCE
+	}
+
+	/**
+	 * tree root with its black height, the number of black nodes on every
+	 * path from the root down, nil not counted
+	 */
+	static final class Part<E extends Comparable<E>> {
+		final RBNode<E> root;
+		final int height;
+
+		Part(RBNode<E> root, int height) {
+			this.root = root;
+			this.height = height;
+		}
+	}
+
+	/**
+	 * values below a split value, the node holding it if any, and values
+	 * above it
+	 */
+	static final class Split<E extends Comparable<E>> {
+		final Part<E> left;
+		final RBNode<E> match;
+		final Part<E> right;
+
+		Split(Part<E> left, RBNode<E> match, Part<E> right) {
+			this.left = left;
+			this.match = match;
+			this.right = right;
+		}
+	}
+
+	/**
+	 * constructs operations
+	 *
+	 * @param nil
+	 *            shared leaf
+	 * @param comparator
+	 *            ordering, null for natural order
+	 * @param epoch
+	 *            epoch of the result, nodes of this epoch are changed in
+	 *            place
+	 */
+	TreeJoin(RBNode<E> nil, Comparator<? super E> comparator, int epoch) {
+		this.nil = nil;
+		this.comparator = comparator;
+		this.epoch = epoch;
+	}
+
+	/**
+	 * wraps a whole tree, its black height read off the left spine
+	 *
+	 * @param root
+	 *            root of a valid red black tree
+	 * @return part
+	 */
+	Part<E> whole(RBNode<E> root) {
+		int height = 0;
+		for (RBNode<E> current = root; current != nil; current = current.left) {
+			if (current.color == RBNode.BLACK) {
+				height++;
+			}
+		}
+		return new Part<E>(root, height);
+	}
+
+	/**
+	 * makes a part the root of a tree, black and without a parent
+	 *
+	 * @param part
+	 *            result of an operation
+	 * @return root
+	 */
+	RBNode<E> finish(Part<E> part) {
+		if (part.root == nil) {
+			return nil;
+		}
+		RBNode<E> root = take(part.root);
+		link(root, root.left, root.right, RBNode.BLACK);
+		root.parent = null;
+		return root;
+	}
+
+	/**
+	 * joins two trees and a middle node. every value of left is below the
+	 * middle and every value of right above it
+	 *
+	 * @param left
+	 *            lower tree
+	 * @param middle
+	 *            node, its links are overwritten
+	 * @param right
+	 *            upper tree
+	 * @return joined tree
+	 */
+	Part<E> join(Part<E> left, RBNode<E> middle, Part<E> right) {
+		RBNode<E> node = take(middle);
+
+		if (left.height > right.height) {
+			RBNode<E> joined = joinRight(left.root, left.height, node, right);
+			if (joined.color == RBNode.RED && joined.right.color == RBNode.RED) {
+				joined.color = RBNode.BLACK;
+				return new Part<E>(joined, left.height + 1);
+			}
+			return new Part<E>(joined, left.height);
+		}
+		if (right.height > left.height) {
+			RBNode<E> joined = joinLeft(left, node, right.root, right.height);
+			if (joined.color == RBNode.RED && joined.left.color == RBNode.RED) {
+				joined.color = RBNode.BLACK;
+				return new Part<E>(joined, right.height + 1);
+			}
+			return new Part<E>(joined, right.height);
+		}
+		if (left.root.color == RBNode.BLACK && right.root.color == RBNode.BLACK) {
+			return new Part<E>(link(node, left.root, right.root, RBNode.RED), left.height);
+		}
+		return new Part<E>(link(node, left.root, right.root, RBNode.BLACK), left.height + 1);
+	}
+
+	/**
+	 * walks down the right spine of the taller left tree to a black node as
+	 * high as the right tree and hangs the middle node there. a red pair
+	 * left behind is fixed by a rotation at the next black node up
+	 */
+	private RBNode<E> joinRight(RBNode<E> tree, int height, RBNode<E> middle, Part<E> right) {
+		if (tree.color == RBNode.BLACK && height == right.height) {
+			return link(middle, tree, right.root, RBNode.RED);
+		}
+
+		RBNode<E> node = take(tree);
+		int below = height - (node.color == RBNode.BLACK ? 1 : 0);
+		RBNode<E> child = joinRight(node.right, below, middle, right);
+		link(node, node.left, child, node.color);
+
+		if (node.color == RBNode.BLACK && child.color == RBNode.RED && child.right.color == RBNode.RED) {
+			RBNode<E> grandchild = take(child.right);
+			link(grandchild, grandchild.left, grandchild.right, RBNode.BLACK);
+			link(child, child.left, grandchild, RBNode.RED);
+			return rotateLeft(node);
+		}
+		return node;
+	}
+
+	private RBNode<E> joinLeft(Part<E> left, RBNode<E> middle, RBNode<E> tree, int height) {
+		if (tree.color == RBNode.BLACK && height == left.height) {
+			return link(middle, left.root, tree, RBNode.RED);
+		}
+
+		RBNode<E> node = take(tree);
+		int below = height - (node.color == RBNode.BLACK ? 1 : 0);
+		RBNode<E> child = joinLeft(left, middle, node.left, below);
+		link(node, child, node.right, node.color);
+
+		if (node.color == RBNode.BLACK && child.color == RBNode.RED && child.left.color == RBNode.RED) {
+			RBNode<E> grandchild = take(child.left);
+			link(grandchild, grandchild.left, grandchild.right, RBNode.BLACK);
+			link(child, grandchild, child.right, RBNode.RED);
+			return rotateRight(node);
+		}
+		return node;
+	}
+
+	/**
+	 * joins two trees with no middle node, using the largest node of left
+	 *
+	 * @param left
+	 *            lower tree
+	 * @param right
+	 *            upper tree
+	 * @return joined tree
+	 */
+	Part<E> join(Part<E> left, Part<E> right) {
+		if (left.root == nil) {
+			return right;
+		}
+		if (right.root == nil) {
+			return left;
+		}
+		Split<E> last = splitLast(left);
+		return join(last.left, last.match, right);
+	}
+
+	/**
+	 * cuts the largest node off a tree
+	 */
+	private Split<E> splitLast(Part<E> tree) {
+		RBNode<E> node = tree.root;
+		int below = tree.height - (node.color == RBNode.BLACK ? 1 : 0);
+
+		if (node.right == nil) {
+			return new Split<E>(new Part<E>(node.left, below), node, null);
+		}
+		Split<E> last = splitLast(new Part<E>(node.right, below));
+		return new Split<E>(join(new Part<E>(node.left, below), node, last.left), last.match, null);
+	}
+
+	/**
+	 * cuts a tree at a value
+	 *
+	 * @param tree
+	 *            tree to cut, its nodes are reused
+	 * @param data
+	 *            value to cut at
+	 * @return values below data, the node holding data or null, values above
+	 *         data
+	 */
+	Split<E> split(Part<E> tree, E data) {
+		RBNode<E> node = tree.root;
+		if (node == nil) {
+			return new Split<E>(tree, null, tree);
+		}
+
+		int below = tree.height - (node.color == RBNode.BLACK ? 1 : 0);
+		Part<E> left = new Part<E>(node.left, below);
+		Part<E> right = new Part<E>(node.right, below);
+		int cmp = compare(data, node.getData());
+
+		if (cmp == 0) {
+			return new Split<E>(left, node, right);
+		}
+		if (cmp < 0) {
+			Split<E> cut = split(left, data);
+			return new Split<E>(cut.left, cut.match, join(cut.right, node, right));
+		}
+		Split<E> cut = split(right, data);
+		return new Split<E>(join(left, node, cut.left), cut.match, cut.right);
+	}
+
+	/**
+	 * values below the split value, and the split value itself if asked
+	 *
+	 * @param cut
+	 *            result of a split
+	 * @param inclusive
+	 *            true to keep the split value
+	 * @return lower tree
+	 */
+	Part<E> below(Split<E> cut, boolean inclusive) {
+		if (!inclusive || cut.match == null) {
+			return cut.left;
+		}
+		return join(cut.left, cut.match, new Part<E>(nil, 0));
+	}
+
+	/**
+	 * values above the split value, and the split value itself if asked
+	 *
+	 * @param cut
+	 *            result of a split
+	 * @param inclusive
+	 *            true to keep the split value
+	 * @return upper tree
+	 */
+	Part<E> above(Split<E> cut, boolean inclusive) {
+		if (!inclusive || cut.match == null) {
+			return cut.right;
+		}
+		return join(new Part<E>(nil, 0), cut.match, cut.right);
+	}
+
+	/**
+	 * runs a set operation on a pool
+	 *
+	 * @param pool
+	 *            pool to run on
+	 * @param operation
+	 *            operation to run
+	 * @param a
+	 *            first tree
+	 * @param b
+	 *            second tree
+	 * @return result
+	 */
+	Part<E> invoke(ForkJoinPool pool, Operation operation, Part<E> a, Part<E> b) {
+		return pool.invoke(ForkJoinTask.adapt(() -> apply(operation, a, b)));
+	}
+
+	private Part<E> apply(Operation operation, Part<E> a, Part<E> b) {
+		switch (operation) {
+		case UNION:
+			return union(a, b);
+		case INTERSECTION:
+			return intersection(a, b);
+		default:
+			return difference(a, b);
+		}
+	}
+
+	/**
+	 * values in either tree. the root of b splits a, the halves are joined
+	 * back around it
+	 */
+	private Part<E> union(Part<E> a, Part<E> b) {
+		if (a.root == nil) {
+			return b;
+		}
+		if (b.root == nil) {
+			return a;
+		}
+
+		RBNode<E> key = b.root;
+		int below = b.height - (key.color == RBNode.BLACK ? 1 : 0);
+		Split<E> cut = split(a, key.getData());
+		Part<E>[] halves = both(Operation.UNION, cut, new Part<E>(key.left, below), new Part<E>(key.right, below));
+		return join(halves[0], key, halves[1]);
+	}
+
+	/**
+	 * values in both trees
+	 */
+	private Part<E> intersection(Part<E> a, Part<E> b) {
+		if (a.root == nil || b.root == nil) {
+			return new Part<E>(nil, 0);
+		}
+
+		RBNode<E> key = b.root;
+		int below = b.height - (key.color == RBNode.BLACK ? 1 : 0);
+		Split<E> cut = split(a, key.getData());
+		Part<E>[] halves = both(Operation.INTERSECTION, cut, new Part<E>(key.left, below), new Part<E>(key.right, below));
+		return cut.match != null ? join(halves[0], key, halves[1]) : join(halves[0], halves[1]);
+	}
+
+	/**
+	 * values of a not in b
+	 */
+	private Part<E> difference(Part<E> a, Part<E> b) {
+		if (a.root == nil || b.root == nil) {
+			return a;
+		}
+
+		RBNode<E> key = b.root;
+		int below = b.height - (key.color == RBNode.BLACK ? 1 : 0);
+		Split<E> cut = split(a, key.getData());
+		Part<E>[] halves = both(Operation.DIFFERENCE, cut, new Part<E>(key.left, below), new Part<E>(key.right, below));
+		return join(halves[0], halves[1]);
+	}
+
+	/**
+	 * applies an operation to the lower and the upper halves, in parallel
+	 * when they are big enough
+	 */
+	@SuppressWarnings("unchecked")
+	private Part<E>[] both(Operation operation, Split<E> cut, Part<E> lower, Part<E> upper) {
+		Part<E>[] halves = (Part<E>[]) new Part<?>[2];
+
+		if (cut.left.root.size + cut.right.root.size + lower.root.size + upper.root.size < PARALLEL) {
+			halves[0] = apply(operation, cut.left, lower);
+			halves[1] = apply(operation, cut.right, upper);
+		} else {
+			ForkJoinTask<Part<E>> task = ForkJoinTask.adapt(() -> apply(operation, cut.left, lower)).fork();
+			halves[1] = apply(operation, cut.right, upper);
+			halves[0] = task.join();
+		}
+		return halves;
+	}
+
+	/**
+	 * makes a node safe to change, copying it if a snapshot may still reach
+	 * it. a copy is not linked anywhere yet, callers relink it with
+	 * {@link #link(RBNode, RBNode, RBNode, byte)}, and its old children may
+	 * already have moved elsewhere
+	 *
+	 * @param node
+	 *            node about to change
+	 * @return node of the result epoch
+	 */
+	private RBNode<E> take(RBNode<E> node) {
+		if (node.epoch == epoch) {
+			return node;
+		}
+		RBNode<E> copy = new RBNode<E>(node.getData(), node.color);
+		copy.epoch = epoch;
+		copy.left = node.left;
+		copy.right = node.right;
+		copy.size = node.size;
+		return copy;
+	}
+
+	/**
+	 * sets the children and color of an owned node and fixes its size
+	 */
+	private RBNode<E> link(RBNode<E> node, RBNode<E> left, RBNode<E> right, byte color) {
+		node.left = left;
+		node.right = right;
+		node.color = color;
+		node.size = left.size + right.size + 1;
+		if (left != nil) {
+			left.parent = node;
+		}
+		if (right != nil) {
+			right.parent = node;
+		}
+		return node;
+	}
+
+	/**
+	 * rotates an owned node left, its right child is owned as well. colors
+	 * stay with the nodes
+	 */
+	private RBNode<E> rotateLeft(RBNode<E> node) {
+		RBNode<E> right = node.right;
+		link(node, node.left, right.left, node.color);
+		return link(right, node, right.right, right.color);
+	}
+
+	private RBNode<E> rotateRight(RBNode<E> node) {
+		RBNode<E> left = node.left;
+		link(node, left.right, node.right, node.color);
+		return link(left, left.left, node, left.color);
+	}
+
+	private int compare(E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+}
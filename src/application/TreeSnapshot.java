@@ -0,0 +1,280 @@
+package application;
+
+import java.util.AbstractSet;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * read-only point-in-time view of a red black tree, taken with
+ * {@link RedBlackTree#snapshot()}. the tree copies any node the view can
+ * reach before changing it, so the nodes seen here never change. parent
+ * pointers are the one field the tree still rewrites, so the view walks down
+ * with a stack instead
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+public final class TreeSnapshot<E extends Comparable<E>> extends AbstractSet<E> {
+	private static final int MAX_HEIGHT = 64;
+
+	private final RBNode<E> root;
+	private final RBNode<E> nil;
+	private final Comparator<? super E> comparator;
+	private final int size;
+
+	/**
+	 * constructs view
+	 *
+	 * @param root
+	 *            root of the tree when the snapshot was taken
+	 * @param nil
+	 *            sentinel of the tree
+	 * @param comparator
+	 *            ordering of the tree, null for natural order
+	 */
+	TreeSnapshot(RBNode<E> root, RBNode<E> nil, Comparator<? super E> comparator) {
+		this.root = root;
+		this.nil = nil;
+		this.comparator = comparator;
+		this.size = root.size;
+	}
+
+	/**
+	 * checks if value was in the tree
+	 *
+	 * @param data
+	 *            value to be checked
+	 * @return boolean if value is present
+	 */
+	public boolean find(E data) {
+		RBNode<E> current = root;
+
+		while (current != nil) {
+			int cmp = comparator == null ? data.compareTo(current.getData())
+					: comparator.compare(data, current.getData());
+			if (cmp == 0) {
+				return true;
+			}
+			current = cmp < 0 ? current.left : current.right;
+		}
+		return false;
+	}
+
+	/**
+	 * smallest value
+	 *
+	 * @return first value
+	 */
+	public E first() {
+		if (root == nil) {
+			throw new NoSuchElementException();
+		}
+
+		RBNode<E> current = root;
+		while (current.left != nil) {
+			current = current.left;
+		}
+		return current.getData();
+	}
+
+	/**
+	 * largest value
+	 *
+	 * @return last value
+	 */
+	public E last() {
+		if (root == nil) {
+			throw new NoSuchElementException();
+		}
+
+		RBNode<E> current = root;
+		while (current.right != nil) {
+			current = current.right;
+		}
+		return current.getData();
+	}
+
+	/**
+	 * ordering of the values
+	 *
+	 * @return comparator, null for natural order
+	 */
+	public Comparator<? super E> comparator() {
+		return comparator;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public boolean contains(Object o) {
+		return find((E) o);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * copies the values into a read-only array index. the snapshot never
+	 * changes, so this can run on any thread while the tree is written
+	 *
+	 * @return frozen index
+	 */
+	public FrozenIndex<E> freeze() {
+		return new FrozenIndex<E>(iterator(), size, comparator);
+	}
+
+	/**
+	 * finds the values added and removed between this snapshot and a later
+	 * one of the same tree. the tree only copies the nodes it changes, so a
+	 * subtree the two share is the same nodes in both and is skipped without
+	 * being walked. the cost grows with the changes, not with the size
+	 *
+	 * @param newer
+	 *            later snapshot of the same tree
+	 * @param added
+	 *            receives the values only in newer, in ascending order
+	 * @param removed
+	 *            receives the values only in this snapshot, in ascending
+	 *            order
+	 * @param limit
+	 *            most changes worth collecting
+	 * @return false if more than limit values changed, the lists are then
+	 *         incomplete
+	 */
+	boolean diff(TreeSnapshot<E> newer, List<E> added, List<E> removed, int limit) {
+		Cursor<E> older = new Cursor<E>(root, nil);
+		Cursor<E> later = new Cursor<E>(newer.root, newer.nil);
+
+		while (true) {
+			RBNode<E> a = older.top();
+			RBNode<E> b = later.top();
+
+			if (a != null && a == b && !older.single() && !later.single()) {
+				older.pop();
+				later.pop();
+			} else if (a != null && !older.single() && (b == null || later.single() || a.size >= b.size)) {
+				// open the larger subtree first, the smaller one may be shared
+				// with a subtree inside it
+				older.open();
+			} else if (b != null && !later.single()) {
+				later.open();
+			} else if (a == null && b == null) {
+				return true;
+			} else {
+				int cmp = a == null ? 1
+						: b == null ? -1
+								: comparator == null ? a.getData().compareTo(b.getData())
+										: comparator.compare(a.getData(), b.getData());
+				if (cmp <= 0) {
+					older.pop();
+				}
+				if (cmp >= 0) {
+					later.pop();
+				}
+				if (cmp < 0) {
+					removed.add(a.getData());
+				} else if (cmp > 0) {
+					added.add(b.getData());
+				}
+				if (added.size() + removed.size() > limit) {
+					return false;
+				}
+			}
+		}
+	}
+
+	/**
+	 * walks a tree in order as a stack of whole subtrees still to visit and
+	 * single nodes whose left subtree is done, so a subtree can be dropped
+	 * in one step
+	 */
+	private static final class Cursor<E extends Comparable<E>> {
+		private final RBNode<E> nil;
+		@SuppressWarnings("unchecked")
+		private final RBNode<E>[] nodes = (RBNode<E>[]) new RBNode<?>[2 * MAX_HEIGHT + 1];
+		private final boolean[] singles = new boolean[2 * MAX_HEIGHT + 1];
+		private int top;
+
+		Cursor(RBNode<E> root, RBNode<E> nil) {
+			this.nil = nil;
+			push(root, false);
+		}
+
+		/**
+		 * next subtree or single node in order
+		 *
+		 * @return node, null when the walk is done
+		 */
+		RBNode<E> top() {
+			return top == 0 ? null : nodes[top - 1];
+		}
+
+		boolean single() {
+			return singles[top - 1];
+		}
+
+		void pop() {
+			nodes[--top] = null;
+		}
+
+		/**
+		 * replaces the subtree on top by its right subtree, its root and its
+		 * left subtree
+		 */
+		void open() {
+			RBNode<E> node = nodes[top - 1];
+			pop();
+			push(node.right, false);
+			push(node, true);
+			push(node.left, false);
+		}
+
+		private void push(RBNode<E> node, boolean single) {
+			if (node != nil) {
+				nodes[top] = node;
+				singles[top++] = single;
+			}
+		}
+	}
+
+	/**
+	 * iterates values in ascending order
+	 */
+	@Override
+	public Iterator<E> iterator() {
+		return new Iterator<E>() {
+			@SuppressWarnings("unchecked")
+			private final RBNode<E>[] stack = (RBNode<E>[]) new RBNode<?>[MAX_HEIGHT];
+			private int top = pushLeft(root, 0);
+
+			private int pushLeft(RBNode<E> node, int top) {
+				while (node != nil) {
+					stack[top++] = node;
+					node = node.left;
+				}
+				return top;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return top > 0;
+			}
+
+			@Override
+			public E next() {
+				if (top == 0) {
+					throw new NoSuchElementException();
+				}
+				RBNode<E> node = stack[--top];
+				stack[top] = null;
+				top = pushLeft(node.right, top);
+				return node.getData();
+			}
+		};
+	}
+}
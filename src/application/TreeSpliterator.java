@@ -0,0 +1,127 @@
+package application;
+
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * ascending spliterator over a red black tree. it covers the nodes from
+ * current up to, not including, fence and splits at subtree roots: the
+ * first split hands off everything left of the root, later splits walk down
+ * the side they came from, so each half is close to one subtree
+ *
+ * subtree counts give the exact size of every range, so halves are SIZED and
+ * SUBSIZED too
+ *
+ * the tree must not be changed while splitting or traversing
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            generic data type
+ */
+class TreeSpliterator<E extends Comparable<E>> implements Spliterator<E> {
+	private final RedBlackTree<E> tree;
+	private final Comparator<? super E> comparator;
+	private RBNode<E> current;
+	private final RBNode<E> fence;
+	private int side;
+	private long estimate;
+
+	/**
+	 * constructs spliterator over the whole tree
+	 *
+	 * @param tree
+	 *            tree to traverse
+	 * @param comparator
+	 *            ordering of the tree, null for natural order
+	 */
+	TreeSpliterator(RedBlackTree<E> tree, Comparator<? super E> comparator) {
+		this(tree, comparator, tree.root.equals(tree.nil) ? null : TreeIterator.leftmost(tree.root, tree.nil), null,
+				0, tree.size());
+	}
+
+	private TreeSpliterator(RedBlackTree<E> tree, Comparator<? super E> comparator, RBNode<E> current,
+			RBNode<E> fence, int side, long estimate) {
+		this.tree = tree;
+		this.comparator = comparator;
+		this.current = current;
+		this.fence = fence;
+		this.side = side;
+		this.estimate = estimate;
+	}
+
+	@Override
+	public Spliterator<E> trySplit() {
+		RBNode<E> e = current;
+		RBNode<E> s;
+
+		if (e == null || e == fence) {
+			s = null;
+		} else if (side == 0) {
+			s = tree.root;
+		} else if (side > 0) {
+			s = e.right;
+		} else if (fence != null) {
+			s = fence.left;
+		} else {
+			s = null;
+		}
+
+		if (s == null || s.equals(tree.nil) || s == e || s == fence || compare(e.getData(), s.getData()) >= 0) {
+			return null;
+		}
+
+		long prefix = tree.rankOf(s) - tree.rankOf(e);
+		side = 1;
+		current = s;
+		estimate -= prefix;
+		return new TreeSpliterator<E>(tree, comparator, e, s, -1, prefix);
+	}
+
+	@Override
+	public boolean tryAdvance(Consumer<? super E> action) {
+		RBNode<E> e = current;
+
+		if (e == null || e == fence) {
+			return false;
+		}
+		current = TreeIterator.successor(e, tree.nil);
+		estimate--;
+		action.accept(e.getData());
+		return true;
+	}
+
+	@Override
+	public void forEachRemaining(Consumer<? super E> action) {
+		RBNode<E> e = current;
+		RBNode<E> f = fence;
+
+		current = f;
+		estimate = 0;
+		while (e != null && e != f) {
+			action.accept(e.getData());
+			e = TreeIterator.successor(e, tree.nil);
+		}
+	}
+
+	@Override
+	public long estimateSize() {
+		return estimate;
+	}
+
+	@Override
+	public int characteristics() {
+		return Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT | Spliterator.SORTED
+				| Spliterator.ORDERED | Spliterator.NONNULL;
+	}
+
+	@Override
+	public Comparator<? super E> getComparator() {
+		return comparator;
+	}
+
+	private int compare(E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+}
@@ -0,0 +1,219 @@
+package application;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * counters of the work a {@link RedBlackTree} does: rotations, color
+ * changes and double black fixups of insert and delete rebalancing, value
+ * comparisons, and a histogram of how many nodes each find, insert and
+ * delete search visits. height and black height are measured when asked for
+ *
+ * counting is off unless the JVM runs with -Dapplication.treeStats=true.
+ * every update is guarded by {@link #ENABLED}, a static final the JIT treats
+ * as a constant, so with it off the guarded code is dropped and the hot path
+ * is what it was without stats
+ *
+ * the counters are {@link LongAdder}s, since the optimistic reads of a
+ * {@link ConcurrentRedBlackTree} compare and search from many threads at
+ * once. a tree only allocates its stats when counting is on or they are
+ * asked for
+ *
+ * @author Alex
+ *
+ */
+public final class TreeStats implements TreeStatsMXBean {
+	/**
+	 * whether trees count anything, fixed at class load
+	 */
+	public static final boolean ENABLED = Boolean.getBoolean("application.treeStats");
+
+	/**
+	 * buckets of the path length histogram, the last one also holds longer
+	 * paths. a red black tree of 2^31 values is at most 62 levels deep
+	 */
+	static final int PATH_LENGTHS = 64;
+
+	private final LongAdder[] pathLengths = new LongAdder[PATH_LENGTHS];
+	final LongAdder leftRotations = new LongAdder();
+	final LongAdder rightRotations = new LongAdder();
+	final LongAdder recolors = new LongAdder();
+	final LongAdder doubleBlackFixups = new LongAdder();
+	final LongAdder comparisons = new LongAdder();
+	private volatile IntSupplier height;
+	private volatile IntSupplier blackHeight;
+	private volatile IntSupplier size;
+
+	/**
+	 * constructs stats of a tree
+	 *
+	 * @param tree
+	 *            tree measured
+	 */
+	TreeStats(RedBlackTree<?> tree) {
+		for (int length = 0; length < PATH_LENGTHS; length++) {
+			pathLengths[length] = new LongAdder();
+		}
+		measure(tree::height, tree::blackHeight, tree::size);
+	}
+
+	/**
+	 * sets how the shape of the tree is measured, so a tree shared between
+	 * threads can walk itself under its lock
+	 *
+	 * @param height
+	 *            height of the tree
+	 * @param blackHeight
+	 *            black height of the tree
+	 * @param size
+	 *            number of values
+	 */
+	void measure(IntSupplier height, IntSupplier blackHeight, IntSupplier size) {
+		this.height = height;
+		this.blackHeight = blackHeight;
+		this.size = size;
+	}
+
+	/**
+	 * records the length of one search
+	 *
+	 * @param length
+	 *            nodes visited
+	 */
+	void searched(int length) {
+		pathLengths[Math.min(length, PATH_LENGTHS - 1)].increment();
+	}
+
+	@Override
+	public long getLeftRotations() {
+		return leftRotations.sum();
+	}
+
+	@Override
+	public long getRightRotations() {
+		return rightRotations.sum();
+	}
+
+	@Override
+	public long getRecolors() {
+		return recolors.sum();
+	}
+
+	@Override
+	public long getDoubleBlackFixups() {
+		return doubleBlackFixups.sum();
+	}
+
+	@Override
+	public long getComparisons() {
+		return comparisons.sum();
+	}
+
+	/**
+	 * number of searches recorded in the path length histogram
+	 *
+	 * @return searches
+	 */
+	@Override
+	public long getSearches() {
+		long searches = 0;
+		for (LongAdder count : pathLengths) {
+			searches += count.sum();
+		}
+		return searches;
+	}
+
+	/**
+	 * average number of nodes a search visited
+	 *
+	 * @return mean path length, 0 before the first search
+	 */
+	@Override
+	public double getMeanPathLength() {
+		long searches = 0;
+		long nodes = 0;
+		for (int length = 0; length < PATH_LENGTHS; length++) {
+			long count = pathLengths[length].sum();
+			searches += count;
+			nodes += length * count;
+		}
+		return searches == 0 ? 0 : (double) nodes / searches;
+	}
+
+	/**
+	 * histogram of search path lengths
+	 *
+	 * @return copy, index i holds the number of searches that visited i
+	 *         nodes
+	 */
+	@Override
+	public long[] getPathLengths() {
+		long[] counts = new long[PATH_LENGTHS];
+		for (int length = 0; length < PATH_LENGTHS; length++) {
+			counts[length] = pathLengths[length].sum();
+		}
+		return counts;
+	}
+
+	/**
+	 * walks the whole tree
+	 *
+	 * @return height
+	 */
+	@Override
+	public int getHeight() {
+		return height.getAsInt();
+	}
+
+	@Override
+	public int getBlackHeight() {
+		return blackHeight.getAsInt();
+	}
+
+	@Override
+	public int getSize() {
+		return size.getAsInt();
+	}
+
+	/**
+	 * zeroes the counters. updates made while it runs may be kept or lost
+	 */
+	@Override
+	public void reset() {
+		leftRotations.reset();
+		rightRotations.reset();
+		recolors.reset();
+		doubleBlackFixups.reset();
+		comparisons.reset();
+		for (LongAdder count : pathLengths) {
+			count.reset();
+		}
+	}
+
+	/**
+	 * registers these stats with the platform MBean server
+	 *
+	 * @param name
+	 *            value of the name key, unique among registered trees
+	 * @return object name to unregister with
+	 * @throws JMException
+	 *             if the name is malformed or already taken
+	 */
+	public ObjectName register(String name) throws JMException {
+		ObjectName objectName = new ObjectName("application:type=RedBlackTree,name=" + ObjectName.quote(name));
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+		return objectName;
+	}
+
+	@Override
+	public String toString() {
+		return "TreeStats[rotations=" + getLeftRotations() + "/" + getRightRotations() + ", recolors="
+				+ getRecolors() + ", fixups=" + getDoubleBlackFixups() + ", comparisons=" + getComparisons()
+				+ ", meanPath="
+				+ getMeanPathLength() + "]";
+	}
+}
@@ -0,0 +1,34 @@
+package application;
+
+/**
+ * management interface of {@link TreeStats}, the attributes a JMX console
+ * shows for a registered tree
+ *
+ * @author Alex
+ *
+ */
+public interface TreeStatsMXBean {
+	long getLeftRotations();
+
+	long getRightRotations();
+
+	long getRecolors();
+
+	long getDoubleBlackFixups();
+
+	long getComparisons();
+
+	long getSearches();
+
+	double getMeanPathLength();
+
+	long[] getPathLengths();
+
+	int getHeight();
+
+	int getBlackHeight();
+
+	int getSize();
+
+	void reset();
+}
@@ -0,0 +1,272 @@
+package application;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * append-only log of inserts and deletes. each record is
+ *
+ * <pre>
+ * int  length of operation and key
+ * byte operation
+ * key bytes
+ * int  CRC32 of operation and key
+ * </pre>
+ *
+ * records are gathered in a buffer and written and forced as the sync
+ * policy asks. replay stops at the first record that is cut short or fails
+ * its checksum, which is where a crash in the middle of a write leaves the
+ * log
+ *
+ * @author Alex
+ *
+ * @param <E>
+ *            key type
+ */
+final class WriteAheadLog<E> implements Closeable {
+	static final byte INSERT = 1;
+	static final byte DELETE = 2;
+
+	/**
+	 * largest record, also the size of the write buffer
+	 */
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private final FileChannel channel;
+	private final KeyCodec<E> codec;
+	private final SyncPolicy policy;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private final CRC32 crc = new CRC32();
+	private final ScheduledExecutorService timer;
+	private int pending;
+	private long firstPending;
+	private IOException failure;
+
+	/**
+	 * opens a log for appending
+	 *
+	 * @param path
+	 *            log file
+	 * @param codec
+	 *            key codec
+	 * @param policy
+	 *            when to force records
+	 * @param length
+	 *            length of the valid prefix, anything after it is cut off
+	 * @throws IOException
+	 *             if the file cannot be opened
+	 */
+	WriteAheadLog(Path path, KeyCodec<E> codec, SyncPolicy policy, long length) throws IOException {
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		this.codec = codec;
+		this.policy = policy;
+
+		channel.truncate(length);
+		channel.position(length);
+
+		if (policy.mode == SyncPolicy.Mode.GROUP) {
+			timer = Executors.newSingleThreadScheduledExecutor(task -> {
+				Thread thread = new Thread(task, "wal-sync");
+				thread.setDaemon(true);
+				return thread;
+			});
+		} else {
+			timer = null;
+		}
+	}
+
+	/**
+	 * applies every complete record of a log to a tree
+	 *
+	 * @param path
+	 *            log file, may be missing
+	 * @param codec
+	 *            key codec
+	 * @param tree
+	 *            tree to apply the records to
+	 * @return length of the valid prefix of the log
+	 * @throws IOException
+	 *             if the file cannot be read
+	 */
+	static <E extends Comparable<E>> long replay(Path path, KeyCodec<E> codec, RedBlackTree<E> tree)
+			throws IOException {
+		if (!Files.exists(path)) {
+			return 0;
+		}
+
+		CRC32 crc = new CRC32();
+		long valid = 0;
+
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			while (true) {
+				int length = in.readInt();
+				if (length < 1 || length > BUFFER_SIZE - 8) {
+					break;
+				}
+
+				byte[] body = new byte[length];
+				in.readFully(body);
+				int checksum = in.readInt();
+
+				crc.reset();
+				crc.update(body, 0, length);
+				if ((int) crc.getValue() != checksum) {
+					break;
+				}
+
+				E key = codec.read(ByteBuffer.wrap(body, 1, length - 1));
+				if (body[0] == INSERT) {
+					tree.add(key);
+				} else if (body[0] == DELETE) {
+					tree.delete(key);
+				} else {
+					break;
+				}
+				valid += length + 8;
+			}
+		} catch (EOFException e) {
+			// the last record was cut short
+		}
+		return valid;
+	}
+
+	/**
+	 * adds a record, forcing it if the policy says so
+	 *
+	 * @param operation
+	 *            {@link #INSERT} or {@link #DELETE}
+	 * @param key
+	 *            key
+	 * @throws IOException
+	 *             if writing fails, now or in an earlier timed force
+	 * @throws IllegalArgumentException
+	 *             if the record does not fit the buffer
+	 */
+	synchronized void append(byte operation, E key) throws IOException {
+		checkFailure();
+
+		int length = 1 + codec.size(key);
+		if (length + 8 > BUFFER_SIZE) {
+			throw new IllegalArgumentException("record of " + length + " bytes");
+		}
+		if (buffer.remaining() < length + 8) {
+			drain();
+		}
+
+		int start = buffer.position();
+		buffer.putInt(length);
+		buffer.put(operation);
+		codec.write(buffer, key);
+
+		ByteBuffer body = buffer.duplicate();
+		body.limit(buffer.position());
+		body.position(start + 4);
+		crc.reset();
+		crc.update(body);
+		buffer.putInt((int) crc.getValue());
+		if (pending++ == 0) {
+			firstPending = System.nanoTime();
+			if (timer != null) {
+				timer.schedule(this::timedSync, policy.millis, TimeUnit.MILLISECONDS);
+			}
+		}
+
+		if (policy.mode == SyncPolicy.Mode.EVERY_OPERATION || pending >= policy.operations || overdue()) {
+			sync();
+		}
+	}
+
+	/**
+	 * writes and forces every record appended so far
+	 *
+	 * @throws IOException
+	 *             if writing fails
+	 */
+	synchronized void sync() throws IOException {
+		checkFailure();
+		drain();
+		if (pending > 0) {
+			channel.force(false);
+			pending = 0;
+		}
+	}
+
+	/**
+	 * empties the log once its records are covered by a tree image
+	 *
+	 * @throws IOException
+	 *             if truncating fails
+	 */
+	synchronized void reset() throws IOException {
+		sync();
+		channel.truncate(0);
+		channel.position(0);
+		channel.force(true);
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (timer != null) {
+			timer.shutdown();
+		}
+		try {
+			sync();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/**
+	 * group policy force from the timer, scheduled when the first record of
+	 * a group is appended. a failure is reported to the next caller
+	 */
+	private synchronized void timedSync() {
+		if (failure != null || !channel.isOpen()) {
+			return;
+		}
+		try {
+			// the group this was scheduled for may already be forced, a
+			// later group has its own timer
+			if (overdue()) {
+				sync();
+			}
+		} catch (IOException e) {
+			failure = e;
+		}
+	}
+
+	/**
+	 * whether the oldest unforced record has waited as long as the group
+	 * policy allows
+	 */
+	private boolean overdue() {
+		return policy.mode == SyncPolicy.Mode.GROUP && pending > 0
+				&& System.nanoTime() - firstPending >= TimeUnit.MILLISECONDS.toNanos(policy.millis);
+	}
+
+	private void checkFailure() throws IOException {
+		if (failure != null) {
+			throw new IOException("log force failed", failure);
+		}
+	}
+
+	private void drain() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+}
@@ -0,0 +1,127 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * runs random adds, deletes, lookups and iterator removals on b-trees of
+ * several degrees, down to the smallest, against {@link TreeSet}, and checks
+ * the node counts, separators and leaf depths as the tree grows and shrinks
+ *
+ * @author Alex
+ *
+ */
+class BTreeSetTest {
+	private static final int[] DEGREES = { 2, 3, 4, 7, BTreeSet.DEFAULT_DEGREE };
+	private static final int OPERATIONS = 30_000;
+	private static final int UNIVERSE = 1_500;
+	private static final int CHECK_EVERY = 25;
+
+	@Test
+	void matchesTreeSet() {
+		for (int degree : DEGREES) {
+			Random random = new Random(degree);
+			BTreeSet<Integer> set = new BTreeSet<Integer>(null, degree);
+			TreeSet<Integer> oracle = new TreeSet<Integer>();
+
+			for (int i = 0; i < OPERATIONS; i++) {
+				// adds win for a while, then deletes, so the tree grows and
+				// shrinks through every height
+				int key = random.nextInt(UNIVERSE);
+				String where = "degree " + degree + ", operation " + i + ", key " + key;
+				int add = i / 5_000 % 2 == 0 ? 6 : 3;
+				int choice = random.nextInt(10);
+				if (choice < add) {
+					assertEquals(oracle.add(key), set.add(key), where);
+				} else if (choice < 9) {
+					assertEquals(oracle.remove(key), set.delete(key), where);
+				} else {
+					assertEquals(oracle.contains(key), set.find(key), where);
+				}
+				assertEquals(oracle.size(), set.size(), where);
+				assertEquals(oracle.floor(key), set.floor(key), "floor, " + where);
+				assertEquals(oracle.ceiling(key), set.ceiling(key), "ceiling, " + where);
+
+				if (i % CHECK_EVERY == 0) {
+					assertEquals(set.height(), set.check(), where);
+					assertEquals(oracle.isEmpty(), set.isEmpty(), where);
+					if (!oracle.isEmpty()) {
+						assertEquals(oracle.first(), set.first(), where);
+						assertEquals(oracle.last(), set.last(), where);
+					}
+				}
+			}
+			assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(set), "degree " + degree);
+		}
+	}
+
+	@Test
+	void iteratorRemoveMatchesTreeSet() {
+		Random random = new Random(19);
+		for (int degree : DEGREES) {
+			for (int round = 0; round < 40; round++) {
+				BTreeSet<Integer> set = new BTreeSet<Integer>(null, degree);
+				TreeSet<Integer> oracle = new TreeSet<Integer>();
+				for (int i = random.nextInt(2_000); i > 0; i--) {
+					int key = random.nextInt(UNIVERSE);
+					set.add(key);
+					oracle.add(key);
+				}
+
+				Iterator<Integer> expected = oracle.iterator();
+				Iterator<Integer> actual = set.iterator();
+				int every = 1 + random.nextInt(4);
+				String where = "degree " + degree + ", round " + round;
+				for (int i = 0; expected.hasNext(); i++) {
+					assertEquals(true, actual.hasNext(), where);
+					assertEquals(expected.next(), actual.next(), where);
+					if (i % every == 0) {
+						expected.remove();
+						actual.remove();
+						assertThrows(IllegalStateException.class, actual::remove, where);
+					}
+				}
+				assertEquals(false, actual.hasNext(), where);
+				assertThrows(NoSuchElementException.class, actual::next, where);
+
+				set.check();
+				assertEquals(oracle.size(), set.size(), where);
+				assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(set), where);
+			}
+		}
+	}
+
+	@Test
+	void drainsToEmptyRoot() {
+		for (int degree : DEGREES) {
+			BTreeSet<Integer> set = new BTreeSet<Integer>(null, degree);
+			List<Integer> keys = new ArrayList<Integer>();
+			for (int i = 0; i < 5_000; i++) {
+				keys.add(i);
+				set.add(i);
+			}
+			set.check();
+			for (int i = 0; i < keys.size(); i += 2) {
+				set.delete(keys.get(i));
+			}
+			set.check();
+			for (int i = keys.size() - 1; i >= 0; i--) {
+				set.delete(keys.get(i));
+			}
+			assertEquals(1, set.check(), "degree " + degree);
+			assertEquals(true, set.isEmpty());
+			assertThrows(NoSuchElementException.class, set::first);
+			assertThrows(NoSuchElementException.class, set::last);
+		}
+		assertThrows(IllegalArgumentException.class, () -> new BTreeSet<Integer>(null, 1));
+	}
+}
@@ -0,0 +1,286 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * randomized multi-threaded checks of {@link ConcurrentRedBlackTree}.
+ * writers churn keys while readers check what must hold at every instant,
+ * so a torn optimistic read that slips past validation shows up as a wrong
+ * answer
+ *
+ * each test runs for application.concurrentTest.millis, 2000 by default
+ *
+ * @author Alex
+ *
+ */
+class ConcurrentRedBlackTreeTest {
+	private static final long MILLIS = Long.getLong("application.concurrentTest.millis", 2000);
+	private static final int STABLE = 20_000;
+	private static final int WRITERS = 4;
+	private static final int READERS = 4;
+
+	/**
+	 * even keys are loaded once and never touched, writers add and delete
+	 * odd keys. finds, ranges and snapshots must always see every even key
+	 * and nothing out of order
+	 */
+	@Test
+	void readersSeeStableKeysWhileWritersChurn() throws InterruptedException {
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<Integer>();
+		for (int key = 0; key < STABLE; key += 2) {
+			tree.add(key);
+		}
+
+		run(tree, random -> {
+			int key = 2 * random.nextInt(STABLE / 2) + 1;
+			if (random.nextBoolean()) {
+				tree.add(key);
+			} else {
+				tree.delete(key);
+			}
+		}, random -> {
+			int key = 2 * random.nextInt(STABLE / 2);
+			assertTrue(tree.find(key), "lost " + key);
+			assertTrue(!tree.find(-key - 1), "phantom " + (-key - 1));
+
+			List<Integer> range = tree.range(key, key + 200);
+			int expected = key;
+			for (int i = 0; i < range.size(); i++) {
+				int value = range.get(i);
+				assertTrue(value >= key && value < key + 200, "out of range " + value);
+				assertTrue(i == 0 || range.get(i - 1) < value, "unsorted " + range);
+				if (value % 2 == 0) {
+					assertEquals(expected, value, "range skipped a stable key");
+					expected += 2;
+				}
+			}
+			assertEquals(Math.min(key + 200, STABLE), expected, "range cut short");
+
+			int size = tree.size();
+			assertTrue(size >= STABLE / 2 && size <= STABLE, "size " + size);
+		}, random -> {
+			TreeSnapshot<Integer> snapshot = tree.snapshot();
+			List<Integer> first = new ArrayList<Integer>(snapshot);
+			assertEquals(snapshot.size(), first.size());
+			int stable = 0;
+			for (int i = 0; i < first.size(); i++) {
+				assertTrue(i == 0 || first.get(i - 1) < first.get(i), "snapshot unsorted");
+				if (first.get(i) % 2 == 0) {
+					stable++;
+				}
+			}
+			assertEquals(STABLE / 2, stable);
+			// writers went on meanwhile, the snapshot must not have moved
+			assertEquals(first, new ArrayList<Integer>(snapshot));
+		});
+	}
+
+	/**
+	 * every key belongs to one writer, so the writer knows its state. the
+	 * tree must end up with exactly the keys the writers left in
+	 */
+	@Test
+	void disjointWritersLeaveExactState() throws InterruptedException {
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<Integer>();
+		BitSet[] owned = new BitSet[WRITERS];
+		List<Thread> threads = new ArrayList<Thread>();
+		List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		long end = System.currentTimeMillis() + MILLIS;
+
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			owned[w] = new BitSet();
+			threads.add(new Thread(() -> {
+				Random random = new Random(writer);
+				try {
+					while (System.currentTimeMillis() < end) {
+						int key = random.nextInt(5_000) * WRITERS + writer;
+						if (random.nextBoolean()) {
+							assertEquals(!owned[writer].get(key), tree.add(key));
+							owned[writer].set(key);
+						} else {
+							assertEquals(owned[writer].get(key), tree.delete(key));
+							owned[writer].clear(key);
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		rethrow(errors);
+
+		List<Integer> expected = new ArrayList<Integer>();
+		BitSet all = new BitSet();
+		for (BitSet keys : owned) {
+			all.or(keys);
+		}
+		all.stream().forEach(expected::add);
+		assertEquals(expected, tree.toList());
+		assertEquals(expected.size(), tree.size());
+	}
+
+	/**
+	 * one key is toggled, one writer at a time, counting operations started
+	 * and done. a find that begins and ends with no operation in flight has
+	 * exactly one right answer
+	 */
+	@Test
+	void quiescentFindsAreLinearizable() throws InterruptedException {
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<Integer>();
+		for (int key = 0; key < STABLE; key++) {
+			tree.add(2 * key);
+		}
+		int toggled = 10_001;
+		AtomicLong started = new AtomicLong();
+		AtomicLong done = new AtomicLong();
+		AtomicLong checked = new AtomicLong();
+
+		run(tree, random -> {
+			// rebalancing around the toggled key comes from the neighbours
+			int key = 2 * random.nextInt(STABLE) + 1;
+			if (key != toggled) {
+				if (random.nextBoolean()) {
+					tree.add(key);
+				} else {
+					tree.delete(key);
+				}
+				return;
+			}
+			synchronized (started) {
+				started.incrementAndGet();
+				if (done.get() % 2 == 0) {
+					tree.add(toggled);
+				} else {
+					tree.delete(toggled);
+				}
+				done.incrementAndGet();
+			}
+		}, random -> {
+			long before = done.get();
+			boolean quiet = started.get() == before;
+			boolean found = tree.find(toggled);
+			if (quiet && started.get() == before) {
+				assertEquals(before % 2 == 1, found, "find after " + before + " operations");
+				checked.incrementAndGet();
+			}
+		});
+		assertTrue(checked.get() > 0, "no quiescent find was checked");
+	}
+
+	/**
+	 * a step of a worker thread, given its random source
+	 */
+	private interface Step {
+		void run(ThreadLocalRandom random);
+	}
+
+	@Test
+	void concurrentReadersLoseNoCounts() throws InterruptedException {
+		assumeTrue(TreeStats.ENABLED, "needs -Dapplication.treeStats=true");
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<Integer>();
+		for (int key = 0; key < STABLE; key += 2) {
+			tree.add(key);
+		}
+
+		TreeStats stats = tree.stats();
+		stats.reset();
+		for (int key = 0; key < STABLE; key++) {
+			tree.find(key);
+		}
+		long comparisons = stats.getComparisons();
+		stats.reset();
+
+		List<Thread> threads = new ArrayList<Thread>();
+		for (int r = 0; r < READERS; r++) {
+			threads.add(new Thread(() -> {
+				for (int round = 0; round < 10; round++) {
+					for (int key = 0; key < STABLE; key++) {
+						tree.find(key);
+					}
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		assertEquals(READERS * 10 * comparisons, stats.getComparisons());
+		assertEquals(tree.height(), stats.getHeight());
+		assertEquals(STABLE / 2, stats.getSize());
+	}
+
+	/**
+	 * runs writer steps on WRITERS threads and each reader step on READERS
+	 * threads for MILLIS, then rethrows the first failure
+	 */
+	private static void run(ConcurrentRedBlackTree<Integer> tree, Step writer, Step... readers)
+			throws InterruptedException {
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		List<Thread> threads = new ArrayList<Thread>();
+
+		for (int w = 0; w < WRITERS; w++) {
+			threads.add(worker(writer, stop, errors));
+		}
+		for (Step reader : readers) {
+			for (int r = 0; r < READERS; r++) {
+				threads.add(worker(reader, stop, errors));
+			}
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		Thread.sleep(MILLIS);
+		stop.set(true);
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		rethrow(errors);
+	}
+
+	private static Thread worker(Step step, AtomicBoolean stop, List<Throwable> errors) {
+		return new Thread(() -> {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			try {
+				while (!stop.get()) {
+					step.run(random);
+				}
+			} catch (Throwable e) {
+				errors.add(e);
+				stop.set(true);
+			}
+		});
+	}
+
+	private static void rethrow(List<Throwable> errors) {
+		if (!errors.isEmpty()) {
+			AssertionError failure = new AssertionError(errors.get(0));
+			for (int i = 1; i < errors.size(); i++) {
+				failure.addSuppressed(errors.get(i));
+			}
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package application;
+
+import static application.TreeChecks.assertTree;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * runs insertAll and deleteAll with sorted, reverse sorted, shuffled and
+ * repetitive batches against {@link TreeSet}, with and without a snapshot
+ * open, and checks the returned counts and the invariants after each. with
+ * a snapshot open the fingers are older than the tree and every descent
+ * starts at the root
+ *
+ * @author Alex
+ *
+ */
+class FingerBatchTest {
+	private static final int ROUNDS = 2_000;
+	private static final int UNIVERSE = 4_000;
+
+	private final Random random = new Random(5);
+
+	@Test
+	void batchesMatchTreeSet() {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSnapshot<Integer> snapshot = random.nextInt(3) == 0 ? tree.snapshot() : null;
+			List<Integer> before = new ArrayList<Integer>(oracle);
+			List<Integer> batch = batch();
+			String where = "round " + round;
+
+			if (random.nextInt(5) < 3) {
+				int expected = 0;
+				for (Integer value : batch) {
+					if (oracle.add(value)) {
+						expected++;
+					}
+				}
+				assertEquals(expected, tree.insertAll(batch), "inserted in " + where);
+			} else {
+				int expected = 0;
+				for (Integer value : batch) {
+					if (oracle.remove(value)) {
+						expected++;
+					}
+				}
+				assertEquals(expected, tree.deleteAll(batch), "deleted in " + where);
+			}
+			assertTree(oracle, tree, where);
+			if (snapshot != null) {
+				assertEquals(before, new ArrayList<Integer>(snapshot), "snapshot in " + where);
+			}
+		}
+	}
+
+	@Test
+	void deletesAcrossNodesWithTwoChildren() {
+		// a full tree, where every inner node has two children and survives
+		// its delete holding its predecessor, which the next search starts at
+		for (int stride = 1; stride <= 5; stride++) {
+			for (int offset = 0; offset < stride; offset++) {
+				TreeSet<Integer> oracle = new TreeSet<Integer>();
+				for (int i = 1; i < 1_024; i++) {
+					oracle.add(i);
+				}
+				RedBlackTree<Integer> tree = new RedBlackTree<Integer>(oracle);
+				List<Integer> batch = new ArrayList<Integer>();
+				for (int i = offset; i < 1_100; i += stride) {
+					batch.add(i);
+				}
+				if (stride % 2 == 0) {
+					Collections.reverse(batch);
+				}
+
+				int expected = 0;
+				for (Integer value : batch) {
+					if (oracle.remove(value)) {
+						expected++;
+					}
+				}
+				String where = "stride " + stride + ", offset " + offset;
+				assertEquals(expected, tree.deleteAll(batch), where);
+				assertTree(oracle, tree, where);
+				int size = oracle.size();
+				oracle.addAll(batch);
+				assertEquals(oracle.size() - size, tree.insertAll(batch), where);
+				assertTree(oracle, tree, where + " after inserting back");
+			}
+		}
+	}
+
+	@Test
+	void snapshotSendsDescentsToRoot() {
+		assumeTrue(TreeStats.ENABLED);
+		List<Integer> values = new ArrayList<Integer>();
+		for (int i = 0; i < 1 << 16; i++) {
+			values.add(i);
+		}
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>(values);
+		List<Integer> batch = values.subList(30_000, 31_000);
+
+		long fromFinger = comparisons(tree, batch);
+		tree.snapshot();
+		long fromRoot = comparisons(tree, batch);
+
+		// a run of neighbours costs a few comparisons each from the finger,
+		// about the height of the tree each from the root
+		assertTrue(fromFinger < 6 * batch.size(), "from finger: " + fromFinger);
+		assertTrue(fromRoot > 12 * batch.size(), "from root: " + fromRoot);
+	}
+
+	/**
+	 * comparisons an insertAll of values already in the tree makes
+	 */
+	private static long comparisons(RedBlackTree<Integer> tree, List<Integer> batch) {
+		long before = tree.stats().getComparisons();
+		assertEquals(0, tree.insertAll(batch));
+		return tree.stats().getComparisons() - before;
+	}
+
+	/**
+	 * batch of one of the shapes: shuffled over the whole range, a dense run
+	 * ascending or descending, or few values repeated many times
+	 */
+	private List<Integer> batch() {
+		List<Integer> batch = new ArrayList<Integer>();
+		int size = 1 + random.nextInt(200);
+		int lo = random.nextInt(UNIVERSE);
+
+		switch (random.nextInt(4)) {
+		case 0:
+			for (int i = 0; i < size; i++) {
+				batch.add(random.nextInt(UNIVERSE));
+			}
+			break;
+		case 1:
+			for (int i = 0; i < size; i++) {
+				batch.add(lo + i);
+			}
+			break;
+		case 2:
+			for (int i = size; i > 0; i--) {
+				batch.add(lo + i);
+			}
+			break;
+		default:
+			for (int i = 0; i < size; i++) {
+				batch.add(lo + random.nextInt(4));
+			}
+			Collections.sort(batch);
+		}
+		return batch;
+	}
+}
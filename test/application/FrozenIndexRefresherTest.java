@@ -0,0 +1,131 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * refreshes an index after rounds of changes of every size and checks it
+ * against the tree, and checks snapshot diffs against a set difference
+ *
+ * @author Alex
+ *
+ */
+class FrozenIndexRefresherTest {
+	private static final int KEYS = 20_000;
+	private static final int ROUNDS = 200;
+
+	@Test
+	void indexFollowsTree() {
+		Random random = new Random(20);
+		ConcurrentRedBlackTree<Integer> tree = new ConcurrentRedBlackTree<Integer>();
+		for (int i = 0; i < KEYS / 2; i++) {
+			tree.add(random.nextInt(KEYS));
+		}
+		FrozenIndexRefresher<Integer> refresher = new FrozenIndexRefresher<Integer>(tree, Runnable::run);
+
+		for (int round = 0; round < ROUNDS; round++) {
+			change(tree, random, round);
+			refresher.refresh();
+			assertMatches(tree.toList(), refresher.current(), round);
+		}
+	}
+
+	@Test
+	void diffFindsExactChanges() {
+		Random random = new Random(21);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		for (int i = 0; i < KEYS / 2; i++) {
+			tree.add(random.nextInt(KEYS));
+		}
+
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSnapshot<Integer> before = tree.snapshot();
+			int changes = 1 << random.nextInt(12);
+			for (int i = 0; i < changes; i++) {
+				int key = random.nextInt(KEYS);
+				if (random.nextBoolean()) {
+					tree.add(key);
+				} else {
+					tree.delete(key);
+				}
+			}
+			TreeSnapshot<Integer> after = tree.snapshot();
+
+			TreeSet<Integer> added = new TreeSet<Integer>(after);
+			added.removeAll(before);
+			TreeSet<Integer> removed = new TreeSet<Integer>(before);
+			removed.removeAll(after);
+
+			List<Integer> foundAdded = new ArrayList<Integer>();
+			List<Integer> foundRemoved = new ArrayList<Integer>();
+			assertTrue(before.diff(after, foundAdded, foundRemoved, Integer.MAX_VALUE));
+			assertEquals(new ArrayList<Integer>(added), foundAdded, "added in round " + round);
+			assertEquals(new ArrayList<Integer>(removed), foundRemoved, "removed in round " + round);
+		}
+	}
+
+	/**
+	 * one round of changes, from a single value up to most of the tree,
+	 * including the batch and range operations that split and join
+	 */
+	private static void change(ConcurrentRedBlackTree<Integer> tree, Random random, int round) {
+		switch (round % 4) {
+		case 0:
+			int key = random.nextInt(KEYS);
+			if (!tree.add(key)) {
+				tree.delete(key);
+			}
+			break;
+		case 1:
+			for (int i = 0; i < 200; i++) {
+				int next = random.nextInt(KEYS);
+				if (random.nextBoolean()) {
+					tree.add(next);
+				} else {
+					tree.delete(next);
+				}
+			}
+			break;
+		case 2:
+			List<Integer> batch = new ArrayList<Integer>();
+			for (int i = 0; i < 2_000; i++) {
+				batch.add(random.nextInt(KEYS));
+			}
+			if (random.nextBoolean()) {
+				tree.insertAll(batch);
+			} else {
+				tree.deleteAll(batch);
+			}
+			break;
+		default:
+			int from = random.nextInt(KEYS);
+			tree.removeRange(from, from + random.nextInt(KEYS / 4));
+			for (int i = 0; i < 1_000; i++) {
+				tree.add(random.nextInt(KEYS));
+			}
+		}
+	}
+
+	private static void assertMatches(List<Integer> values, FrozenIndex<Integer> index, int round) {
+		assertEquals(values.size(), index.size(), "size in round " + round);
+		if (!values.isEmpty()) {
+			assertEquals(values.get(0), index.first(), "first in round " + round);
+			assertEquals(values.get(values.size() - 1), index.last(), "last in round " + round);
+		}
+		TreeSet<Integer> set = new TreeSet<Integer>(values);
+		for (int key = -1; key <= KEYS; key++) {
+			if (set.contains(key) != index.find(key) || !Objects.equals(set.ceiling(key), index.ceiling(key))) {
+				assertEquals(set.contains(key), index.find(key), key + " in round " + round);
+				assertEquals(set.ceiling(key), index.ceiling(key), "ceiling of " + key + " in round " + round);
+			}
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * runs the same random inserts and deletes on an {@link IntRedBlackTree}
+ * and a {@link RedBlackTree} and checks they agree on every answer and on
+ * the shape of the tree
+ *
+ * @author Alex
+ *
+ */
+class IntRedBlackTreeTest {
+	private static final int OPERATIONS = 200_000;
+	private static final int CHECK_EVERY = 1_000;
+
+	@Test
+	void matchesGenericTree() {
+		Random random = new Random(1);
+		IntRedBlackTree ints = new IntRedBlackTree();
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			int key = random.nextInt(5_000) - 2_500;
+			switch (random.nextInt(3)) {
+			case 0:
+				assertEquals(tree.add(key), ints.insert(key), "insert " + key);
+				break;
+			case 1:
+				assertEquals(tree.delete(key), ints.delete(key), "delete " + key);
+				break;
+			default:
+				assertEquals(tree.find(key), ints.find(key), "find " + key);
+			}
+			assertEquals(tree.size(), ints.size());
+
+			if (i % CHECK_EVERY == 0) {
+				assertSameShape(tree, ints);
+			}
+		}
+		assertSameShape(tree, ints);
+	}
+
+	@Test
+	void drainsToEmpty() {
+		Random random = new Random(2);
+		IntRedBlackTree ints = new IntRedBlackTree(4);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+
+		for (int i = 0; i < 10_000; i++) {
+			int key = random.nextInt();
+			tree.add(key);
+			ints.insert(key);
+		}
+		for (Integer key : tree.inorder().stream().map(RBNode::getData).toArray(Integer[]::new)) {
+			assertEquals(true, ints.delete(key));
+			tree.delete(key);
+			if (tree.size() % 500 == 0) {
+				assertSameShape(tree, ints);
+			}
+		}
+		assertEquals(true, ints.isEmpty());
+		assertEquals(0, ints.inorder().length);
+	}
+
+	/**
+	 * preorder and inorder together fix the shape, breadthfirst and
+	 * postorder exercise the other traversals
+	 */
+	private static void assertSameShape(RedBlackTree<Integer> tree, IntRedBlackTree ints) {
+		assertArrayEquals(keys(tree.inorder()), ints.inorder());
+		assertArrayEquals(keys(tree.preorder()), ints.preorder());
+		assertArrayEquals(keys(tree.postorder()), ints.postorder());
+		assertArrayEquals(keys(tree.breadthfirst()), ints.breadthfirst());
+	}
+
+	private static int[] keys(List<RBNode<Integer>> nodes) {
+		return nodes.stream().mapToInt(RBNode::getData).toArray();
+	}
+}
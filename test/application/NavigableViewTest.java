@@ -0,0 +1,273 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * compares every view a {@link RedBlackTree} hands out, nested two deep and
+ * in both directions, against the same view of a {@link TreeSet}: contents,
+ * navigation, bound checks, polling and iterator removal. sub maps of
+ * {@link RedBlackTreeMap} are compared against {@link TreeMap}
+ *
+ * @author Alex
+ *
+ */
+class NavigableViewTest {
+	/**
+	 * values in the sets, the bounds tried fall on and between them
+	 */
+	private static final List<Integer> VALUES = List.of(0, 2, 4, 6);
+	private static final int LOW = -1;
+	private static final int HIGH = 7;
+
+	@Test
+	void nestedViewsMatchTreeSet() {
+		List<UnaryOperator<NavigableSet<Integer>>> narrowings = narrowings(1, 5);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>(VALUES);
+		TreeSet<Integer> oracle = new TreeSet<Integer>(VALUES);
+
+		for (UnaryOperator<NavigableSet<Integer>> first : narrowings) {
+			NavigableSet<Integer> expected = attempt(first, oracle);
+			NavigableSet<Integer> actual = attempt(first, tree);
+			assertSameOutcome(expected, actual, "one narrowing");
+			if (expected == null) {
+				continue;
+			}
+			assertSameView(expected, actual);
+
+			for (UnaryOperator<NavigableSet<Integer>> second : narrowings) {
+				NavigableSet<Integer> nestedExpected = attempt(second, expected);
+				NavigableSet<Integer> nestedActual = attempt(second, actual);
+				assertSameOutcome(nestedExpected, nestedActual, "two narrowings of " + expected);
+				if (nestedExpected != null) {
+					assertSameView(nestedExpected, nestedActual);
+				}
+			}
+		}
+	}
+
+	@Test
+	void emptyViewsNarrowLikeTreeSet() {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>(List.of(1, 2, 3));
+
+		assertEquals(List.of(), new ArrayList<Integer>(tree.subSet(2, false, 2, true).tailSet(2, false)));
+		assertEquals(List.of(), new ArrayList<Integer>(tree.subSet(2, true, 2, false).headSet(2, false)));
+		assertThrows(IllegalArgumentException.class, () -> tree.subSet(2, true, 2, false).headSet(3, false));
+	}
+
+	@Test
+	void pollAndIteratorRemoveMatchTreeSet() {
+		for (UnaryOperator<NavigableSet<Integer>> narrowing : narrowings(0, 6)) {
+			for (int mode = 0; mode < 4; mode++) {
+				NavigableSet<Integer> oracle = new TreeSet<Integer>(VALUES);
+				RedBlackTree<Integer> tree = new RedBlackTree<Integer>(VALUES);
+				NavigableSet<Integer> expected = attempt(narrowing, oracle);
+				NavigableSet<Integer> actual = attempt(narrowing, tree);
+				if (expected == null) {
+					continue;
+				}
+
+				switch (mode) {
+				case 0:
+					assertEquals(expected.pollFirst(), actual.pollFirst());
+					break;
+				case 1:
+					assertEquals(expected.pollLast(), actual.pollLast());
+					break;
+				case 2:
+					removeEverySecond(expected.iterator());
+					removeEverySecond(actual.iterator());
+					break;
+				default:
+					removeEverySecond(expected.descendingIterator());
+					removeEverySecond(actual.descendingIterator());
+				}
+				assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(tree), "mode " + mode);
+				assertSameView(expected, actual);
+			}
+		}
+	}
+
+	@Test
+	void iteratorRemoveNeedsNext() {
+		Iterator<Integer> ascending = new RedBlackTree<Integer>(VALUES).iterator();
+		assertThrows(IllegalStateException.class, ascending::remove);
+		ascending.next();
+		ascending.remove();
+		assertThrows(IllegalStateException.class, ascending::remove);
+
+		Iterator<Integer> descending = new RedBlackTree<Integer>(VALUES).descendingIterator();
+		assertThrows(IllegalStateException.class, descending::remove);
+	}
+
+	@Test
+	void subMapsMatchTreeMap() {
+		Random random = new Random(10);
+		List<Function<SortedMap<Integer, String>, SortedMap<Integer, String>>> views = new ArrayList<>();
+		for (int from = LOW; from <= HIGH; from++) {
+			int lo = from;
+			views.add(map -> map.tailMap(lo));
+			views.add(map -> map.headMap(lo));
+			for (int to = from; to <= HIGH; to++) {
+				int hi = to;
+				views.add(map -> map.subMap(lo, hi));
+			}
+		}
+
+		for (Function<SortedMap<Integer, String>, SortedMap<Integer, String>> view : views) {
+			TreeMap<Integer, String> oracle = new TreeMap<Integer, String>();
+			RedBlackTreeMap<Integer, String> map = new RedBlackTreeMap<Integer, String>();
+			for (int value : VALUES) {
+				oracle.put(value, "v" + value);
+				map.put(value, "v" + value);
+			}
+			SortedMap<Integer, String> expected = view.apply(oracle);
+			SortedMap<Integer, String> actual = view.apply(map);
+
+			for (int i = 0; i < 40; i++) {
+				int key = LOW + random.nextInt(HIGH - LOW + 1);
+				String value = "w" + i;
+				switch (random.nextInt(4)) {
+				case 0:
+					assertSameOutcome(() -> expected.put(key, value), () -> actual.put(key, value), "put " + key);
+					break;
+				case 1:
+					assertEquals(expected.remove(key), actual.remove(key), "remove " + key);
+					break;
+				case 2:
+					assertEquals(expected.get(key), actual.get(key), "get " + key);
+					assertEquals(expected.containsKey(key), actual.containsKey(key), "contains " + key);
+					break;
+				default:
+					Iterator<Map.Entry<Integer, String>> expectedEntries = expected.entrySet().iterator();
+					Iterator<Map.Entry<Integer, String>> actualEntries = actual.entrySet().iterator();
+					if (expectedEntries.hasNext()) {
+						assertEquals(expectedEntries.next().getKey(), actualEntries.next().getKey());
+						expectedEntries.remove();
+						actualEntries.remove();
+					}
+				}
+				assertEquals(expected, actual);
+				assertEquals(expected.size(), actual.size());
+				assertEquals(oracle, map);
+				if (!expected.isEmpty()) {
+					assertEquals(expected.firstKey(), actual.firstKey());
+					assertEquals(expected.lastKey(), actual.lastKey());
+				}
+			}
+			actual.clear();
+			expected.clear();
+			assertEquals(oracle, map);
+		}
+	}
+
+	/**
+	 * every subSet, headSet, tailSet and descendingSet with bounds in
+	 * [lo, hi] and either inclusiveness
+	 */
+	private static List<UnaryOperator<NavigableSet<Integer>>> narrowings(int lo, int hi) {
+		List<UnaryOperator<NavigableSet<Integer>>> narrowings = new ArrayList<>();
+		narrowings.add(NavigableSet::descendingSet);
+		for (int from = lo; from <= hi; from++) {
+			for (boolean fromInclusive : new boolean[] { false, true }) {
+				int a = from;
+				boolean ai = fromInclusive;
+				narrowings.add(set -> set.headSet(a, ai));
+				narrowings.add(set -> set.tailSet(a, ai));
+				for (int to = lo; to <= hi; to++) {
+					for (boolean toInclusive : new boolean[] { false, true }) {
+						int b = to;
+						boolean bi = toInclusive;
+						narrowings.add(set -> set.subSet(a, ai, b, bi));
+					}
+				}
+			}
+		}
+		return narrowings;
+	}
+
+	/**
+	 * applies a narrowing
+	 *
+	 * @return view, null if it threw IllegalArgumentException
+	 */
+	private static NavigableSet<Integer> attempt(UnaryOperator<NavigableSet<Integer>> narrowing,
+			NavigableSet<Integer> set) {
+		try {
+			return narrowing.apply(set);
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+
+	private static void assertSameOutcome(Object expected, Object actual, String where) {
+		assertEquals(expected == null, actual == null, "IllegalArgumentException after " + where);
+	}
+
+	private static void assertSameOutcome(Runnable expected, Runnable actual, String where) {
+		RuntimeException thrown = null;
+		try {
+			expected.run();
+		} catch (IllegalArgumentException e) {
+			thrown = e;
+		}
+		if (thrown == null) {
+			actual.run();
+		} else {
+			assertThrows(IllegalArgumentException.class, actual::run, where);
+		}
+	}
+
+	private static void assertSameView(NavigableSet<Integer> expected, NavigableSet<Integer> actual) {
+		String where = expected.toString();
+		assertEquals(new ArrayList<Integer>(expected), new ArrayList<Integer>(actual), where);
+		assertEquals(new ArrayList<Integer>(expected.descendingSet()), new ArrayList<Integer>(actual.descendingSet()),
+				where);
+		List<Integer> descending = new ArrayList<Integer>();
+		actual.descendingIterator().forEachRemaining(descending::add);
+		assertEquals(new ArrayList<Integer>(expected.descendingSet()), descending, where);
+		assertEquals(expected.size(), actual.size(), where);
+		assertEquals(expected.isEmpty(), actual.isEmpty(), where);
+
+		if (expected.isEmpty()) {
+			assertThrows(NoSuchElementException.class, actual::first, where);
+			assertThrows(NoSuchElementException.class, actual::last, where);
+		} else {
+			assertEquals(expected.first(), actual.first(), where);
+			assertEquals(expected.last(), actual.last(), where);
+		}
+
+		for (int probe = LOW; probe <= HIGH; probe++) {
+			String at = where + " at " + probe;
+			assertEquals(expected.floor(probe), actual.floor(probe), "floor " + at);
+			assertEquals(expected.ceiling(probe), actual.ceiling(probe), "ceiling " + at);
+			assertEquals(expected.lower(probe), actual.lower(probe), "lower " + at);
+			assertEquals(expected.higher(probe), actual.higher(probe), "higher " + at);
+			assertEquals(expected.contains(probe), actual.contains(probe), "contains " + at);
+		}
+	}
+
+	private static void removeEverySecond(Iterator<Integer> values) {
+		for (int i = 0; values.hasNext(); i++) {
+			values.next();
+			if (i % 2 == 0) {
+				values.remove();
+			}
+		}
+	}
+}
@@ -0,0 +1,232 @@
+package application;
+
+import static application.TreeChecks.assertTree;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * churns trees that recycle deleted nodes and checks that a recycled node
+ * is never one a held snapshot can reach, that iterators removing values
+ * never hand out a node that went back to the pool, and that the pool
+ * counts every take and give exactly
+ *
+ * @author Alex
+ *
+ */
+class NodePoolTest {
+	private static final int STEPS = 20_000;
+	private static final int UNIVERSE = 500;
+
+	@Test
+	void countersFollowTakesAndGives() {
+		Random random = new Random(18);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		NodePool<Integer> pool = tree.enableNodePool(16);
+		assertEquals(16, pool.capacity());
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		// what the pool should report: free nodes, hits, misses, dropped
+		long[] expected = new long[4];
+
+		for (int step = 0; step < STEPS; step++) {
+			if (step % 100 == 0) {
+				tree.snapshot();
+			}
+			int value = random.nextInt(UNIVERSE);
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				if (oracle.add(value)) {
+					take(expected);
+				}
+				tree.add(value);
+				break;
+			case 2:
+				if (oracle.remove(value)) {
+					give(expected, pool.capacity());
+				}
+				tree.delete(value);
+				break;
+			case 3:
+				List<Integer> batch = new ArrayList<Integer>();
+				for (int i = random.nextInt(30); i > 0; i--) {
+					batch.add(random.nextInt(UNIVERSE));
+				}
+				boolean insert = random.nextBoolean();
+				for (Integer data : new TreeSet<Integer>(batch)) {
+					if (insert && oracle.add(data)) {
+						take(expected);
+					} else if (!insert && oracle.remove(data)) {
+						give(expected, pool.capacity());
+					}
+				}
+				if (insert) {
+					tree.insertAll(batch);
+				} else {
+					tree.deleteAll(batch);
+				}
+				break;
+			default:
+				// nodes moved out by a range removal do not pass the pool
+				if (random.nextInt(10) == 0) {
+					oracle.subSet(value, value + 20).clear();
+					tree.removeRange(value, value + 20);
+				} else if (oracle.pollFirst() != null) {
+					give(expected, pool.capacity());
+					tree.pollFirst();
+				}
+			}
+
+			String where = "step " + step + ", " + pool;
+			assertEquals(expected[0], pool.size(), where);
+			assertEquals(expected[1], pool.hits(), where);
+			assertEquals(expected[2], pool.misses(), where);
+			assertEquals(expected[3], pool.dropped(), where);
+			assertTrue(pool.size() <= pool.capacity(), where);
+		}
+		assertTree(oracle, tree, "after churn");
+		assertTrue(expected[1] > 0 && expected[2] > 0 && expected[3] > 0, pool.toString());
+	}
+
+	@Test
+	void capacityIsChecked() {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		assertThrows(IllegalArgumentException.class, () -> tree.enableNodePool(-1));
+		assertNull(tree.enableNodePool(0));
+		assertNull(tree.nodePool());
+
+		NodePool<Integer> pool = tree.enableNodePool(1);
+		assertSame(pool, tree.nodePool());
+		tree.add(1);
+		tree.add(2);
+		tree.delete(1);
+		tree.delete(2);
+		assertEquals(1, pool.size());
+		assertEquals(0, pool.hits());
+		assertEquals(2, pool.misses());
+		assertEquals(1, pool.dropped());
+	}
+
+	@Test
+	void recycledNodesNeverReachSnapshots() {
+		Random random = new Random(81);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		NodePool<Integer> pool = tree.enableNodePool(32);
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		List<List<Integer>> values = new ArrayList<List<Integer>>();
+		List<TreeSnapshot<Integer>> snapshots = new ArrayList<TreeSnapshot<Integer>>();
+		Set<RBNode<Integer>> reachable = Collections.newSetFromMap(new IdentityHashMap<RBNode<Integer>, Boolean>());
+
+		for (int step = 0; step < STEPS; step++) {
+			if (step % 1_000 == 0) {
+				values.add(new ArrayList<Integer>(tree));
+				snapshots.add(tree.snapshot());
+				collect(tree.root, tree.nil, reachable);
+			}
+
+			int value = random.nextInt(UNIVERSE);
+			if (random.nextBoolean()) {
+				long hits = pool.hits();
+				assertEquals(oracle.add(value), tree.add(value));
+				if (pool.hits() > hits) {
+					assertFalse(reachable.contains(tree.search(value)), "recycled node of a snapshot in step " + step);
+				}
+			} else {
+				assertEquals(oracle.remove(value), tree.delete(value));
+			}
+		}
+
+		assertTree(oracle, tree, "after churn");
+		assertTrue(pool.hits() > STEPS / 10, pool.toString());
+		for (int i = 0; i < snapshots.size(); i++) {
+			assertEquals(values.get(i).size(), snapshots.get(i).size(), "size of snapshot " + i);
+			assertEquals(values.get(i), new ArrayList<Integer>(snapshots.get(i)), "values of snapshot " + i);
+		}
+	}
+
+	@Test
+	void iteratorsNeverSeeRecycledNodes() {
+		Random random = new Random(1_018);
+		for (int round = 0; round < 500; round++) {
+			RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+			tree.enableNodePool(1 + random.nextInt(8));
+			TreeSet<Integer> oracle = new TreeSet<Integer>();
+			for (int i = random.nextInt(300); i > 0; i--) {
+				int value = random.nextInt(UNIVERSE);
+				oracle.add(value);
+				tree.add(value);
+			}
+			// with a snapshot open every node removed is a copy
+			TreeSnapshot<Integer> snapshot = random.nextBoolean() ? tree.snapshot() : null;
+			List<Integer> before = new ArrayList<Integer>(tree);
+
+			int from = random.nextInt(UNIVERSE);
+			int to = from + random.nextInt(UNIVERSE / 2);
+			boolean toInclusive = random.nextBoolean();
+			NavigableSet<Integer> expected = oracle.subSet(from, true, to, toInclusive);
+			NavigableSet<Integer> actual = tree.subSet(from, true, to, toInclusive);
+			if (random.nextBoolean()) {
+				expected = expected.descendingSet();
+				actual = actual.descendingSet();
+			}
+
+			Iterator<Integer> expectedValues = expected.iterator();
+			Iterator<Integer> actualValues = actual.iterator();
+			int every = 1 + random.nextInt(3);
+			for (int i = 0; expectedValues.hasNext(); i++) {
+				assertTrue(actualValues.hasNext(), "round " + round);
+				assertEquals(expectedValues.next(), actualValues.next(), "round " + round);
+				if (i % every == 0) {
+					expectedValues.remove();
+					actualValues.remove();
+				}
+			}
+			assertFalse(actualValues.hasNext(), "round " + round);
+
+			assertTree(oracle, tree, "round " + round);
+			if (snapshot != null) {
+				assertEquals(before, new ArrayList<Integer>(snapshot), "snapshot in round " + round);
+			}
+		}
+	}
+
+	private static void take(long[] expected) {
+		if (expected[0] > 0) {
+			expected[0]--;
+			expected[1]++;
+		} else {
+			expected[2]++;
+		}
+	}
+
+	private static void give(long[] expected, int capacity) {
+		if (expected[0] == capacity) {
+			expected[3]++;
+		} else {
+			expected[0]++;
+		}
+	}
+
+	private static void collect(RBNode<Integer> node, RBNode<Integer> nil, Set<RBNode<Integer>> nodes) {
+		if (node != nil) {
+			nodes.add(node);
+			collect(node.left, nil, nodes);
+			collect(node.right, nil, nodes);
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+
+/**
+ * runs random inserts and deletes on an {@link OffHeapRedBlackTree} large
+ * enough to span several chunks of slots against {@link TreeSet}, checks
+ * that deleted slots are reused before a new chunk is taken, and that a
+ * closed tree refuses every call
+ *
+ * @author Alex
+ *
+ */
+class OffHeapRedBlackTreeTest {
+	/**
+	 * slots per chunk and bytes per slot, as laid out by the tree
+	 */
+	private static final int CHUNK_SLOTS = 1 << 16;
+	private static final long CHUNK_BYTES = CHUNK_SLOTS * 24L;
+
+	private static final int KEYS = 150_000;
+	private static final int OPERATIONS = 300_000;
+	private static final int CHECK_EVERY = 50_000;
+
+	@Test
+	void matchesTreeSetAcrossChunks() {
+		Random random = new Random(17);
+		TreeSet<Long> oracle = new TreeSet<Long>();
+
+		try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree()) {
+			assertEquals(CHUNK_BYTES, tree.reservedBytes());
+			for (long key : new long[] { Long.MIN_VALUE, Long.MAX_VALUE, 0, -1 }) {
+				assertEquals(oracle.add(key), tree.insert(key));
+			}
+			while (oracle.size() < KEYS) {
+				long key = random.nextLong();
+				assertEquals(oracle.add(key), tree.insert(key));
+			}
+			assertMatches(oracle, tree, "after filling");
+			assertEquals(3 * CHUNK_BYTES, tree.reservedBytes());
+
+			List<Long> present = new ArrayList<Long>(oracle);
+			for (int i = 0; i < OPERATIONS; i++) {
+				// half the deletes and finds hit, half the inserts collide
+				long key = random.nextBoolean() ? present.get(random.nextInt(present.size())) : random.nextLong();
+				switch (random.nextInt(3)) {
+				case 0:
+					assertEquals(oracle.add(key), tree.insert(key), "insert " + key);
+					break;
+				case 1:
+					assertEquals(oracle.remove(key), tree.delete(key), "delete " + key);
+					break;
+				default:
+					assertEquals(oracle.contains(key), tree.find(key), "find " + key);
+				}
+				assertEquals(oracle.size(), tree.size());
+
+				if (i % CHECK_EVERY == 0) {
+					assertMatches(oracle, tree, "after operation " + i);
+					present = new ArrayList<Long>(oracle);
+				}
+			}
+			assertMatches(oracle, tree, "after churn");
+		}
+	}
+
+	@Test
+	void reusesFreedSlots() {
+		// fills two chunks to the last slot, slot 0 being the nil
+		int count = 2 * CHUNK_SLOTS - 1;
+
+		try (OffHeapRedBlackTree tree = new OffHeapRedBlackTree()) {
+			for (int i = 0; i < count; i++) {
+				tree.insert(i);
+			}
+			assertEquals(2 * CHUNK_BYTES, tree.reservedBytes());
+
+			// a drained tree holds every slot on the free list, so filling
+			// it again in another order takes no chunk
+			for (int i = 0; i < count; i += 2) {
+				tree.delete(i);
+			}
+			tree.blackHeight();
+			for (int i = count - 2; i > 0; i -= 2) {
+				tree.delete(i);
+			}
+			assertEquals(true, tree.isEmpty());
+			assertEquals(0, tree.blackHeight());
+
+			TreeSet<Long> oracle = new TreeSet<Long>();
+			for (long i = count - 1; i >= 0; i--) {
+				long key = i * 7 - count;
+				oracle.add(key);
+				tree.insert(key);
+			}
+			assertMatches(oracle, tree, "after refilling");
+			assertEquals(2 * CHUNK_BYTES, tree.reservedBytes());
+
+			tree.insert(Long.MAX_VALUE);
+			oracle.add(Long.MAX_VALUE);
+			assertMatches(oracle, tree, "after crossing into the third chunk");
+			assertEquals(3 * CHUNK_BYTES, tree.reservedBytes());
+		}
+	}
+
+	@Test
+	void closedTreeRefusesEveryCall() {
+		OffHeapRedBlackTree tree = new OffHeapRedBlackTree();
+		for (int i = 0; i < 10; i++) {
+			tree.insert(i);
+		}
+		PrimitiveIterator.OfLong open = tree.iterator();
+		open.nextLong();
+		tree.close();
+
+		Executable[] calls = { () -> tree.insert(1), () -> tree.delete(1), () -> tree.find(1), tree::size,
+				tree::isEmpty, tree::reservedBytes, tree::iterator, tree::inorder, tree::blackHeight, open::hasNext,
+				open::nextLong };
+		for (int i = 0; i < calls.length; i++) {
+			assertThrows(IllegalStateException.class, calls[i], "call " + i);
+		}
+
+		// closing again frees nothing twice
+		tree.close();
+		assertThrows(IllegalStateException.class, tree::size);
+	}
+
+	/**
+	 * checks the invariants and that the iterator, inorder and size all
+	 * agree with the oracle
+	 */
+	private static void assertMatches(TreeSet<Long> oracle, OffHeapRedBlackTree tree, String where) {
+		tree.blackHeight();
+		assertEquals(oracle.size(), tree.size(), where);
+		assertEquals(oracle.isEmpty(), tree.isEmpty(), where);
+
+		long[] expected = oracle.stream().mapToLong(Long::longValue).toArray();
+		assertArrayEquals(expected, tree.inorder(), where);
+
+		PrimitiveIterator.OfLong keys = tree.iterator();
+		for (long key : expected) {
+			assertEquals(key, keys.nextLong(), where);
+		}
+		assertEquals(false, keys.hasNext(), where);
+	}
+}
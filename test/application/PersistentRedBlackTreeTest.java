@@ -0,0 +1,142 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * checks every version a {@link PersistentRedBlackTree} publishes against
+ * the red black invariants and {@link TreeSet}, that old versions keep
+ * their values while later ones are written, and that writers racing on
+ * compare-and-set lose no update
+ *
+ * @author Alex
+ *
+ */
+class PersistentRedBlackTreeTest {
+	private static final int OPERATIONS = 50_000;
+	private static final int UNIVERSE = 2_000;
+	private static final int WRITERS = 4;
+	private static final int WRITES = 20_000;
+
+	@Test
+	void versionsMatchTreeSet() {
+		Random random = new Random(12);
+		PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<Integer>();
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		List<PersistentRedBlackTree.Version<Integer>> held = new ArrayList<PersistentRedBlackTree.Version<Integer>>();
+		List<List<Integer>> values = new ArrayList<List<Integer>>();
+
+		for (int i = 0; i < OPERATIONS; i++) {
+			// deletes win while the bias lasts, so the tree grows and drains
+			int key = random.nextInt(UNIVERSE);
+			if (random.nextInt(100) < (i / 5_000 % 2 == 0 ? 60 : 35)) {
+				assertEquals(oracle.add(key), tree.add(key), "add " + key);
+			} else {
+				assertEquals(oracle.remove(key), tree.delete(key), "delete " + key);
+			}
+
+			PersistentRedBlackTree.Version<Integer> version = tree.version();
+			version.blackHeight();
+			assertEquals(oracle.size(), version.size(), "size after operation " + i);
+			assertEquals(oracle.contains(key), version.find(key), "find after operation " + i);
+			if (i % 500 == 0) {
+				held.add(version);
+				values.add(new ArrayList<Integer>(oracle));
+				assertEquals(values.get(values.size() - 1), list(version), "values after operation " + i);
+			}
+		}
+
+		for (int i = 0; i < held.size(); i++) {
+			PersistentRedBlackTree.Version<Integer> version = held.get(i);
+			version.blackHeight();
+			assertEquals(values.get(i), list(version), "values of version " + i);
+			assertEquals(values.get(i).size(), version.size(), "size of version " + i);
+			assertEquals(values.get(i).isEmpty(), version.isEmpty(), "isEmpty of version " + i);
+		}
+	}
+
+	@Test
+	void emptiedTreeIsValid() {
+		PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<Integer>();
+		assertEquals(0, tree.version().blackHeight());
+		for (int i = 0; i < 1_000; i++) {
+			tree.add(i);
+		}
+		PersistentRedBlackTree.Version<Integer> full = tree.version();
+		for (int i = 999; i >= 0; i--) {
+			tree.delete(i);
+			tree.version().blackHeight();
+		}
+		assertEquals(true, tree.isEmpty());
+		assertEquals(1_000, full.size());
+		assertEquals(499_500, list(full).stream().mapToInt(Integer::intValue).sum());
+	}
+
+	/**
+	 * every key belongs to one writer, so the writer knows its state. a
+	 * writer whose compare-and-set lost must retry on the new version, or
+	 * the tree ends up without an update some writer saw succeed
+	 */
+	@Test
+	void racingWritersLoseNoUpdate() throws InterruptedException {
+		PersistentRedBlackTree<Integer> tree = new PersistentRedBlackTree<Integer>();
+		BitSet[] owned = new BitSet[WRITERS];
+		List<Thread> threads = new ArrayList<Thread>();
+		List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			owned[w] = new BitSet();
+			threads.add(new Thread(() -> {
+				Random random = new Random(writer);
+				try {
+					for (int i = 0; i < WRITES; i++) {
+						int key = random.nextInt(UNIVERSE) * WRITERS + writer;
+						if (random.nextInt(3) > 0) {
+							assertEquals(!owned[writer].get(key), tree.add(key));
+							owned[writer].set(key);
+						} else {
+							assertEquals(owned[writer].get(key), tree.delete(key));
+							owned[writer].clear(key);
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+				}
+			}));
+		}
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		if (!errors.isEmpty()) {
+			throw new AssertionError(errors.get(0));
+		}
+
+		List<Integer> expected = new ArrayList<Integer>();
+		BitSet all = new BitSet();
+		for (BitSet keys : owned) {
+			all.or(keys);
+		}
+		all.stream().forEach(expected::add);
+		tree.version().blackHeight();
+		assertEquals(expected, list(tree.version()));
+		assertEquals(expected.size(), tree.size());
+	}
+
+	private static List<Integer> list(Iterable<Integer> values) {
+		List<Integer> list = new ArrayList<Integer>();
+		values.forEach(list::add);
+		return list;
+	}
+}
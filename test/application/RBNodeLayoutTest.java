@@ -0,0 +1,67 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.FieldLayout;
+
+/**
+ * prints the field layout of {@link RBNode} next to the same node with the
+ * old String color, and checks what the byte color does and does not buy
+ *
+ * the color itself shrinks from a reference to one byte, but with 8 byte
+ * object alignment the instance does not get smaller: the byte lands in
+ * padding the String reference version also had to round up to
+ *
+ * @author Alex
+ *
+ */
+class RBNodeLayoutTest {
+	/**
+	 * RBNode as it would be with the color still a String
+	 */
+	@SuppressWarnings("unused")
+	private static final class StringColorNode {
+		private Object data;
+		private String color;
+		private int size;
+		private int epoch;
+		private StringColorNode parent;
+		private StringColorNode left;
+		private StringColorNode right;
+	}
+
+	@Test
+	void layoutReport() {
+		ClassLayout node = ClassLayout.parseClass(RBNode.class);
+		ClassLayout stringColor = ClassLayout.parseClass(StringColorNode.class);
+
+		System.out.println(node.toPrintable());
+		System.out.println(stringColor.toPrintable());
+
+		assertEquals(1, field(node, "color").size());
+		assertTrue(field(stringColor, "color").size() >= 4);
+		// no bigger, but no smaller either once aligned
+		assertTrue(node.instanceSize() <= stringColor.instanceSize());
+		assertTrue(node.headerSize() + fieldBytes(node) < node.headerSize() + fieldBytes(stringColor));
+	}
+
+	private static FieldLayout field(ClassLayout layout, String name) {
+		for (FieldLayout field : layout.fields()) {
+			if (field.name().equals(name)) {
+				return field;
+			}
+		}
+		throw new AssertionError("no field " + name);
+	}
+
+	private static long fieldBytes(ClassLayout layout) {
+		long bytes = 0;
+		for (FieldLayout field : layout.fields()) {
+			bytes += field.size();
+		}
+		return bytes;
+	}
+}
@@ -0,0 +1,198 @@
+package application;
+
+import static application.TreeChecks.assertTree;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * cuts intervals out of random trees with extractRange, removeRange and the
+ * clear of range views, which pass their inclusive flags to the two splits
+ * and the join, and checks what is left and what was cut out against
+ * {@link TreeSet}. the cut out tree has to work as a tree of its own
+ *
+ * @author Alex
+ *
+ */
+class RangeExtractTest {
+	private static final int ROUNDS = 400;
+	private static final int UNIVERSE = 2_000;
+
+	private final Random random = new Random(22);
+
+	@Test
+	void extractRangeMatchesTreeSet() {
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSet<Integer> oracle = values();
+			RedBlackTree<Integer> tree = tree(oracle);
+			int from = bound();
+			int to = Math.max(from, bound());
+
+			RedBlackTree<Integer> extracted = tree.extractRange(from, to);
+			String where = "[" + from + ", " + to + ")";
+			TreeSet<Integer> range = new TreeSet<Integer>(oracle.subSet(from, true, to, false));
+			oracle.removeAll(range);
+			assertTree(oracle, tree, "rest of " + where);
+			assertStandalone(range, extracted, where);
+		}
+	}
+
+	@Test
+	void removeRangeCountsValues() {
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSet<Integer> oracle = values();
+			RedBlackTree<Integer> tree = tree(oracle);
+			int from = bound();
+			int to = Math.max(from, bound());
+
+			NavigableSet<Integer> range = oracle.subSet(from, true, to, false);
+			int expected = range.size();
+			range.clear();
+			assertEquals(expected, tree.removeRange(from, to), "[" + from + ", " + to + ")");
+			assertTree(oracle, tree, "after removing [" + from + ", " + to + ")");
+		}
+		assertThrows(IllegalArgumentException.class, () -> new RedBlackTree<Integer>(List.of(1)).removeRange(2, 1));
+	}
+
+	@Test
+	void edgeIntervals() {
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		for (int i = 0; i < 1_000; i += 2) {
+			oracle.add(i);
+		}
+		int[][] intervals = { { 0, 1_000 }, { -50, 5_000 }, { 10, 10 }, { 11, 11 }, { -20, -10 }, { 2_000, 3_000 },
+				{ -10, 0 }, { 998, 999 }, { 999, 2_000 } };
+
+		for (int[] interval : intervals) {
+			RedBlackTree<Integer> tree = tree(oracle);
+			RedBlackTree<Integer> extracted = tree.extractRange(interval[0], interval[1]);
+			String where = "[" + interval[0] + ", " + interval[1] + ")";
+
+			TreeSet<Integer> rest = new TreeSet<Integer>(oracle);
+			TreeSet<Integer> range = new TreeSet<Integer>(oracle.subSet(interval[0], interval[1]));
+			rest.removeAll(range);
+			assertTree(rest, tree, "rest of " + where);
+			assertStandalone(range, extracted, where);
+		}
+	}
+
+	@Test
+	void viewClearHonoursInclusiveFlags() {
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSet<Integer> oracle = values();
+			RedBlackTree<Integer> tree = tree(oracle);
+			int from = bound();
+			int to = Math.max(from, bound());
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+			String where = (fromInclusive ? "[" : "(") + from + ", " + to + (toInclusive ? "]" : ")");
+
+			switch (random.nextInt(4)) {
+			case 0:
+				oracle.subSet(from, fromInclusive, to, toInclusive).clear();
+				tree.subSet(from, fromInclusive, to, toInclusive).clear();
+				break;
+			case 1:
+				oracle.headSet(to, toInclusive).clear();
+				tree.headSet(to, toInclusive).clear();
+				where = "head " + where;
+				break;
+			case 2:
+				oracle.tailSet(from, fromInclusive).clear();
+				tree.tailSet(from, fromInclusive).clear();
+				where = "tail " + where;
+				break;
+			default:
+				oracle.descendingSet().subSet(to, toInclusive, from, fromInclusive).clear();
+				tree.descendingSet().subSet(to, toInclusive, from, fromInclusive).clear();
+				where = "descending " + where;
+			}
+			assertTree(oracle, tree, "after clearing " + where);
+		}
+	}
+
+	@Test
+	void extractWithInclusiveFlags() {
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSet<Integer> oracle = values();
+			RedBlackTree<Integer> tree = tree(oracle);
+			Integer from = random.nextInt(5) == 0 ? null : bound();
+			Integer to = random.nextInt(5) == 0 ? null : Math.max(from == null ? 0 : from, bound());
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+
+			NavigableSet<Integer> range = oracle;
+			if (from != null && to != null) {
+				range = oracle.subSet(from, fromInclusive, to, toInclusive);
+			} else if (from != null) {
+				range = oracle.tailSet(from, fromInclusive);
+			} else if (to != null) {
+				range = oracle.headSet(to, toInclusive);
+			}
+			TreeSet<Integer> expected = new TreeSet<Integer>(range);
+			oracle.removeAll(expected);
+
+			String where = (fromInclusive ? "[" : "(") + from + ", " + to + (toInclusive ? "]" : ")");
+			RedBlackTree<Integer> extracted = tree.extract(from, fromInclusive, to, toInclusive);
+			assertTree(oracle, tree, "rest of " + where);
+			assertStandalone(expected, extracted, where);
+		}
+	}
+
+	/**
+	 * checks an extracted tree, then changes it and snapshots it like any
+	 * other tree
+	 */
+	private void assertStandalone(TreeSet<Integer> expected, RedBlackTree<Integer> extracted, String where) {
+		assertTree(expected, extracted, "extracted " + where);
+
+		TreeSnapshot<Integer> snapshot = extracted.snapshot();
+		List<Integer> before = new ArrayList<Integer>(expected);
+		TreeSet<Integer> changed = new TreeSet<Integer>(expected);
+		for (int i = 0; i < 50; i++) {
+			int value = random.nextInt(UNIVERSE);
+			if (random.nextBoolean()) {
+				assertEquals(changed.add(value), extracted.add(value));
+			} else {
+				assertEquals(changed.remove(value), extracted.delete(value));
+			}
+		}
+		assertTree(changed, extracted, "extracted " + where + " after updates");
+		assertEquals(before, new ArrayList<Integer>(snapshot), "snapshot of extracted " + where);
+		assertEquals(before.size(), snapshot.size());
+	}
+
+	private TreeSet<Integer> values() {
+		TreeSet<Integer> values = new TreeSet<Integer>();
+		int count = random.nextInt(1_500);
+		for (int i = 0; i < count; i++) {
+			values.add(random.nextInt(UNIVERSE));
+		}
+		return values;
+	}
+
+	/**
+	 * bound that is sometimes below or above every value
+	 */
+	private int bound() {
+		return random.nextInt(UNIVERSE + 200) - 100;
+	}
+
+	private RedBlackTree<Integer> tree(TreeSet<Integer> values) {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		List<Integer> shuffled = new ArrayList<Integer>(values);
+		Collections.shuffle(shuffled, random);
+		for (Integer value : shuffled) {
+			tree.add(value);
+		}
+		return tree;
+	}
+}
@@ -0,0 +1,61 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * runs random inserts and deletes against a {@link TreeSet} and checks every
+ * red black invariant after each one: black root, no red child of a red
+ * node, equal black height on every path, parent links, subtree sizes and
+ * key order. the number of operations is read from
+ * application.invariantTest.operations
+ *
+ * @author Alex
+ *
+ */
+class RedBlackTreeInvariantTest {
+	private static final long OPERATIONS = Long.getLong("application.invariantTest.operations", 10_000_000);
+	private static final int KEYS = 300;
+
+	/**
+	 * operations between changes of the insert bias, so the tree is grown
+	 * full and drained empty instead of hovering at half the key range
+	 */
+	private static final int PHASE = 50_000;
+
+	@Test
+	void randomOperationsKeepInvariants() {
+		Random random = new Random(23);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		int bias = 50;
+
+		for (long i = 0; i < OPERATIONS; i++) {
+			if (i % PHASE == 0) {
+				bias = 10 + random.nextInt(81);
+			}
+
+			Integer key = random.nextInt(KEYS);
+			if (random.nextInt(100) < bias) {
+				if (oracle.add(key) != tree.add(key)) {
+					fail("add " + key + " at " + i);
+				}
+			} else if (oracle.remove(key) != tree.delete(key)) {
+				fail("delete " + key + " at " + i);
+			}
+
+			Integer probe = random.nextInt(KEYS);
+			if (oracle.contains(probe) != tree.find(probe) || oracle.size() != tree.size()) {
+				fail("find " + probe + " or size at " + i);
+			}
+			TreeChecks.assertValid(tree, i);
+		}
+		assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(tree));
+	}
+}
@@ -0,0 +1,255 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * multi-threaded checks of {@link ShardedRedBlackTree}. writers own
+ * disjoint keys and pile most of them into one narrow range, so the shard
+ * holding it overflows and the values are repartitioned while the others
+ * run. a sequencer adds keys scattered over every shard in a fixed order,
+ * and readers check that iterator and range only ever see a prefix of that
+ * order, which holds only if every shard is read at the same instant
+ *
+ * runs for application.concurrentTest.millis, 2000 by default
+ *
+ * @author Alex
+ *
+ */
+class ShardedRedBlackTreeTest {
+	private static final long MILLIS = Long.getLong("application.concurrentTest.millis", 2000);
+	private static final int SHARDS = 8;
+	private static final int WRITERS = 3;
+	private static final int READERS = 2;
+
+	/**
+	 * keys are unit * STRIDE + owner, the sequencer owns the last residue
+	 */
+	private static final int STRIDE = WRITERS + 1;
+	private static final int UNITS = 100_000;
+	private static final int HOT_UNITS = 2_000;
+
+	/**
+	 * the sequencer adds unit (i * STEP) % UNITS as its i-th key, STEP is
+	 * prime to UNITS so the keys are distinct and jump between shards
+	 */
+	private static final int STEP = 7_919;
+
+	@Test
+	void skewedWritersLeaveExactState() throws InterruptedException {
+		List<Integer> sample = new ArrayList<Integer>();
+		for (int unit = 0; unit < UNITS; unit += UNITS / 64) {
+			sample.add(unit * STRIDE);
+		}
+		ShardedRedBlackTree<Integer> tree = new ShardedRedBlackTree<Integer>(SHARDS, sample);
+
+		BitSet[] owned = new BitSet[WRITERS];
+		AtomicInteger sequenced = new AtomicInteger();
+		AtomicBoolean stop = new AtomicBoolean();
+		List<Throwable> errors = new CopyOnWriteArrayList<Throwable>();
+		List<Thread> writers = new ArrayList<Thread>();
+		List<Thread> readers = new ArrayList<Thread>();
+		long end = System.currentTimeMillis() + MILLIS;
+
+		for (int w = 0; w < WRITERS; w++) {
+			int writer = w;
+			owned[w] = new BitSet();
+			writers.add(new Thread(() -> {
+				Random random = new Random(writer);
+				try {
+					while (System.currentTimeMillis() < end && !stop.get()) {
+						// nine in ten keys fall in the first fiftieth of the range
+						int unit = random.nextInt(10) > 0 ? random.nextInt(HOT_UNITS) : random.nextInt(UNITS);
+						int key = unit * STRIDE + writer;
+						if (random.nextInt(4) > 0) {
+							assertEquals(!owned[writer].get(key), tree.add(key));
+							owned[writer].set(key);
+						} else {
+							assertEquals(owned[writer].get(key), tree.delete(key));
+							owned[writer].clear(key);
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+					stop.set(true);
+				}
+			}));
+		}
+		writers.add(new Thread(() -> {
+			try {
+				for (int i = 0; i < UNITS && System.currentTimeMillis() < end && !stop.get(); i++) {
+					assertTrue(tree.add(sequenced(i)));
+					sequenced.set(i + 1);
+				}
+			} catch (Throwable e) {
+				errors.add(e);
+				stop.set(true);
+			}
+		}));
+
+		for (int r = 0; r < READERS; r++) {
+			int reader = r;
+			readers.add(new Thread(() -> {
+				Random random = new Random(100 + reader);
+				try {
+					while (!stop.get()) {
+						if (random.nextBoolean()) {
+							checkIterator(tree, sequenced.get());
+						} else {
+							int from = random.nextInt(UNITS * STRIDE);
+							int to = from + random.nextInt(UNITS * STRIDE / 2);
+							checkRange(tree, from, to, sequenced.get());
+						}
+					}
+				} catch (Throwable e) {
+					errors.add(e);
+					stop.set(true);
+				}
+			}));
+		}
+
+		for (Thread thread : readers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.start();
+		}
+		for (Thread thread : writers) {
+			thread.join();
+		}
+		stop.set(true);
+		for (Thread thread : readers) {
+			thread.join();
+		}
+		rethrow(errors);
+
+		BitSet all = new BitSet();
+		for (BitSet keys : owned) {
+			all.or(keys);
+		}
+		for (int i = 0; i < sequenced.get(); i++) {
+			all.set(sequenced(i));
+		}
+		List<Integer> expected = new ArrayList<Integer>();
+		all.stream().forEach(expected::add);
+
+		assertTrue(tree.repartitions() > 0, "no repartition");
+		assertEquals(SHARDS, tree.shardCount());
+		assertEquals(expected.size(), tree.size());
+		List<Integer> values = new ArrayList<Integer>();
+		tree.iterator().forEachRemaining(values::add);
+		assertEquals(expected, values);
+		for (Integer key : expected) {
+			if (!tree.find(key)) {
+				fail("lost " + key);
+			}
+		}
+
+		// ranges inside one shard, across a few boundaries and across all
+		Random random = new Random(14);
+		for (int i = 0; i < 200; i++) {
+			int from = random.nextInt(UNITS * STRIDE);
+			int to = from + random.nextInt(UNITS * STRIDE >> random.nextInt(12));
+			List<Integer> inRange = new ArrayList<Integer>();
+			all.stream().filter(key -> key >= from && key < to).forEach(inRange::add);
+			assertEquals(inRange, tree.range(from, to), "[" + from + ", " + to + ")");
+		}
+		assertEquals(expected, tree.range(Integer.MIN_VALUE, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * the i-th key the sequencer adds
+	 */
+	private static int sequenced(int i) {
+		return (int) ((long) i * STEP % UNITS) * STRIDE + WRITERS;
+	}
+
+	/**
+	 * checks a full iteration is sorted and saw the sequencer at one instant
+	 *
+	 * @param before
+	 *            keys the sequencer had added before the iterator was taken
+	 */
+	private static void checkIterator(ShardedRedBlackTree<Integer> tree, int before) {
+		Iterator<Integer> values = tree.iterator();
+		Set<Integer> seen = new HashSet<Integer>();
+		Integer last = null;
+		while (values.hasNext()) {
+			Integer value = values.next();
+			if (last != null && last >= value) {
+				fail(last + " before " + value);
+			}
+			last = value;
+			if (value % STRIDE == WRITERS) {
+				seen.add(value);
+			}
+		}
+		checkPrefix(seen, before, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	private static void checkRange(ShardedRedBlackTree<Integer> tree, int from, int to, int before) {
+		Set<Integer> seen = new HashSet<Integer>();
+		Integer last = null;
+		for (Integer value : tree.range(from, to)) {
+			if (value < from || value >= to || (last != null && last >= value)) {
+				fail(value + " in [" + from + ", " + to + ") after " + last);
+			}
+			last = value;
+			if (value % STRIDE == WRITERS) {
+				seen.add(value);
+			}
+		}
+		checkPrefix(seen, before, from, to);
+	}
+
+	/**
+	 * the sequencer keys seen in [from, to) must be exactly those among its
+	 * first n keys, for some n no smaller than before
+	 */
+	private static void checkPrefix(Set<Integer> seen, int before, int from, int to) {
+		int found = 0;
+		for (int i = 0; i < UNITS && found < seen.size(); i++) {
+			int key = sequenced(i);
+			if (key < from || key >= to) {
+				continue;
+			}
+			if (!seen.contains(key)) {
+				fail("saw a later sequenced key but not " + key + ", the " + i + "th");
+			}
+			found++;
+		}
+		if (found < seen.size()) {
+			fail("saw a key the sequencer never added");
+		}
+		for (int i = 0; i < before; i++) {
+			int key = sequenced(i);
+			if (key >= from && key < to && !seen.contains(key)) {
+				fail("missed " + key + ", added before the read");
+			}
+		}
+	}
+
+	private static void rethrow(List<Throwable> errors) {
+		if (!errors.isEmpty()) {
+			AssertionError failure = new AssertionError(errors.get(0));
+			for (int i = 1; i < errors.size(); i++) {
+				failure.addSuppressed(errors.get(i));
+			}
+			throw failure;
+		}
+	}
+}
@@ -0,0 +1,95 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+
+/**
+ * red black invariants shared by the tree tests: black root without a
+ * parent, no red child of a red node, equal black height on every path,
+ * parent links, subtree sizes, key order, and a shared leaf nobody wrote
+ *
+ * @author Alex
+ *
+ */
+final class TreeChecks {
+	private TreeChecks() {
+	}
+
+	/**
+	 * checks every invariant of a tree
+	 *
+	 * @param tree
+	 *            tree to check
+	 * @param where
+	 *            what the failure message reports the tree as
+	 */
+	static <E extends Comparable<E>> void assertValid(RedBlackTree<E> tree, Object where) {
+		if (tree.nil.color != RBNode.BLACK || tree.nil.size != 0) {
+			fail("nil written, " + where);
+		}
+		if (tree.root == tree.nil) {
+			return;
+		}
+		if (tree.root.parent != null || tree.root.color != RBNode.BLACK) {
+			fail("root has a parent or is red, " + where);
+		}
+		check(tree.nil, tree.comparator(), tree.root, null, null, where);
+	}
+
+	/**
+	 * checks a tree and that it holds exactly the expected values
+	 *
+	 * @param expected
+	 *            values in ascending order
+	 * @param tree
+	 *            tree to check
+	 * @param where
+	 *            what the failure message reports the tree as
+	 */
+	static <E extends Comparable<E>> void assertTree(Collection<E> expected, RedBlackTree<E> tree, Object where) {
+		assertValid(tree, where);
+		assertEquals(expected.size(), tree.size(), "size, " + where);
+		assertEquals(new ArrayList<E>(expected), new ArrayList<E>(tree), "values, " + where);
+	}
+
+	/**
+	 * checks a subtree whose keys lie strictly between lo and hi
+	 *
+	 * @return black height of the subtree
+	 */
+	private static <E extends Comparable<E>> int check(RBNode<E> nil, Comparator<? super E> comparator,
+			RBNode<E> node, E lo, E hi, Object where) {
+		if (node == nil) {
+			return 1;
+		}
+
+		E key = node.getData();
+		if ((lo != null && compare(comparator, key, lo) <= 0) || (hi != null && compare(comparator, key, hi) >= 0)) {
+			fail(key + " out of order, " + where);
+		}
+		if (node.color == RBNode.RED && (node.left.color == RBNode.RED || node.right.color == RBNode.RED)) {
+			fail("red child of red " + key + ", " + where);
+		}
+		if ((node.left != nil && node.left.parent != node) || (node.right != nil && node.right.parent != node)) {
+			fail("child of " + key + " has wrong parent, " + where);
+		}
+		if (node.size != node.left.size + node.right.size + 1) {
+			fail("size of " + key + " is " + node.size + ", " + where);
+		}
+
+		int left = check(nil, comparator, node.left, lo, key, where);
+		int right = check(nil, comparator, node.right, key, hi, where);
+		if (left != right) {
+			fail("black heights " + left + " and " + right + " below " + key + ", " + where);
+		}
+		return left + (node.color == RBNode.BLACK ? 1 : 0);
+	}
+
+	private static <E extends Comparable<E>> int compare(Comparator<? super E> comparator, E a, E b) {
+		return comparator == null ? a.compareTo(b) : comparator.compare(a, b);
+	}
+}
@@ -0,0 +1,120 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+/**
+ * runs the same {@link OrderedSet} contract against every engine
+ * {@link TreeEngine} creates, in natural and in reversed order, so code
+ * written against the interface can switch engines
+ *
+ * @author Alex
+ *
+ */
+class TreeEngineTest {
+	private static final int OPERATIONS = 20_000;
+	private static final int UNIVERSE = 1_000;
+
+	@ParameterizedTest
+	@EnumSource(TreeEngine.class)
+	void emptySet(TreeEngine engine) {
+		OrderedSet<Integer> set = engine.create();
+
+		assertEquals(0, set.size());
+		assertEquals(true, set.isEmpty());
+		assertEquals(false, set.find(1));
+		assertEquals(false, set.delete(1));
+		assertNull(set.floor(1));
+		assertNull(set.ceiling(1));
+		assertThrows(NoSuchElementException.class, set::first);
+		assertThrows(NoSuchElementException.class, set::last);
+		assertEquals(false, set.iterator().hasNext());
+		assertThrows(NoSuchElementException.class, () -> set.iterator().next());
+	}
+
+	@ParameterizedTest
+	@EnumSource(TreeEngine.class)
+	void naturalOrder(TreeEngine engine) {
+		run(engine.create(), new TreeSet<Integer>(), new Random(19));
+	}
+
+	@ParameterizedTest
+	@EnumSource(TreeEngine.class)
+	void reversedOrder(TreeEngine engine) {
+		Comparator<Integer> reversed = Comparator.reverseOrder();
+		run(engine.create(reversed), new TreeSet<Integer>(reversed), new Random(91));
+	}
+
+	/**
+	 * random operations through the interface only, compared against a
+	 * {@link TreeSet} in the same order
+	 */
+	private static void run(OrderedSet<Integer> set, TreeSet<Integer> oracle, Random random) {
+		for (int i = 0; i < OPERATIONS; i++) {
+			int key = random.nextInt(UNIVERSE);
+			String where = "operation " + i + ", key " + key;
+			switch (random.nextInt(6)) {
+			case 0:
+			case 1:
+				assertEquals(oracle.add(key), set.add(key), where);
+				break;
+			case 2:
+				assertEquals(oracle.remove(key), set.delete(key), where);
+				break;
+			case 3:
+				assertEquals(oracle.remove(key), set.remove(key), where);
+				break;
+			case 4:
+				assertEquals(oracle.contains(key), set.find(key), where);
+				assertEquals(oracle.contains(key), set.contains(key), where);
+				break;
+			default:
+				assertEquals(oracle.floor(key), set.floor(key), "floor, " + where);
+				assertEquals(oracle.ceiling(key), set.ceiling(key), "ceiling, " + where);
+			}
+			assertEquals(oracle.size(), set.size(), where);
+			if (!oracle.isEmpty()) {
+				assertEquals(oracle.first(), set.first(), where);
+				assertEquals(oracle.last(), set.last(), where);
+			}
+		}
+
+		assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(set));
+		assertEquals(new HashSet<Integer>(oracle), set);
+		assertEquals(set, new HashSet<Integer>(oracle));
+		assertEquals(oracle.hashCode(), set.hashCode());
+
+		Iterator<Integer> expected = oracle.iterator();
+		Iterator<Integer> actual = set.iterator();
+		assertThrows(IllegalStateException.class, actual::remove);
+		for (int i = 0; expected.hasNext(); i++) {
+			assertEquals(expected.next(), actual.next());
+			if (i % 3 == 0) {
+				expected.remove();
+				actual.remove();
+			}
+		}
+		assertEquals(false, actual.hasNext());
+		assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(set));
+
+		List<Integer> batch = List.of(3, 1, 2, 1);
+		oracle.clear();
+		set.clear();
+		assertEquals(true, set.isEmpty());
+		assertEquals(oracle.addAll(batch), set.addAll(batch));
+		assertEquals(new ArrayList<Integer>(oracle), new ArrayList<Integer>(set));
+	}
+}
@@ -0,0 +1,89 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * reads images through windows far smaller than the keys, so keys are cut
+ * by the window edge and one key is wider than the window
+ *
+ * @author Alex
+ *
+ */
+class TreeImageTest {
+	private static final int WINDOW = 64;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void readsVariableWidthKeysThroughSmallWindow() throws IOException {
+		Random random = new Random(3);
+		RedBlackTree<String> tree = new RedBlackTree<String>();
+		for (int i = 0; i < 5_000; i++) {
+			tree.add(word(random, 1 + random.nextInt(40)));
+		}
+		tree.add(word(random, WINDOW * 10));
+
+		Path path = directory.resolve("tree.img");
+		TreeImage.write(tree, path, KeyCodec.STRING);
+		RedBlackTree<String> read = TreeImage.read(path, KeyCodec.STRING, null, WINDOW);
+
+		assertEquals(tree.size(), read.size());
+		assertEquals(keys(tree.inorder()), keys(read.inorder()));
+		assertEquals(keys(read.preorder()), keys(TreeImage.read(path, KeyCodec.STRING, null).preorder()));
+	}
+
+	@Test
+	void rejectsKeyRunningPastKeys() throws IOException {
+		RedBlackTree<String> tree = new RedBlackTree<String>();
+		for (int i = 0; i < 100; i++) {
+			tree.add("key" + i);
+		}
+		Path path = directory.resolve("tree.img");
+		TreeImage.write(tree, path, KeyCodec.STRING);
+
+		// stretch the length prefix of the first key over the rest of the keys
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.allocate(4).putInt(0, 10_000), 20);
+		}
+		assertThrows(IOException.class, () -> TreeImage.read(path, KeyCodec.STRING, null, WINDOW));
+	}
+
+	@Test
+	void replacesImage() throws IOException {
+		Path path = directory.resolve("tree.img");
+		TreeImage.write(new RedBlackTree<Integer>(List.of(1, 2, 3)), path, KeyCodec.INTEGER);
+		TreeImage.write(new RedBlackTree<Integer>(List.of(4, 5)), path, KeyCodec.INTEGER);
+
+		assertEquals(List.of(4, 5), keys(TreeImage.read(path, KeyCodec.INTEGER, null).inorder()));
+		try (Stream<Path> files = Files.list(directory)) {
+			assertEquals(1, files.count());
+		}
+	}
+
+	private static String word(Random random, int length) {
+		StringBuilder word = new StringBuilder(length);
+		for (int i = 0; i < length; i++) {
+			word.append((char) ('a' + random.nextInt(26)));
+		}
+		return word.toString();
+	}
+
+	private static <E extends Comparable<E>> List<E> keys(List<RBNode<E>> nodes) {
+		return nodes.stream().map(RBNode::getData).toList();
+	}
+}
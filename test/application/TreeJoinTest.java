@@ -0,0 +1,214 @@
+package application;
+
+import static application.TreeChecks.assertTree;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * runs split, join, union, intersection and difference on random trees
+ * against {@link TreeSet}, checking the invariants of every tree they leave
+ * behind and that snapshots taken of the inputs beforehand do not change.
+ * sizes are picked to reach the value by value fallback of small batches,
+ * the fork join tasks of large trees, and joins of very different black
+ * heights
+ *
+ * @author Alex
+ *
+ */
+class TreeJoinTest {
+	private static final int ROUNDS = 300;
+
+	/**
+	 * sizes at or above the fork threshold of {@link TreeJoin}
+	 */
+	private static final int LARGE = 20_000;
+
+	private final Random random = new Random(21);
+
+	@Test
+	void splitMatchesTreeSet() {
+		for (int round = 0; round < ROUNDS; round++) {
+			TreeSet<Integer> oracle = values(random.nextInt(3_000), 10_000);
+			RedBlackTree<Integer> tree = tree(oracle);
+			Held before = new Held(tree, random.nextBoolean());
+
+			int at = random.nextInt(10_200) - 100;
+			RedBlackTree<Integer> upper = tree.split(at);
+
+			assertTree(oracle.headSet(at, false), tree, "lower half of split at " + at);
+			assertTree(oracle.tailSet(at, true), upper, "upper half of split at " + at);
+			before.assertUnchanged();
+		}
+	}
+
+	@Test
+	void joinMatchesTreeSet() {
+		int[] sizes = { 0, 1, 2, 3, 7, 100, 1_000, LARGE };
+		for (int leftSize : sizes) {
+			for (int rightSize : sizes) {
+				TreeSet<Integer> left = values(leftSize, 4 * LARGE);
+				TreeSet<Integer> right = new TreeSet<Integer>();
+				int middle = 4 * LARGE + 1;
+				for (int value : values(rightSize, 4 * LARGE)) {
+					right.add(middle + 1 + value);
+				}
+
+				RedBlackTree<Integer> leftTree = tree(left);
+				RedBlackTree<Integer> rightTree = tree(right);
+				Held heldLeft = new Held(leftTree);
+				Held heldRight = new Held(rightTree);
+
+				RedBlackTree<Integer> joined = RedBlackTree.join(leftTree, middle, rightTree);
+				TreeSet<Integer> expected = new TreeSet<Integer>(left);
+				expected.add(middle);
+				expected.addAll(right);
+
+				String where = "join of " + leftSize + " and " + rightSize;
+				assertTree(expected, joined, where);
+				assertTree(List.of(), leftTree, where);
+				assertTree(List.of(), rightTree, where);
+				heldLeft.assertUnchanged();
+				heldRight.assertUnchanged();
+			}
+		}
+	}
+
+	@Test
+	void joinRejectsValuesOutOfOrder() {
+		RedBlackTree<Integer> left = new RedBlackTree<Integer>(List.of(1, 2, 3));
+		RedBlackTree<Integer> right = new RedBlackTree<Integer>(List.of(5, 6));
+		assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, 3, right));
+		assertThrows(IllegalArgumentException.class, () -> RedBlackTree.join(left, 5, right));
+	}
+
+	@Test
+	void setOperationsOfSimilarSizes() {
+		for (int round = 0; round < ROUNDS; round++) {
+			int universe = 1 + random.nextInt(5_000);
+			run(random.nextInt(2_000), random.nextInt(2_000), universe, round);
+		}
+	}
+
+	@Test
+	void setOperationsOfSmallBatches() {
+		// below size / BATCH_RATIO the operations go value by value
+		for (int round = 0; round < ROUNDS / 3; round++) {
+			run(5_000 + random.nextInt(5_000), random.nextInt(60), 20_000, round);
+		}
+	}
+
+	@Test
+	void setOperationsAboveForkThreshold() {
+		for (int round = 0; round < 12; round++) {
+			run(LARGE + random.nextInt(LARGE), LARGE / 2 + random.nextInt(LARGE), 3 * LARGE, round);
+		}
+	}
+
+	/**
+	 * runs all three operations, each on fresh trees of the given sizes,
+	 * with the large tree on either side
+	 */
+	private void run(int size, int otherSize, int universe, int round) {
+		for (TreeJoin.Operation operation : TreeJoin.Operation.values()) {
+			for (boolean swap : new boolean[] { false, true }) {
+				TreeSet<Integer> a = values(swap ? otherSize : size, universe);
+				TreeSet<Integer> b = values(swap ? size : otherSize, universe);
+				RedBlackTree<Integer> tree = tree(a);
+				RedBlackTree<Integer> other = tree(b);
+				Held heldTree = new Held(tree, random.nextBoolean());
+				Held heldOther = new Held(other, random.nextBoolean());
+
+				TreeSet<Integer> expected = new TreeSet<Integer>(a);
+				int changed;
+				switch (operation) {
+				case UNION:
+					expected.addAll(b);
+					changed = tree.union(other);
+					assertEquals(expected.size() - a.size(), changed);
+					break;
+				case INTERSECTION:
+					expected.retainAll(b);
+					changed = tree.intersection(other);
+					assertEquals(a.size() - expected.size(), changed);
+					break;
+				default:
+					expected.removeAll(b);
+					changed = tree.difference(other);
+					assertEquals(a.size() - expected.size(), changed);
+				}
+
+				String where = operation + " of " + a.size() + " and " + b.size() + " in round " + round;
+				assertTree(expected, tree, where);
+				assertTree(List.of(), other, where);
+				heldTree.assertUnchanged();
+				heldOther.assertUnchanged();
+
+				// the result must still take ordinary updates
+				tree.add(-1);
+				expected.add(-1);
+				tree.delete(expected.last());
+				expected.remove(expected.last());
+				assertTree(expected, tree, where + " after updates");
+			}
+		}
+	}
+
+	private TreeSet<Integer> values(int count, int universe) {
+		TreeSet<Integer> values = new TreeSet<Integer>();
+		for (int i = 0; i < count; i++) {
+			values.add(random.nextInt(universe));
+		}
+		return values;
+	}
+
+	/**
+	 * builds a tree value by value so it has the shapes rebalancing leaves,
+	 * not the perfect one of the bulk loader
+	 */
+	private RedBlackTree<Integer> tree(TreeSet<Integer> values) {
+		List<Integer> shuffled = new ArrayList<Integer>(values);
+		Collections.shuffle(shuffled, random);
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		for (Integer value : shuffled) {
+			tree.add(value);
+		}
+		return tree;
+	}
+
+	/**
+	 * snapshot of a tree with a copy of its values at the time it was taken
+	 */
+	private static final class Held {
+		private final TreeSnapshot<Integer> snapshot;
+		private final List<Integer> values;
+
+		/**
+		 * holds a snapshot, or nothing so the operation may change the
+		 * nodes of the tree in place
+		 */
+		Held(RedBlackTree<Integer> tree, boolean hold) {
+			this.snapshot = hold ? tree.snapshot() : null;
+			this.values = new ArrayList<Integer>(tree);
+		}
+
+		Held(RedBlackTree<Integer> tree) {
+			this(tree, true);
+		}
+
+		void assertUnchanged() {
+			if (snapshot == null) {
+				return;
+			}
+			assertEquals(values.size(), snapshot.size(), "snapshot size");
+			assertEquals(values, new ArrayList<Integer>(snapshot), "snapshot values");
+		}
+	}
+}
@@ -0,0 +1,203 @@
+package application;
+
+import static application.TreeChecks.assertTree;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * holds several snapshots of a tree while changing it through every path
+ * that writes nodes: add and delete, the batches that descend from a finger,
+ * iterator removal, polling, range removal, and union with a tree that
+ * recycles its nodes. after every step the tree is checked against
+ * {@link TreeSet} and every snapshot still has to hold the values it had
+ * when it was taken
+ *
+ * @author Alex
+ *
+ */
+class TreeSnapshotTest {
+	private static final int STEPS = 3_000;
+	private static final int UNIVERSE = 1_000;
+	private static final int HELD = 6;
+
+	@Test
+	void snapshotsNeverChange() {
+		run(new Random(13), false);
+	}
+
+	@Test
+	void snapshotsNeverChangeWithNodePool() {
+		run(new Random(31), true);
+	}
+
+	private void run(Random random, boolean pooled) {
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		if (pooled) {
+			tree.enableNodePool(64);
+		}
+		TreeSet<Integer> oracle = new TreeSet<Integer>();
+		for (int i = 0; i < UNIVERSE / 2; i++) {
+			int value = random.nextInt(UNIVERSE);
+			assertEquals(oracle.add(value), tree.add(value));
+		}
+		List<Held> held = new ArrayList<Held>();
+
+		for (int step = 0; step < STEPS; step++) {
+			if (step % 7 == 0) {
+				if (held.size() == HELD) {
+					held.remove(random.nextInt(HELD));
+				}
+				held.add(new Held(tree));
+			}
+
+			int path = random.nextInt(7);
+			step(random, path, tree, oracle, held);
+
+			String where = "path " + path + " in step " + step;
+			assertTree(oracle, tree, where);
+			for (Held snapshot : held) {
+				snapshot.assertUnchanged(where);
+			}
+		}
+		if (pooled) {
+			NodePool<Integer> pool = tree.nodePool();
+			assertTrue(pool.hits() > 0, pool.toString());
+		}
+	}
+
+	/**
+	 * changes the tree and the oracle the same way through one path
+	 */
+	private static void step(Random random, int path, RedBlackTree<Integer> tree, TreeSet<Integer> oracle,
+			List<Held> held) {
+		switch (path) {
+		case 0:
+			for (int i = 0; i < 20; i++) {
+				int value = random.nextInt(UNIVERSE);
+				if (random.nextBoolean()) {
+					assertEquals(oracle.add(value), tree.add(value));
+				} else {
+					assertEquals(oracle.remove(value), tree.delete(value));
+				}
+			}
+			break;
+		case 1:
+			List<Integer> added = batch(random);
+			int expectedAdded = 0;
+			for (Integer value : added) {
+				if (oracle.add(value)) {
+					expectedAdded++;
+				}
+			}
+			assertEquals(expectedAdded, tree.insertAll(added), "insertAll");
+			break;
+		case 2:
+			List<Integer> deleted = batch(random);
+			int expectedDeleted = 0;
+			for (Integer value : deleted) {
+				if (oracle.remove(value)) {
+					expectedDeleted++;
+				}
+			}
+			assertEquals(expectedDeleted, tree.deleteAll(deleted), "deleteAll");
+			break;
+		case 3:
+			boolean ascending = random.nextBoolean();
+			Iterator<Integer> values = ascending ? tree.iterator() : tree.descendingIterator();
+			Iterator<Integer> expected = ascending ? oracle.iterator() : oracle.descendingIterator();
+			int every = 2 + random.nextInt(20);
+			for (int i = 0; values.hasNext(); i++) {
+				assertEquals(expected.next(), values.next());
+				if (i % every == 0) {
+					values.remove();
+					expected.remove();
+				}
+			}
+			break;
+		case 4:
+			for (int i = 0; i < 10; i++) {
+				if (random.nextBoolean()) {
+					assertEquals(oracle.pollFirst(), tree.pollFirst());
+				} else {
+					assertEquals(oracle.pollLast(), tree.pollLast());
+				}
+			}
+			break;
+		case 5:
+			int from = random.nextInt(UNIVERSE);
+			int to = from + random.nextInt(UNIVERSE / 10);
+			List<Integer> range = new ArrayList<Integer>(oracle.subSet(from, to));
+			range.forEach(oracle::remove);
+			assertEquals(range.size(), tree.removeRange(from, to), "removeRange");
+			break;
+		default:
+			// a pool that already holds freed nodes, and a snapshot of the
+			// other tree that has to survive its nodes moving over
+			RedBlackTree<Integer> other = new RedBlackTree<Integer>();
+			other.enableNodePool(32);
+			int count = random.nextBoolean() ? random.nextInt(8) : random.nextInt(UNIVERSE / 2);
+			for (int i = 0; i < count + 16; i++) {
+				other.add(random.nextInt(UNIVERSE));
+			}
+			for (int i = 0; i < 16; i++) {
+				other.pollFirst();
+			}
+			held.add(new Held(other));
+			TreeSet<Integer> union = new TreeSet<Integer>(oracle);
+			union.addAll(other);
+			assertEquals(union.size() - oracle.size(), tree.union(other), "union");
+			oracle.addAll(union);
+			held.remove(held.size() - 1).assertUnchanged("snapshot of the tree added by union");
+		}
+	}
+
+	/**
+	 * batch in random, ascending or descending order, often with repeats
+	 */
+	private static List<Integer> batch(Random random) {
+		List<Integer> batch = new ArrayList<Integer>();
+		int size = 1 + random.nextInt(60);
+		int lo = random.nextInt(UNIVERSE);
+		int spread = random.nextBoolean() ? 20 : UNIVERSE;
+		for (int i = 0; i < size; i++) {
+			batch.add((lo + random.nextInt(spread)) % UNIVERSE);
+		}
+		switch (random.nextInt(3)) {
+		case 0:
+			Collections.sort(batch);
+			break;
+		case 1:
+			batch.sort(Collections.reverseOrder());
+			break;
+		default:
+		}
+		return batch;
+	}
+
+	/**
+	 * snapshot with a copy of its values at the time it was taken
+	 */
+	private static final class Held {
+		private final TreeSnapshot<Integer> snapshot;
+		private final List<Integer> values;
+
+		Held(RedBlackTree<Integer> tree) {
+			this.values = new ArrayList<Integer>(tree);
+			this.snapshot = tree.snapshot();
+		}
+
+		void assertUnchanged(String where) {
+			assertEquals(values.size(), snapshot.size(), "snapshot size after " + where);
+			assertEquals(values, new ArrayList<Integer>(snapshot), "snapshot values after " + where);
+		}
+	}
+}
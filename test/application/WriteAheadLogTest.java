@@ -0,0 +1,121 @@
+package application;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * cuts a log everywhere inside its last record and corrupts the checksum,
+ * replay must keep exactly the records before it and a reopened log must
+ * append after them
+ *
+ * @author Alex
+ *
+ */
+class WriteAheadLogTest {
+	private static final int RECORDS = 20;
+
+	/**
+	 * length, operation, int key, checksum
+	 */
+	private static final int RECORD = 4 + 1 + Integer.BYTES + 4;
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void replayStopsAtEveryCutInLastRecord() throws IOException {
+		byte[] log = write();
+		int last = log.length - RECORD;
+
+		for (int cut = last; cut < log.length; cut++) {
+			assertRecovers(Arrays.copyOf(log, cut), last);
+		}
+	}
+
+	@Test
+	void replayStopsAtBadChecksum() throws IOException {
+		byte[] log = write();
+		for (int at = log.length - 4; at < log.length; at++) {
+			byte[] corrupt = log.clone();
+			corrupt[at] ^= 0x40;
+			assertRecovers(corrupt, log.length - RECORD);
+		}
+	}
+
+	@Test
+	void groupPolicyForcesLoneRecord() throws Exception {
+		Path path = directory.resolve("group.log");
+		try (WriteAheadLog<Integer> log = new WriteAheadLog<Integer>(path, KeyCodec.INTEGER,
+				SyncPolicy.group(20, Integer.MAX_VALUE), 0)) {
+			log.append(WriteAheadLog.INSERT, 7);
+			long deadline = System.nanoTime() + 10_000_000_000L;
+			while (Files.size(path) < RECORD && System.nanoTime() < deadline) {
+				Thread.sleep(5);
+			}
+			assertEquals(RECORD, Files.size(path));
+		}
+	}
+
+	/**
+	 * writes a log of inserts of 0 to {@link #RECORDS} - 1
+	 */
+	private byte[] write() throws IOException {
+		Path path = directory.resolve("full.log");
+		try (WriteAheadLog<Integer> log = new WriteAheadLog<Integer>(path, KeyCodec.INTEGER,
+				SyncPolicy.everyOperation(), 0)) {
+			for (int i = 0; i < RECORDS; i++) {
+				log.append(WriteAheadLog.INSERT, i);
+			}
+		}
+		byte[] log = Files.readAllBytes(path);
+		assertEquals(RECORDS * RECORD, log.length);
+		return log;
+	}
+
+	/**
+	 * replays a damaged log, expecting every record but the last, then
+	 * appends to it and replays again
+	 */
+	private void assertRecovers(byte[] damaged, int valid) throws IOException {
+		Path path = directory.resolve("damaged.log");
+		Files.write(path, damaged);
+
+		RedBlackTree<Integer> tree = new RedBlackTree<Integer>();
+		assertEquals(valid, WriteAheadLog.replay(path, KeyCodec.INTEGER, tree), "cut at " + damaged.length);
+		assertEquals(expected(RECORDS - 1), keys(tree));
+
+		try (WriteAheadLog<Integer> log = new WriteAheadLog<Integer>(path, KeyCodec.INTEGER,
+				SyncPolicy.everyOperation(), valid)) {
+			log.append(WriteAheadLog.INSERT, 100);
+			log.append(WriteAheadLog.DELETE, 0);
+		}
+
+		RedBlackTree<Integer> reopened = new RedBlackTree<Integer>();
+		assertEquals(valid + 2 * RECORD, WriteAheadLog.replay(path, KeyCodec.INTEGER, reopened));
+		List<Integer> keys = expected(RECORDS - 1);
+		keys.remove(0);
+		keys.add(100);
+		assertEquals(keys, keys(reopened));
+	}
+
+	private static List<Integer> expected(int count) {
+		List<Integer> keys = new ArrayList<Integer>();
+		for (int i = 0; i < count; i++) {
+			keys.add(i);
+		}
+		return keys;
+	}
+
+	private static List<Integer> keys(RedBlackTree<Integer> tree) {
+		return new ArrayList<Integer>(tree);
+	}
+}